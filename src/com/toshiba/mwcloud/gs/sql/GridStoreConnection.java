@@ -0,0 +1,38 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql;
+
+import java.sql.SQLException;
+
+public interface GridStoreConnection {
+
+	public long getPreparedStatementCacheHitCount() throws SQLException;
+
+	public long getPreparedStatementCacheMissCount() throws SQLException;
+
+	public int getPreparedStatementCacheSize() throws SQLException;
+
+	public long getCompressedReceivedBytes() throws SQLException;
+
+	public long getUncompressedReceivedBytes() throws SQLException;
+
+	public long getDecompressionNanos() throws SQLException;
+
+	public GridStoreMetrics getMetrics() throws SQLException;
+
+	public void clearPreparedStatementCache() throws SQLException;
+
+}
@@ -0,0 +1,38 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql;
+
+public interface GridStoreExecutionTiming {
+
+	public String getOperation();
+
+	public long getEncodeNanos();
+
+	public long getSendNanos();
+
+	public long getFirstByteNanos();
+
+	public long getBodyNanos();
+
+	public long getDecodeNanos();
+
+	public long getHeartbeatCount();
+
+	public long getHeartbeatNanos();
+
+	public long getTotalNanos();
+
+}
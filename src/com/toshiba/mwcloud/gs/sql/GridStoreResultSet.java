@@ -0,0 +1,40 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql;
+
+import java.sql.SQLException;
+
+public interface GridStoreResultSet {
+
+	public int nextBlock() throws SQLException;
+
+	public int getBlockRowCount() throws SQLException;
+
+	public void getBlockInts(
+			int columnIndex, int[] values, int offset, long[] nulls)
+			throws SQLException;
+
+	public void getBlockLongs(
+			int columnIndex, long[] values, int offset, long[] nulls)
+			throws SQLException;
+
+	public void getBlockDoubles(
+			int columnIndex, double[] values, int offset, long[] nulls)
+			throws SQLException;
+
+	public GridStoreExecutionTiming getExecutionTiming() throws SQLException;
+
+}
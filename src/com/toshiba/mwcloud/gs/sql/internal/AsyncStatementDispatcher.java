@@ -0,0 +1,521 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.toshiba.mwcloud.gs.sql.internal.SQLConnection.BaseConnection;
+
+class AsyncStatementDispatcher {
+
+	private static final ExecutorService DEFAULT_EXECUTOR =
+			Executors.newCachedThreadPool(new WorkerThreadFactory());
+
+	private final SQLConnection connection;
+
+	private final ReentrantLock lock;
+
+	private final Condition stateChanged;
+
+	private final ChannelReactor reactor;
+
+	private final Executor executor;
+
+	private final Deque<Operation<?>> queue = new ArrayDeque<Operation<?>>();
+
+	private boolean draining;
+
+	private boolean closed;
+
+	private final Map<Long, Operation<?>> inFlightMap =
+			new HashMap<Long, Operation<?>>();
+
+	private Receiver receiver;
+
+	private Operation<?> exclusiveOp;
+
+	private Thread ownerThread;
+
+	private int syncWaiterCount;
+
+	AsyncStatementDispatcher(
+			SQLConnection connection, ReentrantLock lock,
+			ChannelReactor reactor) {
+		this(connection, lock, reactor, DEFAULT_EXECUTOR);
+	}
+
+	AsyncStatementDispatcher(
+			SQLConnection connection, ReentrantLock lock,
+			ChannelReactor reactor, Executor executor) {
+		this.connection = connection;
+		this.lock = lock;
+		this.stateChanged = lock.newCondition();
+		this.reactor = reactor;
+		this.executor = executor;
+	}
+
+	<T> CompletableFuture<T> submit(Operation<T> op) {
+		boolean scheduling = false;
+		synchronized (this) {
+			if (closed) {
+				op.future.completeExceptionally(
+						SQLErrorUtils.errorAlreadyClosed());
+				return op.future;
+			}
+
+			queue.add(op);
+			if (!draining) {
+				draining = true;
+				scheduling = true;
+			}
+		}
+
+		if (scheduling) {
+			schedule(new Runnable() {
+				@Override
+				public void run() {
+					drain();
+				}
+			});
+		}
+		return op.future;
+	}
+
+	<T> CompletableFuture<T> submitDetached(final Callable<T> callable) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		schedule(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					future.complete(callable.call());
+				}
+				catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			}
+		});
+		return future;
+	}
+
+	void awaitIdle() {
+		if (!isBusy(Thread.currentThread())) {
+			return;
+		}
+
+		syncWaiterCount++;
+		try {
+			while (isBusy(Thread.currentThread())) {
+				stateChanged.awaitUninterruptibly();
+			}
+		}
+		finally {
+			syncWaiterCount--;
+		}
+	}
+
+	void close() {
+		final List<Operation<?>> opList;
+		synchronized (this) {
+			closed = true;
+			opList = new ArrayList<Operation<?>>(queue);
+			queue.clear();
+		}
+
+		for (Operation<?> op : opList) {
+			op.future.completeExceptionally(
+					SQLErrorUtils.errorAlreadyClosed());
+		}
+	}
+
+	private boolean isBusy(Thread thread) {
+		return (exclusiveOp != null || !inFlightMap.isEmpty()) &&
+				ownerThread != thread;
+	}
+
+	private boolean isStartable(Operation<?> op) {
+		if (exclusiveOp != null || syncWaiterCount > 0) {
+			return false;
+		}
+		return (op.isPipelinable() || inFlightMap.isEmpty());
+	}
+
+	private void drain() {
+		for (;;) {
+			final Operation<?> op;
+			synchronized (this) {
+				op = queue.peek();
+				if (op == null) {
+					draining = false;
+					return;
+				}
+			}
+			start(op);
+		}
+	}
+
+	private void start(Operation<?> op) {
+		BaseConnection base = null;
+		long statementId = 0;
+		boolean registering = false;
+		lock.lock();
+		try {
+			while (!isStartable(op)) {
+				stateChanged.awaitUninterruptibly();
+			}
+
+			synchronized (this) {
+				queue.poll();
+			}
+
+			try {
+				base = connection.base();
+				if (base != null && base.base.isNonBlocking() &&
+						op.prepare(base)) {
+					statementId = base.base.generateStatementId();
+					op.partitionId =
+							Math.max(connection.getPreferablePartitionId(), 0);
+					final long timeoutMillis = op.getTimeoutMillis();
+					if (timeoutMillis > 0) {
+						op.deadlineNanos = System.nanoTime() +
+								timeoutMillis * 1000 * 1000;
+						if (op.deadlineNanos == 0) {
+							op.deadlineNanos = 1;
+						}
+					}
+
+					inFlightMap.put(statementId, op);
+					if (!op.isPipelinable()) {
+						exclusiveOp = op;
+					}
+					if (receiver == null || receiver.base != base) {
+						receiver = new Receiver(base);
+						registering = true;
+					}
+				}
+				else {
+					exclusiveOp = op;
+					ownerThread = Thread.currentThread();
+					while (!inFlightMap.isEmpty()) {
+						stateChanged.awaitUninterruptibly();
+					}
+				}
+			}
+			catch (Throwable t) {
+				op.abort();
+				complete(op, null, t);
+				return;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		if (statementId == 0) {
+			executeBlocking(op);
+			return;
+		}
+
+		try {
+			if (registering) {
+				reactor.register(base.base.getChannel(), receiver);
+			}
+			base.base.sendStatementDirect(
+					SQLConnection.SQL_STATEMENT_TYPE, op.partitionId,
+					statementId, op.getRequest());
+		}
+		catch (GSException e) {
+			failInFlight(base, e);
+		}
+		catch (IOException e) {
+			failInFlight(base, e);
+		}
+	}
+
+	private <T> void executeBlocking(Operation<T> op) {
+		T result = null;
+		Throwable error = null;
+		try {
+			result = op.executeBlocking();
+		}
+		catch (Throwable t) {
+			error = t;
+		}
+
+		lock.lock();
+		try {
+			exclusiveOp = null;
+			ownerThread = null;
+			stateChanged.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		complete(op, result, error);
+	}
+
+	private void accept(Receiver receiver, long statementId)
+			throws GSException {
+		lock.lock();
+		try {
+			final Operation<?> op = inFlightMap.get(statementId);
+			if (op == null) {
+				throw new GSConnectionException(
+						GSErrorCode.MESSAGE_CORRUPTED,
+						"Protocol error by illegal statement ID (" +
+						"address=" + receiver.base.base.getRemoteSocketAddress() +
+						")");
+			}
+			receiver.buf = op.swapResponse(receiver.buf);
+			acceptDirect(op, receiver.base);
+			inFlightMap.remove(statementId);
+			if (exclusiveOp == op) {
+				exclusiveOp = null;
+			}
+			stateChanged.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private <T> void acceptDirect(Operation<T> op, BaseConnection base)
+			throws GSException {
+		T result = null;
+		Throwable error = null;
+		final Thread orgOwnerThread = ownerThread;
+		ownerThread = Thread.currentThread();
+		try {
+			result = op.accept(base, op.partitionId);
+		}
+		catch (GSConnectionException e) {
+			throw e;
+		}
+		catch (Throwable t) {
+			op.abort();
+			error = t;
+		}
+		finally {
+			ownerThread = orgOwnerThread;
+		}
+		complete(op, result, error);
+	}
+
+	private void failInFlight(BaseConnection base, Throwable cause) {
+		final List<Operation<?>> opList;
+		lock.lock();
+		try {
+			if (receiver == null || receiver.base != base) {
+				return;
+			}
+
+			opList = new ArrayList<Operation<?>>(inFlightMap.values());
+			inFlightMap.clear();
+			if (opList.contains(exclusiveOp)) {
+				exclusiveOp = null;
+			}
+			connection.releaseBuffer(receiver.buf);
+			receiver.buf = null;
+			receiver = null;
+
+			if (cause instanceof GSConnectionException) {
+				base.lastException = (GSConnectionException) cause;
+			}
+			if (connection.base() == base) {
+				try {
+					connection.disconnect(true);
+				}
+				catch (GSException e) {
+				}
+			}
+			stateChanged.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		final SQLException error;
+		if (cause instanceof SocketTimeoutException) {
+			error = SQLErrorUtils.error(
+					0, "Connection timed out on asynchronous execution (" +
+					"address=" + base.base.getRemoteSocketAddress() + ")",
+					new GSConnectionException(
+							GSErrorCode.CONNECTION_TIMEOUT,
+							cause.getMessage(), cause));
+		}
+		else {
+			error = SQLErrorUtils.error(
+					0, "Connection problem occurred on asynchronous " +
+					"execution (reason=" + cause.getMessage() + ")", cause);
+		}
+
+		for (Operation<?> op : opList) {
+			op.abort();
+			complete(op, null, error);
+		}
+	}
+
+	private <T> void complete(
+			final Operation<T> op, final T result, final Throwable error) {
+		schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (error == null) {
+					op.future.complete(result);
+				}
+				else {
+					op.future.completeExceptionally(error);
+				}
+			}
+		});
+	}
+
+	private void schedule(Runnable command) {
+		try {
+			executor.execute(command);
+		}
+		catch (RuntimeException e) {
+			command.run();
+		}
+	}
+
+	abstract static class Operation<T> {
+
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+
+		private int partitionId;
+
+		private long deadlineNanos;
+
+		abstract boolean isPipelinable();
+
+		abstract long getTimeoutMillis();
+
+		abstract boolean prepare(BaseConnection base)
+				throws GSException, SQLException;
+
+		abstract BasicBuffer getRequest();
+
+		abstract BasicBuffer swapResponse(BasicBuffer buf);
+
+		abstract T accept(BaseConnection base, int partitionId)
+				throws GSException, SQLException;
+
+		abstract T executeBlocking() throws SQLException;
+
+		void abort() {
+		}
+
+	}
+
+	private class Receiver implements ChannelReactor.Handler {
+
+		final BaseConnection base;
+
+		BasicBuffer buf;
+
+		Receiver(BaseConnection base) {
+			this.base = base;
+		}
+
+		@Override
+		public boolean handleReadable() throws GSException {
+			for (;;) {
+				lock.lock();
+				try {
+					if (receiver != this) {
+						return true;
+					}
+					if (inFlightMap.isEmpty()) {
+						connection.releaseBuffer(buf);
+						buf = null;
+						receiver = null;
+						return true;
+					}
+					if (buf == null) {
+						buf = connection.takeRespBuffer();
+					}
+				}
+				finally {
+					lock.unlock();
+				}
+
+				final long statementId = base.base.receiveStatementPartially(
+						SQLConnection.SQL_STATEMENT_TYPE, buf);
+				if (statementId == 0) {
+					return false;
+				}
+				accept(this, statementId);
+			}
+		}
+
+		@Override
+		public void handleFailure(Throwable cause) {
+			failInFlight(base, cause);
+		}
+
+		@Override
+		public long getDeadlineNanos() {
+			lock.lock();
+			try {
+				long deadline = 0;
+				for (Operation<?> op : inFlightMap.values()) {
+					if (op.deadlineNanos != 0 &&
+							(deadline == 0 || op.deadlineNanos - deadline < 0)) {
+						deadline = op.deadlineNanos;
+					}
+				}
+				return deadline;
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(
+					r, "gridstore-jdbc-async-" +
+					threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
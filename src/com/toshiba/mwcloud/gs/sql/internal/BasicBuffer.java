@@ -20,6 +20,7 @@ import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 class BasicBuffer {
 
@@ -30,6 +31,8 @@ class BasicBuffer {
 
 	private static final int HUGE_BUFFER_GROW_UNIT = 1024 * 1024;
 
+	private static final AtomicLong GROWTH_COUNT = new AtomicLong();
+
 	private ByteBuffer base;
 
 	private BasicBuffer(ByteBuffer base) {
@@ -49,6 +52,11 @@ class BasicBuffer {
 		return new BasicBuffer(wrapBase(bytes));
 	}
 
+	public static BasicBuffer wrap(ByteBuffer base) {
+		base.order(DEFAULT_BYTE_ORDER);
+		return new BasicBuffer(base);
+	}
+
 	public static ByteBuffer wrapBase(byte[] bytes) {
 		final ByteBuffer base = ByteBuffer.wrap(bytes);
 		base.order(DEFAULT_BYTE_ORDER);
@@ -87,6 +95,11 @@ class BasicBuffer {
 		base.flip();
 		newBuffer.put(base);
 		base = newBuffer;
+		GROWTH_COUNT.incrementAndGet();
+	}
+
+	static long getGrowthCount() {
+		return GROWTH_COUNT.get();
 	}
 
 	public void putBoolean(boolean value) {
@@ -192,7 +205,17 @@ class BasicBuffer {
 	}
 
 	public String getString() {
-		final byte[] buf = new byte[base.getInt()];
+		final int length = base.getInt();
+		if (base.hasArray()) {
+			final int pos = base.position();
+			final String str = new String(
+					base.array(), base.arrayOffset() + pos, length,
+					DEFAULT_CHARSET);
+			base.position(pos + length);
+			return str;
+		}
+
+		final byte[] buf = new byte[length];
 		base().get(buf);
 		return new String(buf, 0, buf.length, DEFAULT_CHARSET);
 	}
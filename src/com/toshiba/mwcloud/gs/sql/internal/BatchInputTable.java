@@ -0,0 +1,159 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.toshiba.mwcloud.gs.sql.internal.RowMapper.SchemaFeatureLevel;
+
+class BatchInputTable implements Callable<BatchInputTable> {
+
+	private static final ExecutorService DEFAULT_EXECUTOR =
+			Executors.newCachedThreadPool(new WorkerThreadFactory());
+
+	private static final int DEFAULT_INITIAL_SIZE = 64 * 1024;
+
+	private final RowMapper mapper;
+
+	private final int parameterCount;
+
+	private final List<Row> rowList;
+
+	private final int initialSize;
+
+	private BasicBuffer table;
+
+	private SchemaFeatureLevel level;
+
+	BatchInputTable(
+			RowMapper mapper, int parameterCount, List<Row> rowList,
+			int sizeHint) {
+		this.mapper = mapper;
+		this.parameterCount = parameterCount;
+		this.rowList = rowList;
+		this.initialSize = (sizeHint > 0 ? sizeHint : DEFAULT_INITIAL_SIZE);
+	}
+
+	@Override
+	public BatchInputTable call() throws GSException {
+		encode();
+		return this;
+	}
+
+	void encode() throws GSException {
+		if (table != null) {
+			return;
+		}
+
+		final BasicBuffer table = new BasicBuffer(initialSize);
+		level = SQLPreparedStatement.putInputTable(
+				table, mapper, parameterCount, rowList);
+		this.table = table;
+	}
+
+	RowMapper getMapper() {
+		return mapper;
+	}
+
+	int getRowCount() {
+		return rowList.size();
+	}
+
+	int getSize() {
+		return table.base().position();
+	}
+
+	SchemaFeatureLevel putTo(BasicBuffer out) throws SQLException {
+		try {
+			encode();
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+
+		final ByteBuffer src = table.base().duplicate();
+		src.flip();
+		out.prepare(src.remaining());
+		out.base().put(src);
+		return level;
+	}
+
+	static Future<BatchInputTable> submit(BatchInputTable table) {
+		final FutureTask<BatchInputTable> task =
+				new FutureTask<BatchInputTable>(table);
+		try {
+			DEFAULT_EXECUTOR.execute(task);
+		}
+		catch (RejectedExecutionException e) {
+			task.run();
+		}
+		return task;
+	}
+
+	static BatchInputTable await(Future<BatchInputTable> future)
+			throws SQLException {
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					return future.get();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+				catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					throw SQLErrorUtils.error(
+							0, "Failed to encode batch parameters (reason=" +
+							(cause == null ? null : cause.getMessage()) + ")",
+							cause);
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(
+					r, "gridstore-jdbc-batch-" +
+					threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.nio.ByteBuffer;
+
+import com.toshiba.mwcloud.gs.sql.internal.RowMapper.MappingMode;
+import com.toshiba.mwcloud.gs.sql.internal.RowMapper.SchemaFeatureLevel;
+
+class BatchRowBuffer {
+
+	private static final int LONG_SIZE = Long.SIZE / Byte.SIZE;
+
+	private static final int INITIAL_SIZE = 1024;
+
+	private final RowMapper mapper;
+
+	private final int fixedRowSize;
+
+	private final boolean varDataIncluded;
+
+	private final BasicBuffer rowBuffer = new BasicBuffer(INITIAL_SIZE);
+
+	private final BasicBuffer fixedPart = new BasicBuffer(INITIAL_SIZE);
+
+	private final BasicBuffer varPart = new BasicBuffer(INITIAL_SIZE);
+
+	private int rowCount;
+
+	private SchemaFeatureLevel featureLevel;
+
+	BatchRowBuffer(RowMapper mapper) {
+		this.mapper = mapper;
+		this.fixedRowSize = mapper.getFixedRowPartSize(
+				false, MappingMode.ROWWISE_SEPARATED_V2);
+		this.varDataIncluded = (mapper.getVariableEntryCount() > 0);
+	}
+
+	RowMapper getMapper() {
+		return mapper;
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	boolean isEmpty() {
+		return rowCount == 0;
+	}
+
+	void add(Row row) throws GSException {
+		rowBuffer.clear();
+		final RowMapper.Cursor cursor = mapper.createCursor(
+				rowBuffer, MappingMode.ROWWISE_SEPARATED_V2, 1, false, null);
+		mapper.encode(cursor, null, row);
+
+		final ByteBuffer src = rowBuffer.base();
+		final int endPos = src.position();
+		final int varSize = endPos - fixedRowSize;
+
+		final int fixedPos = fixedPart.base().position();
+		src.limit(fixedRowSize);
+		src.position(0);
+		fixedPart.prepare(fixedRowSize);
+		fixedPart.base().put(src);
+		if (varDataIncluded) {
+			fixedPart.base().putLong(fixedPos, varPart.base().position());
+		}
+
+		src.limit(endPos);
+		src.position(fixedRowSize);
+		varPart.prepare(varSize);
+		varPart.base().put(src);
+		src.clear();
+
+		final SchemaFeatureLevel level = cursor.getOutputFeatureLevel(mapper);
+		featureLevel = (featureLevel == null ? level : featureLevel.merge(level));
+		rowCount++;
+	}
+
+	void clear() {
+		fixedPart.clear();
+		varPart.clear();
+		rowCount = 0;
+		featureLevel = null;
+	}
+
+	int getChunkEnd(int start, int maxRows, int maxBytes) {
+		int end = (maxRows > 0 ?
+				(int) Math.min((long) start + maxRows, rowCount) : rowCount);
+		if (maxBytes <= 0) {
+			return end;
+		}
+
+		final long varStart = getVarOffset(start);
+		for (int i = start + 1; i < end; i++) {
+			final long size = (long) fixedRowSize * (i + 1 - start) +
+					(getVarOffset(i + 1) - varStart);
+			if (size > maxBytes) {
+				end = i;
+				break;
+			}
+		}
+		return end;
+	}
+
+	SchemaFeatureLevel putTable(
+			BasicBuffer out, int parameterCount, int start, int end)
+			throws GSException {
+		final int count = end - start;
+		SQLPreparedStatement.putInputSchema(
+				out, mapper, parameterCount, count);
+
+		out.putInt(0);
+		final int tablePos = out.base().position();
+
+		final long varDataBaseOffset = 0;
+		out.putLong(varDataBaseOffset);
+
+		final ByteBuffer fixedSrc = fixedPart.base().duplicate();
+		fixedSrc.order(fixedPart.base().order());
+		fixedSrc.limit(fixedRowSize * end);
+		fixedSrc.position(fixedRowSize * start);
+		out.prepare(fixedSrc.remaining());
+		final int fixedPos = out.base().position();
+		out.base().put(fixedSrc);
+
+		final long varStart = getVarOffset(start);
+		final long varEnd = getVarOffset(end);
+		if (varDataIncluded && varStart > 0) {
+			final ByteBuffer dest = out.base();
+			for (int i = 0; i < count; i++) {
+				final int pos = fixedPos + fixedRowSize * i;
+				dest.putLong(pos, dest.getLong(pos) - varStart);
+			}
+		}
+
+		final ByteBuffer varSrc = varPart.base().duplicate();
+		varSrc.limit((int) varEnd);
+		varSrc.position((int) varStart);
+		out.prepare(varSrc.remaining());
+		out.base().put(varSrc);
+
+		final int tableSize = out.base().position() - tablePos;
+		out.base().position(tablePos - Integer.SIZE / Byte.SIZE);
+		out.putInt(tableSize);
+		out.base().position(tablePos + tableSize);
+
+		return mapper.getFeatureLevel().merge(featureLevel);
+	}
+
+	private long getVarOffset(int index) {
+		if (!varDataIncluded) {
+			return 0;
+		}
+		if (index >= rowCount) {
+			return varPart.base().position();
+		}
+		return fixedPart.base().getLong(fixedRowSize * index);
+	}
+
+}
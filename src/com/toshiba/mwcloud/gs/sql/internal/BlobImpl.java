@@ -17,8 +17,12 @@ package com.toshiba.mwcloud.gs.sql.internal;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.sql.Blob;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
@@ -26,6 +30,8 @@ import java.util.Arrays;
 
 class BlobImpl implements Blob {
 
+	private static final int INPUT_CHUNK_SIZE = 64 * 1024;
+
 	private final BlobImpl chain;
 
 	private byte[] data;
@@ -38,6 +44,26 @@ class BlobImpl implements Blob {
 
 	private boolean closed;
 
+	private InputStream pendingInput;
+
+	private long pendingLength;
+
+	private long pendingLimit;
+
+	private boolean inputConsumed;
+
+	private byte[] viewArray;
+
+	private int viewOffset;
+
+	private int viewLength;
+
+	private File spillFile;
+
+	private int spillLength;
+
+	private SpillFileCleaner.Entry spillEntry;
+
 	public BlobImpl() {
 		this(null);
 	}
@@ -67,8 +93,28 @@ class BlobImpl implements Blob {
 		}
 	}
 
+	public static BlobImpl ofInput(
+			InputStream input, long length, long limit) {
+		final BlobImpl blob = new BlobImpl();
+		blob.pendingInput = input;
+		blob.pendingLength = length;
+		blob.pendingLimit = limit;
+		return blob;
+	}
+
+	public static BlobImpl ofView(byte[] array, int offset, int length) {
+		final BlobImpl blob = new BlobImpl();
+		blob.viewArray = array;
+		blob.viewOffset = offset;
+		blob.viewLength = length;
+		return blob;
+	}
+
 	public static BlobImpl share(BlobImpl src) throws SQLException {
 		src.checkAvailable();
+		if (src.pendingInput != null) {
+			return shareDirect(src);
+		}
 		src.prepareData();
 
 		final BlobImpl dest = new BlobImpl();
@@ -82,7 +128,20 @@ class BlobImpl implements Blob {
 
 	public static BlobImpl shareDirect(BlobImpl src) {
 		final BlobImpl dest = new BlobImpl();
+		if (src.pendingInput != null) {
+			dest.pendingLength = src.pendingLength;
+			dest.pendingLimit = src.pendingLimit;
+			dest.pendingInput = src.takePendingInput();
+			return dest;
+		}
+		if (src.viewArray != null) {
+			dest.viewArray = src.viewArray;
+			dest.viewOffset = src.viewOffset;
+			dest.viewLength = src.viewLength;
+			return dest;
+		}
 		dest.data = src.data;
+		dest.inputConsumed = src.inputConsumed;
 
 		src.shared = true;
 		dest.shared = true;
@@ -95,6 +154,70 @@ class BlobImpl implements Blob {
 		return data;
 	}
 
+	public boolean isView() {
+		return viewArray != null;
+	}
+
+	public void detach(int spillThreshold) throws SQLException {
+		if (viewArray == null) {
+			return;
+		}
+
+		if (spillThreshold > 0 && viewLength >= spillThreshold) {
+			try {
+				final File file = File.createTempFile("gsblob", null);
+				final SpillFileCleaner.Entry entry =
+						SpillFileCleaner.register(this, file, null);
+				boolean succeeded = false;
+				try {
+					final FileOutputStream out = new FileOutputStream(file);
+					try {
+						out.write(viewArray, viewOffset, viewLength);
+					}
+					finally {
+						out.close();
+					}
+					succeeded = true;
+				}
+				finally {
+					if (!succeeded) {
+						entry.clean();
+					}
+				}
+				spillFile = file;
+				spillEntry = entry;
+				spillLength = viewLength;
+			}
+			catch (IOException e) {
+				throw new SQLException(e);
+			}
+		}
+		else {
+			data = Arrays.copyOfRange(
+					viewArray, viewOffset, viewOffset + viewLength);
+		}
+		viewArray = null;
+	}
+
+	public boolean isInputPending() {
+		return pendingInput != null;
+	}
+
+	public long getPendingLength() {
+		return pendingLength;
+	}
+
+	public long getPendingLimit() {
+		return pendingLimit;
+	}
+
+	public InputStream takePendingInput() {
+		final InputStream input = pendingInput;
+		pendingInput = null;
+		inputConsumed = true;
+		return input;
+	}
+
 	public void setDataDirect(byte[] data) {
 		this.data = data;
 		streamOutput = null;
@@ -120,6 +243,20 @@ class BlobImpl implements Blob {
 	}
 
 	private void prepareData() throws SQLException {
+		if (pendingInput != null) {
+			data = readPendingInput();
+		}
+		else if (isDeferred()) {
+			final byte[] bytes = new byte[getDeferredLength()];
+			readDeferred(0, bytes, 0, bytes.length);
+			releaseDeferred();
+			data = bytes;
+		}
+		else if (inputConsumed && data == null) {
+			throw new SQLException(
+					"Blob input stream has already been consumed");
+		}
+
 		if (streamOutput != null) {
 			final byte[] outBytes = streamOutput.toByteArray();
 			setBytesInternal(
@@ -133,9 +270,111 @@ class BlobImpl implements Blob {
 		}
 	}
 
+	private byte[] readPendingInput() throws SQLException {
+		final long length = pendingLength;
+		final long limit = pendingLimit;
+		final InputStream input = takePendingInput();
+		try {
+			if (length >= 0) {
+				final byte[] bytes = new byte[(int) length];
+				int pos = 0;
+				while (pos < bytes.length) {
+					final int count =
+							input.read(bytes, pos, bytes.length - pos);
+					if (count < 0) {
+						throw new SQLException(
+								"Blob input stream ended before the " +
+								"specified length (length=" + length +
+								", read=" + pos + ")");
+					}
+					pos += count;
+				}
+				return bytes;
+			}
+
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[INPUT_CHUNK_SIZE];
+			int count;
+			while ((count = input.read(buffer)) >= 0) {
+				if (output.size() + (long) count > limit) {
+					throw new SQLException(
+							"Blob input stream exceeded the size limit " +
+							"(limit=" + limit + ")");
+				}
+				output.write(buffer, 0, count);
+			}
+			return output.toByteArray();
+		}
+		catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	private boolean isDeferred() {
+		return viewArray != null || spillFile != null;
+	}
+
+	private int getDeferredLength() {
+		return (viewArray != null ? viewLength : spillLength);
+	}
+
+	private void readDeferred(long pos, byte[] bytes, int offset, int len)
+			throws SQLException {
+		if (viewArray != null) {
+			System.arraycopy(
+					viewArray, viewOffset + (int) pos, bytes, offset, len);
+			return;
+		}
+
+		try {
+			final RandomAccessFile file = new RandomAccessFile(spillFile, "r");
+			try {
+				file.seek(pos);
+				file.readFully(bytes, offset, len);
+			}
+			finally {
+				file.close();
+			}
+		}
+		catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	private void releaseDeferred() {
+		viewArray = null;
+		if (spillEntry != null) {
+			spillEntry.clean();
+			spillEntry = null;
+		}
+		spillFile = null;
+	}
+
+	private int read(long pos, byte[] bytes, int offset, int len)
+			throws SQLException {
+		checkAvailable();
+		final long total = (isDeferred() ?
+				getDeferredLength() : length());
+		final int count = (int) Math.min(len, total - pos);
+		if (count <= 0) {
+			return -1;
+		}
+
+		if (isDeferred()) {
+			readDeferred(pos, bytes, offset, count);
+		}
+		else {
+			System.arraycopy(data, (int) pos, bytes, offset, count);
+		}
+		return count;
+	}
+
 	@Override
 	public long length() throws SQLException {
 		checkAvailable();
+		if (isDeferred()) {
+			return getDeferredLength();
+		}
 		prepareData();
 
 		if (data != null) {
@@ -151,6 +390,15 @@ class BlobImpl implements Blob {
 	@Override
 	public byte[] getBytes(long pos, int length) throws SQLException {
 		checkAvailable();
+		if (isDeferred()) {
+			if (pos <= 0 || length < 0 ||
+					pos - 1 + length > getDeferredLength()) {
+				throw new SQLException();
+			}
+			final byte[] bytes = new byte[length];
+			readDeferred(pos - 1, bytes, 0, length);
+			return bytes;
+		}
 		prepareData();
 
 		if (pos <= 0 || pos + length >= Integer.MAX_VALUE ||
@@ -164,6 +412,9 @@ class BlobImpl implements Blob {
 	@Override
 	public InputStream getBinaryStream() throws SQLException {
 		checkAvailable();
+		if (isDeferred()) {
+			return new DeferredInputStream(0, getDeferredLength());
+		}
 		prepareData();
 		return new ByteArrayInputStream(data);
 	}
@@ -247,6 +498,8 @@ class BlobImpl implements Blob {
 
 	@Override
 	public void free() {
+		pendingInput = null;
+		releaseDeferred();
 		data = null;
 		streamOutput = null;
 		streamOutputPos = 0;
@@ -257,6 +510,13 @@ class BlobImpl implements Blob {
 	public InputStream getBinaryStream(long pos, long length)
 			throws SQLException {
 		checkAvailable();
+		if (isDeferred()) {
+			if (pos <= 0 || length <= 0 ||
+					pos - 1 + length > getDeferredLength()) {
+				throw new SQLException();
+			}
+			return new DeferredInputStream(pos - 1, pos - 1 + length);
+		}
 		final int dataLen = (data == null ? 0 : data.length);
 		if (pos <= 0 || length <= 0 || pos + length > dataLen) {
 			throw new SQLException();
@@ -265,4 +525,58 @@ class BlobImpl implements Blob {
 		return new ByteArrayInputStream(data, (int) pos - 1, (int) length);
 	}
 
+	private class DeferredInputStream extends InputStream {
+
+		private long pos;
+
+		private final long end;
+
+		DeferredInputStream(long pos, long end) {
+			this.pos = pos;
+			this.end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] bytes = new byte[1];
+			if (read(bytes, 0, 1) < 0) {
+				return -1;
+			}
+			return bytes[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			final int count;
+			try {
+				count = BlobImpl.this.read(
+						pos, b, off, (int) Math.min(len, end - pos));
+			}
+			catch (SQLException e) {
+				throw new IOException(e);
+			}
+			if (count > 0) {
+				pos += count;
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			final long count = Math.max(Math.min(n, end - pos), 0);
+			pos += count;
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(end - pos, Integer.MAX_VALUE);
+		}
+
+	}
+
 }
@@ -0,0 +1,293 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.toshiba.mwcloud.gs.sql.internal.LoggingUtils.BaseGridStoreLogger;
+
+class BufferPool {
+
+	private static final BaseGridStoreLogger LOGGER =
+			LoggingUtils.getLogger("BufferPool");
+
+	private static final int MIN_CLASS_BITS = 6;
+
+	private static final int MAX_CLASS_BITS = 24;
+
+	private static final int DEFAULT_MAX_BUFFERS_PER_CLASS = 32;
+
+	private static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+	private static final long DEFAULT_TRIM_INTERVAL_MILLIS = 60 * 1000;
+
+	private final SizeClass[] classes =
+			new SizeClass[MAX_CLASS_BITS - MIN_CLASS_BITS + 1];
+
+	private int maxBuffersPerClass = DEFAULT_MAX_BUFFERS_PER_CLASS;
+
+	private long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+
+	private long trimIntervalNanos = DEFAULT_TRIM_INTERVAL_MILLIS * 1000 * 1000;
+
+	private long lastTrimNanos = System.nanoTime();
+
+	private long pooledBytes;
+
+	private long allocationCount;
+
+	private long reuseCount;
+
+	private long releaseCount;
+
+	private long discardCount;
+
+	private long leakCount;
+
+	private boolean leakDetectionEnabled = LOGGER.isDebugEnabled();
+
+	private final ReferenceQueue<BasicBuffer> leakQueue =
+			new ReferenceQueue<BasicBuffer>();
+
+	private final Map<BasicBuffer, LeakTracker> trackerMap =
+			new WeakHashMap<BasicBuffer, LeakTracker>();
+
+	private final Set<LeakTracker> trackerSet = new HashSet<LeakTracker>();
+
+	BufferPool() {
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = new SizeClass(1 << (MIN_CLASS_BITS + i));
+		}
+	}
+
+	synchronized BasicBuffer take(int minCapacity) {
+		pollLeaks();
+
+		final int index = getClassIndex(minCapacity, true);
+		BasicBuffer buf = null;
+		if (index < classes.length) {
+			final SizeClass sizeClass = classes[index];
+			buf = sizeClass.idle.pollFirst();
+			sizeClass.minIdle = Math.min(
+					sizeClass.minIdle, sizeClass.idle.size());
+		}
+
+		if (buf == null) {
+			final int capacity = (index < classes.length ?
+					classes[index].capacity : minCapacity);
+			buf = new BasicBuffer(capacity);
+			allocationCount++;
+		}
+		else {
+			pooledBytes -= buf.base().capacity();
+			buf.base().clear();
+			reuseCount++;
+		}
+
+		if (leakDetectionEnabled) {
+			final LeakTracker tracker = new LeakTracker(buf, leakQueue);
+			trackerMap.put(buf, tracker);
+			trackerSet.add(tracker);
+		}
+		return buf;
+	}
+
+	synchronized void release(BasicBuffer buf) {
+		if (buf == null) {
+			return;
+		}
+
+		if (leakDetectionEnabled) {
+			final LeakTracker tracker = trackerMap.remove(buf);
+			if (tracker != null) {
+				tracker.clear();
+				trackerSet.remove(tracker);
+			}
+			for (SizeClass sizeClass : classes) {
+				if (sizeClass.idle.contains(buf)) {
+					LOGGER.warn("bufferPool.doubleRelease",
+							buf.base().capacity());
+					return;
+				}
+			}
+		}
+
+		releaseCount++;
+		final int capacity = buf.base().capacity();
+		final int index = getClassIndex(capacity, false);
+		if (index < 0 || index >= classes.length) {
+			discardCount++;
+			return;
+		}
+
+		final SizeClass sizeClass = classes[index];
+		if (sizeClass.idle.size() >= maxBuffersPerClass ||
+				pooledBytes + capacity > maxPooledBytes) {
+			discardCount++;
+		}
+		else {
+			sizeClass.idle.addFirst(buf);
+			pooledBytes += capacity;
+		}
+
+		final long now = System.nanoTime();
+		if (now - lastTrimNanos >= trimIntervalNanos) {
+			trimDirect();
+			lastTrimNanos = now;
+		}
+	}
+
+	synchronized void trim() {
+		trimDirect();
+		lastTrimNanos = System.nanoTime();
+	}
+
+	synchronized void clear() {
+		for (SizeClass sizeClass : classes) {
+			discardCount += sizeClass.idle.size();
+			sizeClass.idle.clear();
+			sizeClass.minIdle = 0;
+		}
+		pooledBytes = 0;
+	}
+
+	synchronized void setMaxBuffersPerClass(int maxBuffersPerClass) {
+		this.maxBuffersPerClass = maxBuffersPerClass;
+	}
+
+	synchronized void setMaxPooledBytes(long maxPooledBytes) {
+		this.maxPooledBytes = maxPooledBytes;
+	}
+
+	synchronized void setTrimIntervalMillis(long trimIntervalMillis) {
+		this.trimIntervalNanos = trimIntervalMillis * 1000 * 1000;
+	}
+
+	synchronized void setLeakDetectionEnabled(boolean leakDetectionEnabled) {
+		this.leakDetectionEnabled = leakDetectionEnabled;
+		if (!leakDetectionEnabled) {
+			trackerMap.clear();
+			trackerSet.clear();
+		}
+	}
+
+	synchronized long getAllocationCount() {
+		return allocationCount;
+	}
+
+	synchronized long getReuseCount() {
+		return reuseCount;
+	}
+
+	synchronized long getReleaseCount() {
+		return releaseCount;
+	}
+
+	synchronized long getDiscardCount() {
+		return discardCount;
+	}
+
+	synchronized long getLeakCount() {
+		pollLeaks();
+		return leakCount;
+	}
+
+	synchronized long getPooledBytes() {
+		return pooledBytes;
+	}
+
+	private void trimDirect() {
+		for (SizeClass sizeClass : classes) {
+			for (int i = sizeClass.minIdle; i > 0; i--) {
+				final BasicBuffer buf = sizeClass.idle.pollLast();
+				if (buf == null) {
+					break;
+				}
+				pooledBytes -= buf.base().capacity();
+				discardCount++;
+			}
+			sizeClass.minIdle = sizeClass.idle.size();
+		}
+	}
+
+	private void pollLeaks() {
+		for (Reference<? extends BasicBuffer> ref;
+				(ref = leakQueue.poll()) != null;) {
+			final LeakTracker tracker = (LeakTracker) ref;
+			if (!trackerSet.remove(tracker)) {
+				continue;
+			}
+
+			leakCount++;
+			LOGGER.warn("bufferPool.leakDetected",
+					tracker.capacity, tracker.origin);
+		}
+	}
+
+	private static int getClassIndex(int capacity, boolean roundingUp) {
+		final int bits;
+		if (capacity <= 1 << MIN_CLASS_BITS) {
+			if (!roundingUp && capacity < 1 << MIN_CLASS_BITS) {
+				return -1;
+			}
+			bits = MIN_CLASS_BITS;
+		}
+		else if (roundingUp) {
+			bits = Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1);
+		}
+		else {
+			bits = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(capacity);
+		}
+		return bits - MIN_CLASS_BITS;
+	}
+
+	private static class SizeClass {
+
+		final int capacity;
+
+		final Deque<BasicBuffer> idle = new ArrayDeque<BasicBuffer>();
+
+		int minIdle;
+
+		SizeClass(int capacity) {
+			this.capacity = capacity;
+		}
+
+	}
+
+	private static class LeakTracker extends WeakReference<BasicBuffer> {
+
+		final int capacity;
+
+		final Throwable origin;
+
+		LeakTracker(BasicBuffer buf, ReferenceQueue<BasicBuffer> queue) {
+			super(buf, queue);
+			capacity = buf.base().capacity();
+			origin = new Throwable("Buffer taken here");
+		}
+
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class CallTracer {
+
+	static final String LOGGER_NAME = "com.toshiba.mwcloud.gs.sql.Trace";
+
+	private static final Logger LOGGER = Logger.getLogger(LOGGER_NAME);
+
+	private final String connectionId;
+
+	private volatile int samplingInterval;
+
+	private volatile boolean jsonFormat;
+
+	CallTracer(String connectionId) {
+		this.connectionId = connectionId;
+	}
+
+	void setSamplingInterval(int samplingInterval) {
+		this.samplingInterval = Math.max(samplingInterval, 0);
+	}
+
+	void setJsonFormat(boolean jsonFormat) {
+		this.jsonFormat = jsonFormat;
+	}
+
+	boolean isSampled() {
+		final int interval = samplingInterval;
+		if (interval <= 0) {
+			return false;
+		}
+		if (interval > 1 &&
+				ThreadLocalRandom.current().nextInt(interval) != 0) {
+			return false;
+		}
+		return LOGGER.isLoggable(Level.FINE);
+	}
+
+	void trace(
+			String method, long durationNanos, long rows, long sentBytes,
+			long receivedBytes, int retries, Throwable error) {
+		final StringBuilder builder = new StringBuilder(192);
+		final boolean json = jsonFormat;
+		if (json) {
+			builder.append('{');
+		}
+		appendString(builder, json, "method", method, true);
+		appendNumber(builder, json, "durationNanos", durationNanos);
+		appendNumber(builder, json, "rows", rows);
+		appendNumber(builder, json, "sentBytes", sentBytes);
+		appendNumber(builder, json, "receivedBytes", receivedBytes);
+		appendNumber(builder, json, "retries", retries);
+		appendString(builder, json, "connection", connectionId, false);
+		if (error != null) {
+			appendString(builder, json, "error",
+					error.getClass().getSimpleName(), false);
+		}
+		if (json) {
+			builder.append('}');
+		}
+		LOGGER.log(Level.FINE, builder.toString());
+	}
+
+	static String toMethodName(Enum<?> operation) {
+		return (operation == null ?
+				"connect" : operation.name().toLowerCase(Locale.ROOT));
+	}
+
+	private static void appendString(
+			StringBuilder builder, boolean json, String key, String value,
+			boolean first) {
+		appendKey(builder, json, key, first);
+		if (json) {
+			builder.append('"').append(value).append('"');
+		}
+		else {
+			builder.append(value);
+		}
+	}
+
+	private static void appendNumber(
+			StringBuilder builder, boolean json, String key, long value) {
+		appendKey(builder, json, key, false);
+		builder.append(value);
+	}
+
+	private static void appendKey(
+			StringBuilder builder, boolean json, String key, boolean first) {
+		if (!first) {
+			builder.append(json ? "," : " ");
+		}
+		if (json) {
+			builder.append('"').append(key).append("\":");
+		}
+		else {
+			builder.append(key).append('=');
+		}
+	}
+
+}
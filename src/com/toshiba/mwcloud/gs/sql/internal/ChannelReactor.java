@@ -0,0 +1,242 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.toshiba.mwcloud.gs.sql.internal.LoggingUtils.BaseGridStoreLogger;
+
+class ChannelReactor implements Runnable {
+
+	private static final BaseGridStoreLogger LOGGER =
+			LoggingUtils.getLogger("ChannelReactor");
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private static final long MAX_SELECT_MILLIS = 1000;
+
+	private final Deque<Registration> pendingQueue =
+			new ArrayDeque<Registration>();
+
+	private final Set<Registration> activeSet =
+			new LinkedHashSet<Registration>();
+
+	private Selector selector;
+
+	private Thread thread;
+
+	void register(SocketChannel channel, Handler handler) throws IOException {
+		final Registration registration = new Registration(channel, handler);
+		synchronized (this) {
+			if (selector == null) {
+				selector = Selector.open();
+			}
+			pendingQueue.add(registration);
+
+			if (thread == null) {
+				thread = new Thread(
+						this, "gridstore-jdbc-reactor-" +
+						THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		final Selector selector;
+		synchronized (this) {
+			selector = this.selector;
+		}
+
+		for (;;) {
+			try {
+				acceptPending(selector);
+				selector.select(getSelectTimeoutMillis());
+
+				final Iterator<SelectionKey> it =
+						selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					final SelectionKey key = it.next();
+					it.remove();
+
+					final Registration registration =
+							(Registration) key.attachment();
+					if (registration != null) {
+						handle(registration, key);
+					}
+				}
+				checkTimeout();
+			}
+			catch (Throwable t) {
+				LOGGER.warn("reactor.unexpectedError", t);
+			}
+		}
+	}
+
+	private void acceptPending(Selector selector) {
+		for (;;) {
+			final Registration registration;
+			synchronized (this) {
+				registration = pendingQueue.poll();
+			}
+			if (registration == null) {
+				break;
+			}
+
+			final SelectionKey key;
+			try {
+				final SelectionKey lastKey =
+						registration.channel.keyFor(selector);
+				if (lastKey != null && lastKey.isValid()) {
+					key = lastKey;
+					key.interestOps(SelectionKey.OP_READ);
+				}
+				else {
+					if (lastKey != null) {
+						selector.selectNow();
+					}
+					key = registration.channel.register(
+							selector, SelectionKey.OP_READ);
+				}
+			}
+			catch (IOException e) {
+				fail(registration, null, e);
+				continue;
+			}
+			catch (RuntimeException e) {
+				fail(registration, null, e);
+				continue;
+			}
+
+			key.attach(registration);
+			activeSet.add(registration);
+			handle(registration, key);
+		}
+	}
+
+	private void handle(Registration registration, SelectionKey key) {
+		final boolean finished;
+		try {
+			finished = registration.handler.handleReadable();
+		}
+		catch (Throwable t) {
+			fail(registration, key, t);
+			return;
+		}
+
+		if (finished) {
+			detach(registration, key);
+		}
+	}
+
+	private void checkTimeout() {
+		if (activeSet.isEmpty()) {
+			return;
+		}
+
+		final long now = System.nanoTime();
+		for (Registration registration :
+				new LinkedHashSet<Registration>(activeSet)) {
+			if (!registration.channel.isOpen()) {
+				fail(registration, null, new ClosedChannelException());
+				continue;
+			}
+
+			final long deadline = registration.handler.getDeadlineNanos();
+			if (deadline != 0 && now - deadline >= 0) {
+				fail(registration,
+						registration.channel.keyFor(selector),
+						new SocketTimeoutException(
+								"Timed out on waiting response"));
+			}
+		}
+	}
+
+	private long getSelectTimeoutMillis() {
+		long timeoutMillis = MAX_SELECT_MILLIS;
+		final long now = System.nanoTime();
+		for (Registration registration : activeSet) {
+			final long deadline = registration.handler.getDeadlineNanos();
+			if (deadline != 0) {
+				timeoutMillis = Math.min(timeoutMillis,
+						Math.max((deadline - now) / (1000 * 1000), 1));
+			}
+		}
+		return timeoutMillis;
+	}
+
+	private void fail(
+			Registration registration, SelectionKey key, Throwable cause) {
+		detach(registration, key);
+		try {
+			registration.handler.handleFailure(cause);
+		}
+		catch (Throwable t) {
+			LOGGER.warn("reactor.unexpectedError", t);
+		}
+	}
+
+	private void detach(Registration registration, SelectionKey key) {
+		activeSet.remove(registration);
+		if (key != null && key.attachment() == registration) {
+			key.attach(null);
+			try {
+				key.interestOps(0);
+			}
+			catch (CancelledKeyException e) {
+			}
+		}
+	}
+
+	interface Handler {
+
+		boolean handleReadable() throws Exception;
+
+		void handleFailure(Throwable cause);
+
+		long getDeadlineNanos();
+
+	}
+
+	private static class Registration {
+
+		final SocketChannel channel;
+
+		final Handler handler;
+
+		Registration(SocketChannel channel, Handler handler) {
+			this.channel = channel;
+			this.handler = handler;
+		}
+
+	}
+
+}
@@ -0,0 +1,318 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetricsRegistry;
+import com.toshiba.mwcloud.gs.sql.internal.LoggingUtils.BaseGridStoreLogger;
+
+class DriverMetrics implements GridStoreMetrics {
+
+	static final String DRIVER_SCOPE = "driver";
+
+	static final String CONNECTION_SCOPE = "connection";
+
+	private static final BaseGridStoreLogger LOGGER =
+			LoggingUtils.getLogger("Metrics");
+
+	private static final AtomicLong DRIVER_ID_SEQUENCE = new AtomicLong();
+
+	private static final Operation[] OPERATIONS = Operation.values();
+
+	private final DriverMetrics parent;
+
+	private final String id;
+
+	private final LongAdder[] counters =
+			new LongAdder[Counter.values().length];
+
+	private final Histogram[] histograms = new Histogram[OPERATIONS.length];
+
+	private final Object registryLock = new Object();
+
+	private List<GridStoreMetricsRegistry> registries;
+
+	private boolean registered;
+
+	DriverMetrics() {
+		this(null, Long.toString(DRIVER_ID_SEQUENCE.incrementAndGet()));
+	}
+
+	private DriverMetrics(DriverMetrics parent, String id) {
+		this.parent = parent;
+		this.id = id;
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new Histogram();
+		}
+	}
+
+	DriverMetrics openConnectionMetrics(String connectionId) {
+		final DriverMetrics metrics = new DriverMetrics(this, connectionId);
+		for (GridStoreMetricsRegistry registry : prepareRegistries()) {
+			register(registry, CONNECTION_SCOPE, connectionId, metrics);
+		}
+		return metrics;
+	}
+
+	void closeConnectionMetrics(DriverMetrics metrics) {
+		if (metrics == null || metrics.parent != this) {
+			return;
+		}
+		for (GridStoreMetricsRegistry registry : prepareRegistries()) {
+			unregister(registry, CONNECTION_SCOPE, metrics.id);
+		}
+	}
+
+	void add(Counter counter, long value) {
+		final int index = counter.ordinal();
+		counters[index].add(value);
+		if (parent != null) {
+			parent.counters[index].add(value);
+		}
+	}
+
+	void increment(Counter counter) {
+		add(counter, 1);
+	}
+
+	void recordLatency(Operation operation, long nanos) {
+		final int index = operation.ordinal();
+		histograms[index].record(nanos);
+		if (parent != null) {
+			parent.histograms[index].record(nanos);
+		}
+	}
+
+	String getId() {
+		return id;
+	}
+
+	@Override
+	public long getRoundTripCount() {
+		return counters[Counter.ROUND_TRIP.ordinal()].sum();
+	}
+
+	@Override
+	public long getSentBytes() {
+		return counters[Counter.SENT_BYTES.ordinal()].sum();
+	}
+
+	@Override
+	public long getReceivedBytes() {
+		return counters[Counter.RECEIVED_BYTES.ordinal()].sum();
+	}
+
+	@Override
+	public long getFetchBlockCount() {
+		return counters[Counter.FETCH_BLOCK.ordinal()].sum();
+	}
+
+	@Override
+	public long getHeartbeatCount() {
+		return counters[Counter.HEARTBEAT.ordinal()].sum();
+	}
+
+	@Override
+	public long getFailoverRetryCount() {
+		return counters[Counter.FAILOVER_RETRY.ordinal()].sum();
+	}
+
+	@Override
+	public long getReconnectCount() {
+		return counters[Counter.RECONNECT.ordinal()].sum();
+	}
+
+	@Override
+	public long getBufferGrowthCount() {
+		return BasicBuffer.getGrowthCount();
+	}
+
+	@Override
+	public long getLatencyCount(Operation operation) {
+		return histograms[operation.ordinal()].getCount();
+	}
+
+	@Override
+	public long getLatencyTotalNanos(Operation operation) {
+		return histograms[operation.ordinal()].getTotalNanos();
+	}
+
+	@Override
+	public long getLatencyMaxNanos(Operation operation) {
+		return histograms[operation.ordinal()].getMaxNanos();
+	}
+
+	@Override
+	public long getLatencyPercentileNanos(
+			Operation operation, double percentile) {
+		return histograms[operation.ordinal()].getPercentileNanos(
+				percentile);
+	}
+
+	private List<GridStoreMetricsRegistry> prepareRegistries() {
+		synchronized (registryLock) {
+			if (registries == null) {
+				registries = loadRegistries();
+			}
+			if (!registered) {
+				registered = true;
+				for (GridStoreMetricsRegistry registry : registries) {
+					register(registry, DRIVER_SCOPE, id, this);
+				}
+			}
+			return registries;
+		}
+	}
+
+	private static List<GridStoreMetricsRegistry> loadRegistries() {
+		final List<GridStoreMetricsRegistry> list =
+				new ArrayList<GridStoreMetricsRegistry>();
+		try {
+			final Iterator<GridStoreMetricsRegistry> it = ServiceLoader.load(
+					GridStoreMetricsRegistry.class,
+					DriverMetrics.class.getClassLoader()).iterator();
+			while (it.hasNext()) {
+				list.add(it.next());
+			}
+		}
+		catch (ServiceConfigurationError e) {
+			LOGGER.warn("metrics.registryLoadFailed", e);
+		}
+
+		if (list.isEmpty()) {
+			list.add(new JmxMetricsRegistry());
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	private static void register(
+			GridStoreMetricsRegistry registry, String scope, String id,
+			GridStoreMetrics metrics) {
+		try {
+			registry.register(scope, id, metrics);
+		}
+		catch (RuntimeException e) {
+			LOGGER.warn("metrics.registrationFailed", scope, id, e);
+		}
+	}
+
+	private static void unregister(
+			GridStoreMetricsRegistry registry, String scope, String id) {
+		try {
+			registry.unregister(scope, id);
+		}
+		catch (RuntimeException e) {
+			LOGGER.warn("metrics.registrationFailed", scope, id, e);
+		}
+	}
+
+	enum Counter {
+		ROUND_TRIP,
+		SENT_BYTES,
+		RECEIVED_BYTES,
+		FETCH_BLOCK,
+		HEARTBEAT,
+		FAILOVER_RETRY,
+		RECONNECT
+	}
+
+	static class Histogram {
+
+		private static final int BUCKET_COUNT = Long.SIZE;
+
+		private final AtomicLongArray buckets =
+				new AtomicLongArray(BUCKET_COUNT);
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void record(long nanos) {
+			final long value = Math.max(nanos, 0);
+			buckets.incrementAndGet(getBucketIndex(value));
+			count.increment();
+			totalNanos.add(value);
+
+			for (;;) {
+				final long max = maxNanos.get();
+				if (value <= max || maxNanos.compareAndSet(max, value)) {
+					break;
+				}
+			}
+		}
+
+		long getCount() {
+			return count.sum();
+		}
+
+		long getTotalNanos() {
+			return totalNanos.sum();
+		}
+
+		long getMaxNanos() {
+			return maxNanos.get();
+		}
+
+		long getPercentileNanos(double percentile) {
+			final long[] snapshot = new long[BUCKET_COUNT];
+			long total = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				snapshot[i] = buckets.get(i);
+				total += snapshot[i];
+			}
+			if (total == 0) {
+				return 0;
+			}
+
+			final double ratio = Math.min(Math.max(percentile, 0), 100) / 100;
+			final long rank = Math.max((long) Math.ceil(total * ratio), 1);
+			long accumulated = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				accumulated += snapshot[i];
+				if (accumulated >= rank) {
+					return Math.min(getBucketUpperBound(i), getMaxNanos());
+				}
+			}
+			return getMaxNanos();
+		}
+
+		private static int getBucketIndex(long value) {
+			return BUCKET_COUNT - 1 - Long.numberOfLeadingZeros(value | 1);
+		}
+
+		private static long getBucketUpperBound(int index) {
+			return (index >= BUCKET_COUNT - 2 ?
+					Long.MAX_VALUE : (1L << (index + 1)) - 1);
+		}
+
+	}
+
+}
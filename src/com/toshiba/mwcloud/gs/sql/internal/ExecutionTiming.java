@@ -0,0 +1,198 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import com.toshiba.mwcloud.gs.sql.GridStoreExecutionListener;
+import com.toshiba.mwcloud.gs.sql.GridStoreExecutionTiming;
+import com.toshiba.mwcloud.gs.sql.internal.LoggingUtils.BaseGridStoreLogger;
+
+class ExecutionTiming implements GridStoreExecutionTiming {
+
+	private static final BaseGridStoreLogger LOGGER =
+			LoggingUtils.getLogger("Timing");
+
+	private static volatile List<GridStoreExecutionListener> listeners;
+
+	private final String operation;
+
+	private long encodeNanos;
+
+	private long sendNanos;
+
+	private long firstByteNanos;
+
+	private long bodyNanos;
+
+	private long decodeNanos;
+
+	private long heartbeatCount;
+
+	private long heartbeatNanos;
+
+	private long totalNanos;
+
+	ExecutionTiming(String operation) {
+		this.operation = operation;
+	}
+
+	ExecutionTiming(ExecutionTiming src) {
+		operation = src.operation;
+		merge(src);
+	}
+
+	void addEncode(long nanos) {
+		encodeNanos += nanos;
+	}
+
+	void addSend(long nanos) {
+		sendNanos += nanos;
+	}
+
+	void addFirstByte(long nanos) {
+		firstByteNanos += nanos;
+	}
+
+	void addBody(long nanos) {
+		bodyNanos += nanos;
+	}
+
+	void addDecode(long nanos) {
+		decodeNanos += nanos;
+	}
+
+	void addHeartbeat(long count, long nanos) {
+		heartbeatCount += count;
+		heartbeatNanos += nanos;
+	}
+
+	void addTotal(long nanos) {
+		totalNanos += nanos;
+	}
+
+	void merge(ExecutionTiming src) {
+		encodeNanos += src.encodeNanos;
+		sendNanos += src.sendNanos;
+		firstByteNanos += src.firstByteNanos;
+		bodyNanos += src.bodyNanos;
+		decodeNanos += src.decodeNanos;
+		heartbeatCount += src.heartbeatCount;
+		heartbeatNanos += src.heartbeatNanos;
+		totalNanos += src.totalNanos;
+	}
+
+	@Override
+	public String getOperation() {
+		return operation;
+	}
+
+	@Override
+	public long getEncodeNanos() {
+		return encodeNanos;
+	}
+
+	@Override
+	public long getSendNanos() {
+		return sendNanos;
+	}
+
+	@Override
+	public long getFirstByteNanos() {
+		return firstByteNanos;
+	}
+
+	@Override
+	public long getBodyNanos() {
+		return bodyNanos;
+	}
+
+	@Override
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	@Override
+	public long getHeartbeatCount() {
+		return heartbeatCount;
+	}
+
+	@Override
+	public long getHeartbeatNanos() {
+		return heartbeatNanos;
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "operation=" + operation +
+				" encodeNanos=" + encodeNanos +
+				" sendNanos=" + sendNanos +
+				" firstByteNanos=" + firstByteNanos +
+				" bodyNanos=" + bodyNanos +
+				" decodeNanos=" + decodeNanos +
+				" heartbeatCount=" + heartbeatCount +
+				" heartbeatNanos=" + heartbeatNanos +
+				" totalNanos=" + totalNanos;
+	}
+
+	static void notifyListeners(ExecutionTiming timing) {
+		for (GridStoreExecutionListener listener : getListeners()) {
+			try {
+				listener.onExecuted(timing);
+			}
+			catch (RuntimeException e) {
+				LOGGER.warn("timing.listenerFailed", listener, e);
+			}
+		}
+	}
+
+	private static List<GridStoreExecutionListener> getListeners() {
+		List<GridStoreExecutionListener> list = listeners;
+		if (list == null) {
+			list = loadListeners();
+			listeners = list;
+		}
+		return list;
+	}
+
+	private static List<GridStoreExecutionListener> loadListeners() {
+		final List<GridStoreExecutionListener> list =
+				new ArrayList<GridStoreExecutionListener>();
+		try {
+			final Iterator<GridStoreExecutionListener> it = ServiceLoader.load(
+					GridStoreExecutionListener.class,
+					ExecutionTiming.class.getClassLoader()).iterator();
+			while (it.hasNext()) {
+				list.add(it.next());
+			}
+		}
+		catch (ServiceConfigurationError e) {
+			LOGGER.warn("timing.listenerLoadFailed", e);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+}
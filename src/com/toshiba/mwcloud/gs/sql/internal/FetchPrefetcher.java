@@ -0,0 +1,285 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+class FetchPrefetcher implements Runnable {
+
+	private static final ExecutorService DEFAULT_EXECUTOR =
+			Executors.newCachedThreadPool(new WorkerThreadFactory());
+
+	private final SQLStatement statement;
+
+	private final long queryId;
+
+	private final int maxBlocks;
+
+	private final Executor executor;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition stateChanged = lock.newCondition();
+
+	private final Deque<SQLResultSet> blockQueue =
+			new ArrayDeque<SQLResultSet>();
+
+	private boolean followingExists = true;
+
+	private boolean running;
+
+	private Thread workerThread;
+
+	private boolean closed;
+
+	private boolean cancelled;
+
+	private Throwable lastError;
+
+	FetchPrefetcher(SQLStatement statement, long queryId, int maxBlocks) {
+		this(statement, queryId, maxBlocks, DEFAULT_EXECUTOR);
+	}
+
+	FetchPrefetcher(
+			SQLStatement statement, long queryId, int maxBlocks,
+			Executor executor) {
+		this.statement = statement;
+		this.queryId = queryId;
+		this.maxBlocks = Math.max(maxBlocks, 1);
+		this.executor = executor;
+	}
+
+	void start() {
+		lock.lock();
+		try {
+			scheduleIfNecessary();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void run() {
+		lock.lock();
+		try {
+			workerThread = Thread.currentThread();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		for (;;) {
+			lock.lock();
+			try {
+				if (closed || cancelled || !followingExists ||
+						blockQueue.size() >= maxBlocks) {
+					finishRunning();
+					return;
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+
+			SQLResultSet block = null;
+			Throwable error = null;
+			try {
+				block = statement.fetchFollowing(queryId);
+			}
+			catch (Throwable t) {
+				error = t;
+			}
+
+			lock.lock();
+			try {
+				if (error != null) {
+					lastError = error;
+					finishRunning();
+					return;
+				}
+
+				followingExists = block.isFollowingExists();
+				if (!closed) {
+					blockQueue.add(block);
+				}
+				else {
+					block.releaseOwnedBuffer();
+				}
+				stateChanged.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	SQLResultSet take() throws SQLException {
+		lock.lock();
+		try {
+			while (blockQueue.isEmpty() && running) {
+				stateChanged.awaitUninterruptibly();
+			}
+
+			final SQLResultSet block = blockQueue.poll();
+			if (block != null) {
+				scheduleIfNecessary();
+				return block;
+			}
+
+			final Throwable error = lastError;
+			if (error == null && cancelled && followingExists) {
+				return null;
+			}
+			if (error instanceof SQLException) {
+				throw (SQLException) error;
+			}
+			else if (error != null) {
+				throw SQLErrorUtils.error(
+						SQLErrorUtils.ILLEGAL_STATE,
+						"Failed to prefetch results (reason=" +
+						error.getMessage() + ")", error);
+			}
+
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.ILLEGAL_STATE,
+					"No more results to prefetch", null);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	void await() throws SQLException {
+		lock.lock();
+		try {
+			if (workerThread == Thread.currentThread()) {
+				return;
+			}
+
+			while (running) {
+				try {
+					stateChanged.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw SQLErrorUtils.error(
+							SQLErrorUtils.ILLEGAL_STATE,
+							"Interrupted while waiting for prefetch", e);
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	void awaitUninterruptibly() {
+		lock.lock();
+		try {
+			if (workerThread == Thread.currentThread()) {
+				return;
+			}
+
+			while (running) {
+				stateChanged.awaitUninterruptibly();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	void cancel() {
+		lock.lock();
+		try {
+			cancelled = true;
+			stateChanged.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	void close() {
+		lock.lock();
+		try {
+			closed = true;
+		}
+		finally {
+			lock.unlock();
+		}
+		awaitUninterruptibly();
+
+		lock.lock();
+		try {
+			for (SQLResultSet block : blockQueue) {
+				block.releaseOwnedBuffer();
+			}
+			blockQueue.clear();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void finishRunning() {
+		running = false;
+		workerThread = null;
+		stateChanged.signalAll();
+	}
+
+	private void scheduleIfNecessary() {
+		if (running || closed || cancelled || lastError != null ||
+				!followingExists || blockQueue.size() >= maxBlocks) {
+			return;
+		}
+
+		running = true;
+		try {
+			executor.execute(this);
+		}
+		catch (RuntimeException e) {
+			running = false;
+			lastError = e;
+		}
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(
+					r, "gridstore-jdbc-prefetch-" +
+					threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
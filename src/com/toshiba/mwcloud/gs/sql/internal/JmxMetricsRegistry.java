@@ -0,0 +1,253 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics.Operation;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetricsRegistry;
+
+class JmxMetricsRegistry implements GridStoreMetricsRegistry {
+
+	private static final String DOMAIN = "com.toshiba.mwcloud.gs.sql";
+
+	@Override
+	public void register(String scope, String id, GridStoreMetrics metrics) {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			final ObjectName name = toObjectName(scope, id);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(new MetricsBean(metrics), name);
+		}
+		catch (JMException e) {
+			throw new IllegalStateException(
+					"Failed to register metrics MBean (scope=" + scope +
+					", id=" + id + ", reason=" + e.getMessage() + ")", e);
+		}
+	}
+
+	@Override
+	public void unregister(String scope, String id) {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			final ObjectName name = toObjectName(scope, id);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		}
+		catch (JMException e) {
+			throw new IllegalStateException(
+					"Failed to unregister metrics MBean (scope=" + scope +
+					", id=" + id + ", reason=" + e.getMessage() + ")", e);
+		}
+	}
+
+	private static ObjectName toObjectName(String scope, String id)
+			throws JMException {
+		final String type = (DriverMetrics.DRIVER_SCOPE.equals(scope) ?
+				"Driver" : "Connection");
+		return new ObjectName(DOMAIN + ":type=" + type +
+				",id=" + ObjectName.quote(id));
+	}
+
+	private static class MetricsBean implements DynamicMBean {
+
+		private final GridStoreMetrics metrics;
+
+		private final Map<String, Getter> getterMap;
+
+		private final MBeanInfo info;
+
+		MetricsBean(GridStoreMetrics metrics) {
+			this.metrics = metrics;
+			getterMap = makeGetterMap();
+
+			final List<MBeanAttributeInfo> attributes =
+					new ArrayList<MBeanAttributeInfo>();
+			for (String name : getterMap.keySet()) {
+				attributes.add(new MBeanAttributeInfo(
+						name, long.class.getName(), name,
+						true, false, false));
+			}
+			info = new MBeanInfo(
+					getClass().getName(), "GridDB JDBC driver metrics",
+					attributes.toArray(new MBeanAttributeInfo[0]),
+					null, null, null);
+		}
+
+		@Override
+		public Object getAttribute(String attribute)
+				throws AttributeNotFoundException {
+			final Getter getter = getterMap.get(attribute);
+			if (getter == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return getter.get(metrics);
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute)
+				throws AttributeNotFoundException {
+			throw new AttributeNotFoundException(attribute.getName());
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			final AttributeList list = new AttributeList();
+			for (String name : attributes) {
+				final Getter getter = getterMap.get(name);
+				if (getter != null) {
+					list.add(new Attribute(name, getter.get(metrics)));
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(
+				String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException(actionName);
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			return info;
+		}
+
+	}
+
+	private static Map<String, Getter> makeGetterMap() {
+		final Map<String, Getter> map = new LinkedHashMap<String, Getter>();
+		map.put("RoundTripCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getRoundTripCount();
+			}
+		});
+		map.put("SentBytes", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getSentBytes();
+			}
+		});
+		map.put("ReceivedBytes", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getReceivedBytes();
+			}
+		});
+		map.put("FetchBlockCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getFetchBlockCount();
+			}
+		});
+		map.put("HeartbeatCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getHeartbeatCount();
+			}
+		});
+		map.put("FailoverRetryCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getFailoverRetryCount();
+			}
+		});
+		map.put("ReconnectCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getReconnectCount();
+			}
+		});
+		map.put("BufferGrowthCount", new Getter() {
+			@Override
+			long get(GridStoreMetrics metrics) {
+				return metrics.getBufferGrowthCount();
+			}
+		});
+
+		for (final Operation op : Operation.values()) {
+			final String prefix = toAttributePrefix(op);
+			map.put(prefix + "Count", new Getter() {
+				@Override
+				long get(GridStoreMetrics metrics) {
+					return metrics.getLatencyCount(op);
+				}
+			});
+			map.put(prefix + "TotalNanos", new Getter() {
+				@Override
+				long get(GridStoreMetrics metrics) {
+					return metrics.getLatencyTotalNanos(op);
+				}
+			});
+			map.put(prefix + "MaxNanos", new Getter() {
+				@Override
+				long get(GridStoreMetrics metrics) {
+					return metrics.getLatencyMaxNanos(op);
+				}
+			});
+			map.put(prefix + "P50Nanos", new Getter() {
+				@Override
+				long get(GridStoreMetrics metrics) {
+					return metrics.getLatencyPercentileNanos(op, 50);
+				}
+			});
+			map.put(prefix + "P99Nanos", new Getter() {
+				@Override
+				long get(GridStoreMetrics metrics) {
+					return metrics.getLatencyPercentileNanos(op, 99);
+				}
+			});
+		}
+		return map;
+	}
+
+	private static String toAttributePrefix(Operation op) {
+		final String name = op.name();
+		return name.charAt(0) + name.substring(1).toLowerCase(Locale.ROOT);
+	}
+
+	private static abstract class Getter {
+
+		abstract long get(GridStoreMetrics metrics);
+
+	}
+
+}
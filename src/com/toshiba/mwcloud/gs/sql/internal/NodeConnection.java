@@ -26,6 +26,10 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -44,6 +48,8 @@ import java.util.SimpleTimeZone;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
@@ -67,6 +73,8 @@ class NodeConnection implements Closeable {
 
 	private static final int PUBLIC_DATABASE_ID = 0;
 
+	private static final int CHANNEL_READ_AHEAD_SIZE = 32 * 1024;
+
 	private static final StatementResult[] STATEMENT_RESULT_CONSTANTS =
 			StatementResult.values();
 
@@ -103,6 +111,20 @@ class NodeConnection implements Closeable {
 
 	private OutputStream output;
 
+	private SocketChannel channel;
+
+	private Selector selector;
+
+	private SelectionKey selectionKey;
+
+	private ByteBuffer readAhead;
+
+	private final ByteBuffer[] scatterBuffers = new ByteBuffer[2];
+
+	private int partialLength;
+
+	private int partialTotalLength;
+
 	private Integer alternativeVersion;
 
 	private final boolean ipv6Enabled;
@@ -131,6 +153,22 @@ class NodeConnection implements Closeable {
 
 	private Hook hook;
 
+	private final boolean compressionRequested;
+
+	private boolean compressionEnabled;
+
+	private boolean compressionFieldRejected;
+
+	private Inflater inflater;
+
+	private byte[] compressedResp;
+
+	private CompressionStats compressionStats;
+
+	private DriverMetrics metrics;
+
+	private ExecutionTiming executionTiming;
+
 	public NodeConnection(
 			InetSocketAddress address, Config config) throws GSException {
 		try {
@@ -143,10 +181,16 @@ class NodeConnection implements Closeable {
 					PropertyUtils.timeoutPropertyToIntMillis(Math.max(
 							config.connectTimeoutMillis, 0)));
 			setConfig(config);
-			input = socket.getInputStream();
-			output = socket.getOutputStream();
+			if (socket.getChannel() != null) {
+				openChannel();
+			}
+			else {
+				input = socket.getInputStream();
+				output = socket.getOutputStream();
+			}
 		}
 		catch (IOException e) {
+			closeSocketSilently();
 			throw new GSConnectionException(
 					GSErrorCode.BAD_CONNECTION,
 					"Failed to connect (address=" + address +
@@ -156,12 +200,29 @@ class NodeConnection implements Closeable {
 		ipv6Enabled = (address.getAddress() instanceof Inet6Address);
 		acceptableSocketTypes = config.acceptableSocketTypes;
 		socketFactories = config.socketFactories;
+		compressionRequested = config.compressionRequested;
 	}
 
 	public void setHook(Hook hook) throws GSException {
 		this.hook = hook;
 	}
 
+	public void setCompressionStats(CompressionStats compressionStats) {
+		this.compressionStats = compressionStats;
+	}
+
+	public void setMetrics(DriverMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public void setExecutionTiming(ExecutionTiming executionTiming) {
+		this.executionTiming = executionTiming;
+	}
+
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+
 	public void setConfig(Config config) throws GSException {
 		statementTimeoutMillis = (config.statementTimeoutEnabled ?
 				config.statementTimeoutMillis : Long.MAX_VALUE);
@@ -387,6 +448,141 @@ class NodeConnection implements Closeable {
 			int statementTypeNumber, int partitionId, long statementId,
 			BasicBuffer req, BasicBuffer resp, Heartbeat heartbeat)
 			throws GSException {
+		final long reqStatementId = sendStatementDirect(
+				statementTypeNumber, partitionId, statementId, req);
+
+		if (resp == null) {
+			return;
+		}
+
+		final ExecutionTiming timing =
+				(heartbeat == null ? executionTiming : null);
+		long lastNanos = (timing == null ? 0 : System.nanoTime());
+
+		final boolean firstStatement =
+				(statementTypeNumber == firstStatementTypeNumber);
+		final int eeHeadLength = getEEHeadLength(ipv6Enabled);
+
+		
+		resp.clear();
+		resp.prepare(eeHeadLength);
+
+		resp.base().limit(eeHeadLength);
+		int readLength;
+		try {
+			if (hook != null && heartbeat == null) {
+				hook.startHeadReceiving(this, socket, reqStatementId);
+			}
+			try {
+				readLength = readFully(
+						resp, 0, eeHeadLength, resp.base().capacity());
+			}
+			finally {
+				if (hook != null && heartbeat == null) {
+					hook.endHeadReceiving(this, socket);
+				}
+			}
+			if (timing != null) {
+				final long nanos = System.nanoTime();
+				timing.addFirstByte(nanos - lastNanos);
+				lastNanos = nanos;
+			}
+		}
+		catch (GSException e) {
+			if (responseUnacceptable || heartbeat != null || firstStatement) {
+				throw e;
+			}
+
+			heartbeat = new Heartbeat();
+			heartbeat.orgStatementTypeNumber = statementTypeNumber;
+			heartbeat.orgStatementId = reqStatementId;
+			heartbeat.orgStatementFound = false;
+
+			final long orgHeartbeatCount = heartbeatReceiveCount;
+			executionTiming = null;
+			try {
+				resp = processHeartbeat(partitionId, resp, heartbeat);
+			}
+			finally {
+				executionTiming = timing;
+			}
+			readLength = eeHeadLength;
+
+			if (timing != null) {
+				final long nanos = System.nanoTime();
+				timing.addHeartbeat(
+						heartbeatReceiveCount - orgHeartbeatCount,
+						nanos - lastNanos);
+				lastNanos = nanos;
+			}
+		}
+
+		receiveBody(resp, eeHeadLength, readLength);
+		if (timing != null) {
+			timing.addBody(System.nanoTime() - lastNanos);
+		}
+
+		final boolean statementIdMatched;
+
+		final int respStatementTypeNumber = resp.base().getInt();
+		if (respStatementTypeNumber != statementTypeNumber) {
+			if (heartbeat == null || respStatementTypeNumber !=
+					heartbeat.orgStatementTypeNumber) {
+				throw new GSConnectionException(
+						GSErrorCode.MESSAGE_CORRUPTED,
+						"Protocol error by illegal statement type (address=" +
+						getRemoteSocketAddress() + ")");
+			}
+			heartbeat.orgStatementFound = true;
+
+			final boolean orgFirstStatement =
+					(heartbeat.orgStatementTypeNumber ==
+							firstStatementTypeNumber);
+			statementIdMatched =
+					(getStatementId(resp, orgFirstStatement) ==
+							heartbeat.orgStatementId);
+		}
+		else {
+			statementIdMatched =
+					(getStatementId(resp, firstStatement) == reqStatementId);
+		}
+
+		if (!statementIdMatched) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by illegal statement ID (address=" +
+					getRemoteSocketAddress() + ")");
+		}
+
+		final StatementResult result =
+				resp.getByteEnum(STATEMENT_RESULT_CONSTANTS);
+		if (result != StatementResult.SUCCESS) {
+			final GSException remoteException =
+					getRemoteException(result, resp, partitionId);
+
+			if (heartbeat != null &&
+					respStatementTypeNumber == firstStatementTypeNumber) {
+				throw new GSConnectionException(
+						GSErrorCode.BAD_CONNECTION,
+						"Connection problem occurred by " +
+						"invalid heartbeat response (" +
+						"result=" + result +
+						", address=" + getRemoteSocketAddress() +
+						", reason=" + remoteException.getMessage() + ")",
+						remoteException);
+			}
+
+			throw remoteException;
+		}
+
+		if (heartbeat != null && heartbeat.orgException != null) {
+			throw heartbeat.orgException;
+		}
+	}
+
+	public long sendStatementDirect(
+			int statementTypeNumber, int partitionId, long statementId,
+			BasicBuffer req) throws GSException {
 		if (partitionId < 0) {
 			throw new GSException(
 					GSErrorCode.INTERNAL_ERROR,
@@ -403,9 +599,7 @@ class NodeConnection implements Closeable {
 		final int reqLength = req.base().position();
 		final long reqStatementId;
 		if (statementId == 0) {
-			while (++this.statementId == 0) {
-			}
-			reqStatementId = this.statementId;
+			reqStatementId = generateStatementId();
 		}
 		else {
 			reqStatementId = statementId;
@@ -430,8 +624,17 @@ class NodeConnection implements Closeable {
 		req.base().putInt(partitionId);
 		putStatementId(req, reqStatementId, firstStatement);
 
+		final long startNanos =
+				(executionTiming == null ? 0 : System.nanoTime());
 		try {
-			output.write(req.base().array(), 0, reqLength);
+			if (channel != null) {
+				req.base().position(0);
+				req.base().limit(reqLength);
+				writeChannelFully(req.base());
+			}
+			else {
+				output.write(req.base().array(), 0, reqLength);
+			}
 		}
 		catch (IOException e) {
 			throw new GSConnectionException(
@@ -443,44 +646,126 @@ class NodeConnection implements Closeable {
 		req.base().clear();
 		req.base().position(reqHeadLength);
 
-		if (resp == null) {
-			return;
+		if (executionTiming != null) {
+			executionTiming.addSend(System.nanoTime() - startNanos);
 		}
 
-		
+		if (metrics != null) {
+			metrics.add(DriverMetrics.Counter.SENT_BYTES, reqLength);
+		}
+
+		return reqStatementId;
+	}
+
+	public long receiveStatementDirect(
+			int statementTypeNumber, BasicBuffer resp) throws GSException {
+		final int eeHeadLength = getEEHeadLength(ipv6Enabled);
 		resp.clear();
 		resp.prepare(eeHeadLength);
-
 		resp.base().limit(eeHeadLength);
-		int readLength;
+
+		final int readLength = readFully(
+				resp, 0, eeHeadLength, resp.base().capacity());
+		receiveBody(resp, eeHeadLength, readLength);
+
+		if (resp.base().getInt() != statementTypeNumber) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by illegal statement type (address=" +
+					getRemoteSocketAddress() + ")");
+		}
+		return getStatementId(resp,
+				statementTypeNumber == firstStatementTypeNumber);
+	}
+
+	public long receiveStatementPartially(
+			int statementTypeNumber, BasicBuffer resp) throws GSException {
+		final int eeHeadLength = getEEHeadLength(ipv6Enabled);
 		try {
-			if (hook != null && heartbeat == null) {
-				hook.startHeadReceiving(this, socket, reqStatementId);
-			}
-			try {
-				readLength = readFully(resp.base().array(),
-						0, eeHeadLength, resp.base().capacity());
+			if (partialTotalLength == 0) {
+				resp.clear();
+				resp.prepare(eeHeadLength);
+				partialLength = 0;
+				partialTotalLength = eeHeadLength;
 			}
-			finally {
-				if (hook != null && heartbeat == null) {
-					hook.endHeadReceiving(this, socket);
+
+			if (partialLength < eeHeadLength) {
+				if (!readChannelPartially(resp.base(), eeHeadLength)) {
+					return 0;
 				}
+
+				resp.base().position(eeHeadLength - Integer.SIZE / Byte.SIZE);
+				final int respBodyLength = resp.base().getInt();
+				if (respBodyLength < 0) {
+					throw new GSConnectionException(
+							GSErrorCode.MESSAGE_CORRUPTED,
+							"Protocol error by illegal body length (" +
+							"length=" + respBodyLength +
+							", address=" + getRemoteSocketAddress() + ")");
+				}
+
+				partialTotalLength = eeHeadLength + respBodyLength;
+				resp.base().limit(resp.base().capacity());
+				resp.base().position(eeHeadLength);
+				resp.prepare(respBodyLength);
 			}
-		}
-		catch (GSException e) {
-			if (responseUnacceptable || heartbeat != null || firstStatement) {
-				throw e;
+
+			if (!readChannelPartially(resp.base(), partialTotalLength)) {
+				return 0;
 			}
+		}
+		catch (IOException e) {
+			final int receivedSize = partialLength;
+			final int totalSize = partialTotalLength;
+			partialLength = 0;
+			partialTotalLength = 0;
+			throw errorOnReceiving(e, receivedSize, totalSize);
+		}
 
-			heartbeat = new Heartbeat();
-			heartbeat.orgStatementTypeNumber = statementTypeNumber;
-			heartbeat.orgStatementId = reqStatementId;
-			heartbeat.orgStatementFound = false;
+		final int readLength = partialTotalLength;
+		partialLength = 0;
+		partialTotalLength = 0;
 
-			resp = processHeartbeat(partitionId, resp, heartbeat);
-			readLength = eeHeadLength;
+		resp.base().limit(eeHeadLength);
+		resp.base().position(0);
+		receiveBody(resp, eeHeadLength, readLength);
+
+		if (resp.base().getInt() != statementTypeNumber) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by illegal statement type (address=" +
+					getRemoteSocketAddress() + ")");
 		}
+		return getStatementId(resp,
+				statementTypeNumber == firstStatementTypeNumber);
+	}
+
+	public long generateStatementId() {
+		while (++statementId == 0) {
+		}
+		return statementId;
+	}
 
+	public boolean isNonBlocking() {
+		return (channel != null);
+	}
+
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
+	public void checkStatementResult(BasicBuffer resp, int partitionId)
+			throws GSException {
+		final StatementResult result =
+				resp.getByteEnum(STATEMENT_RESULT_CONSTANTS);
+		if (result != StatementResult.SUCCESS) {
+			throw getRemoteException(result, resp, partitionId);
+		}
+	}
+
+	private void receiveBody(
+			BasicBuffer resp, int eeHeadLength, int readLength)
+			throws GSException {
 		if (resp.base().getInt() != EE_MAGIC_NUMBER) {
 			throw new GSConnectionException(
 					GSErrorCode.MESSAGE_CORRUPTED,
@@ -519,81 +804,121 @@ class NodeConnection implements Closeable {
 			resp.prepare(length);
 			resp.base().position(eeHeadLength);
 
-			readFully(resp.base().array(), readLength, length, length);
+			readFully(resp, readLength, length, length);
 		}
 		resp.base().limit(respTotalLength);
 
-		final boolean statementIdMatched;
+		if (metrics != null) {
+			metrics.increment(DriverMetrics.Counter.ROUND_TRIP);
+			metrics.add(DriverMetrics.Counter.RECEIVED_BYTES, respTotalLength);
+		}
 
-		final int respStatementTypeNumber = resp.base().getInt();
-		if (respStatementTypeNumber != statementTypeNumber) {
-			if (heartbeat == null || respStatementTypeNumber !=
-					heartbeat.orgStatementTypeNumber) {
-				throw new GSConnectionException(
-						GSErrorCode.MESSAGE_CORRUPTED,
-						"Protocol error by illegal statement type (address=" +
-						getRemoteSocketAddress() + ")");
-			}
-			heartbeat.orgStatementFound = true;
+		if (compressionEnabled) {
+			acceptCompressedBody(resp, eeHeadLength);
+		}
+	}
 
-			final boolean orgFirstStatement =
-					(heartbeat.orgStatementTypeNumber ==
-							firstStatementTypeNumber);
-			statementIdMatched =
-					(getStatementId(resp, orgFirstStatement) ==
-							heartbeat.orgStatementId);
+	private GSException getRemoteException(
+			StatementResult result, BasicBuffer resp, int partitionId)
+			throws GSException {
+		final GSException remoteException;
+		try {
+			remoteException = readRemoteException(result, resp, partitionId);
 		}
-		else {
-			statementIdMatched =
-					(getStatementId(resp, firstStatement) == reqStatementId);
+		catch (BufferUnderflowException e) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by invalid remote error message (" +
+					"result=" + result +
+					", address=" + getRemoteSocketAddress() +
+					", reason=" + e.getMessage() + ")", e);
 		}
+		remoteException.fillInStackTrace();
+		return remoteException;
+	}
 
-		if (!statementIdMatched) {
+	private void acceptCompressedBody(BasicBuffer resp, int eeHeadLength)
+			throws GSException {
+		final int compressedLength = resp.base().remaining();
+		final byte type = resp.base().get();
+		if (type == CompressionType.NONE.ordinal()) {
+			return;
+		}
+		else if (type != CompressionType.DEFLATE.ordinal()) {
 			throw new GSConnectionException(
 					GSErrorCode.MESSAGE_CORRUPTED,
-					"Protocol error by illegal statement ID (address=" +
-					getRemoteSocketAddress() + ")");
+					"Protocol error by illegal compression type (type=" +
+					type + ", address=" + getRemoteSocketAddress() + ")");
 		}
 
-		final StatementResult result =
-				resp.getByteEnum(STATEMENT_RESULT_CONSTANTS);
-		if (result != StatementResult.SUCCESS) {
-			final GSException remoteException;
-			try {
-				remoteException =
-						readRemoteException(result, resp, partitionId);
-			}
-			catch (BufferUnderflowException e) {
-				throw new GSConnectionException(
-						GSErrorCode.MESSAGE_CORRUPTED,
-						"Protocol error by invalid remote error message (" +
-						"result=" + result +
-						", address=" + getRemoteSocketAddress() +
-						", reason=" + e.getMessage() + ")", e);
-			}
-			remoteException.fillInStackTrace();
+		final int bodyLength = resp.base().getInt();
+		if (bodyLength < 0) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by illegal uncompressed length (length=" +
+					bodyLength + ", address=" + getRemoteSocketAddress() + ")");
+		}
 
-			if (heartbeat != null &&
-					respStatementTypeNumber == firstStatementTypeNumber) {
+		final int inputLength = resp.base().remaining();
+		if (compressedResp == null || compressedResp.length < inputLength) {
+			compressedResp = new byte[inputLength];
+		}
+		resp.base().get(compressedResp, 0, inputLength);
+
+		resp.base().limit(resp.base().capacity());
+		resp.base().position(eeHeadLength);
+		resp.prepare(bodyLength);
+
+		if (inflater == null) {
+			inflater = new Inflater();
+		}
+
+		final long startNanos = System.nanoTime();
+		try {
+			inflater.setInput(compressedResp, 0, inputLength);
+			final int inflatedLength = inflater.inflate(
+					resp.base().array(), eeHeadLength, bodyLength);
+			if (inflatedLength != bodyLength || !inflater.finished()) {
 				throw new GSConnectionException(
-						GSErrorCode.BAD_CONNECTION,
-						"Connection problem occurred by " +
-						"invalid heartbeat response (" +
-						"result=" + result +
-						", address=" + getRemoteSocketAddress() +
-						", reason=" + remoteException.getMessage() + ")",
-						remoteException);
+						GSErrorCode.MESSAGE_CORRUPTED,
+						"Protocol error by inconsistent compressed body (" +
+						"expectedLength=" + bodyLength +
+						", actualLength=" + inflatedLength +
+						", address=" + getRemoteSocketAddress() + ")");
 			}
+		}
+		catch (DataFormatException e) {
+			throw new GSConnectionException(
+					GSErrorCode.MESSAGE_CORRUPTED,
+					"Protocol error by corrupted compressed body (" +
+					"address=" + getRemoteSocketAddress() +
+					", reason=" + e.getMessage() + ")", e);
+		}
+		finally {
+			inflater.reset();
+		}
 
-			throw remoteException;
+		if (compressionStats != null) {
+			compressionStats.add(
+					compressedLength, bodyLength,
+					System.nanoTime() - startNanos);
 		}
 
-		if (heartbeat != null && heartbeat.orgException != null) {
-			throw heartbeat.orgException;
+		resp.base().limit(eeHeadLength + bodyLength);
+		resp.base().position(eeHeadLength);
+	}
+
+	private int readFully(
+			BasicBuffer buf, int offset, int length, int maxLength)
+			throws GSException {
+		if (channel != null) {
+			return readChannelFully(buf.base(), offset, length);
 		}
+		return readStreamFully(buf.base().array(), offset, length, maxLength);
 	}
 
-	private int readFully(byte[] value, int offset, int length, int maxLength)
+	private int readStreamFully(
+			byte[] value, int offset, int length, int maxLength)
 			throws GSException {
 		int pos = offset;
 
@@ -632,30 +957,219 @@ class NodeConnection implements Closeable {
 			throw e;
 		}
 		catch (IOException e) {
-			final boolean timeoutOccurred =
-					(e instanceof SocketTimeoutException);
-			if (!timeoutOccurred || pos != offset) {
-				responseUnacceptable = true;
+			throw errorOnReceiving(e, pos - offset, length);
+		}
+	}
+
+	private int readChannelFully(ByteBuffer dest, int offset, int length)
+			throws GSException {
+		final int orgPosition = dest.position();
+		final int orgLimit = dest.limit();
+		dest.limit(offset + length);
+		dest.position(offset);
+		try {
+			if (readAhead.hasRemaining()) {
+				final int aheadLimit = readAhead.limit();
+				readAhead.limit(readAhead.position() +
+						Math.min(readAhead.remaining(), length));
+				dest.put(readAhead);
+				readAhead.limit(aheadLimit);
+			}
+
+			while (dest.hasRemaining()) {
+				final long last;
+				if (dest.remaining() >= readAhead.capacity()) {
+					last = channel.read(dest);
+				}
+				else {
+					readAhead.clear();
+					scatterBuffers[0] = dest;
+					scatterBuffers[1] = readAhead;
+					try {
+						last = channel.read(scatterBuffers);
+					}
+					finally {
+						scatterBuffers[0] = null;
+						scatterBuffers[1] = null;
+						readAhead.flip();
+					}
+				}
+
+				if (last < 0) {
+					throw new GSConnectionException(
+							GSErrorCode.BAD_CONNECTION,
+							"Connection unexpectedly terminated (address=" +
+							getRemoteSocketAddress() + ")");
+				}
+				else if (last == 0) {
+					awaitChannel(SelectionKey.OP_READ);
+				}
+			}
+			return length;
+		}
+		catch (GSConnectionException e) {
+			throw e;
+		}
+		catch (IOException e) {
+			throw errorOnReceiving(e, dest.position() - offset, length);
+		}
+		finally {
+			dest.limit(orgLimit);
+			dest.position(orgPosition);
+		}
+	}
+
+	private boolean readChannelPartially(ByteBuffer dest, int endPosition)
+			throws IOException {
+		dest.limit(endPosition);
+		dest.position(partialLength);
+
+		if (readAhead.hasRemaining()) {
+			final int aheadLimit = readAhead.limit();
+			readAhead.limit(readAhead.position() +
+					Math.min(readAhead.remaining(), dest.remaining()));
+			dest.put(readAhead);
+			readAhead.limit(aheadLimit);
+		}
+
+		while (dest.hasRemaining()) {
+			final int last = channel.read(dest);
+			if (last < 0) {
+				throw new IOException("Connection unexpectedly terminated");
+			}
+			else if (last == 0) {
+				break;
 			}
+		}
 
-			if (timeoutOccurred) {
-				throw new GSConnectionException(
-						GSErrorCode.CONNECTION_TIMEOUT,
-						"Connection timed out on receiving (" +
-						"receivedSize=" + (pos - offset) +
-						", totalSize=" + length +
-						", address=" + getRemoteSocketAddress() +
-						", reason=" + e.getMessage() + ")", e);
+		partialLength = dest.position();
+		return !dest.hasRemaining();
+	}
+
+	private void writeChannelFully(ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			if (channel.write(src) == 0) {
+				awaitChannel(SelectionKey.OP_WRITE);
 			}
+		}
+	}
 
-			throw new GSConnectionException(
-					GSErrorCode.BAD_CONNECTION,
-					"Connection problem occurred on receiving (" +
-					"receivedSize=" + (pos - offset) +
-					", totalSize=" + length +
+	public void writeConcurrently(BasicBuffer buf, int length)
+			throws IOException {
+		if (channel == null) {
+			socket.getOutputStream().write(buf.base().array(), 0, length);
+			return;
+		}
+
+		final ByteBuffer src = ByteBuffer.wrap(buf.base().array(), 0, length);
+		Selector writeSelector = null;
+		try {
+			while (src.hasRemaining()) {
+				if (channel.write(src) != 0) {
+					continue;
+				}
+
+				if (writeSelector == null) {
+					writeSelector = Selector.open();
+					channel.register(writeSelector, SelectionKey.OP_WRITE);
+				}
+				if (writeSelector.select(socket.getSoTimeout()) == 0) {
+					throw new SocketTimeoutException(
+							"Timed out on waiting channel");
+				}
+				writeSelector.selectedKeys().clear();
+			}
+		}
+		finally {
+			if (writeSelector != null) {
+				writeSelector.close();
+			}
+		}
+	}
+
+	private void awaitChannel(int ops) throws IOException {
+		final int timeoutMillis = socket.getSoTimeout();
+		final long startNanos = System.nanoTime();
+		selectionKey.interestOps(ops);
+		for (;;) {
+			long waitMillis = 0;
+			if (timeoutMillis > 0) {
+				waitMillis = timeoutMillis -
+						(System.nanoTime() - startNanos) / (1000 * 1000);
+				if (waitMillis <= 0) {
+					throw new SocketTimeoutException(
+							"Timed out on waiting channel");
+				}
+			}
+
+			if (selector.select(waitMillis) > 0) {
+				selector.selectedKeys().clear();
+				return;
+			}
+		}
+	}
+
+	private GSConnectionException errorOnReceiving(
+			IOException e, int receivedSize, int totalSize) {
+		final boolean timeoutOccurred = (e instanceof SocketTimeoutException);
+		if (!timeoutOccurred || receivedSize != 0) {
+			responseUnacceptable = true;
+		}
+
+		if (timeoutOccurred) {
+			return new GSConnectionException(
+					GSErrorCode.CONNECTION_TIMEOUT,
+					"Connection timed out on receiving (" +
+					"receivedSize=" + receivedSize +
+					", totalSize=" + totalSize +
 					", address=" + getRemoteSocketAddress() +
 					", reason=" + e.getMessage() + ")", e);
 		}
+
+		return new GSConnectionException(
+				GSErrorCode.BAD_CONNECTION,
+				"Connection problem occurred on receiving (" +
+				"receivedSize=" + receivedSize +
+				", totalSize=" + totalSize +
+				", address=" + getRemoteSocketAddress() +
+				", reason=" + e.getMessage() + ")", e);
+	}
+
+	private void openChannel() throws IOException {
+		channel = socket.getChannel();
+		channel.configureBlocking(false);
+		selector = Selector.open();
+		selectionKey = channel.register(selector, 0);
+		readAhead = ByteBuffer.allocateDirect(CHANNEL_READ_AHEAD_SIZE);
+		readAhead.flip();
+	}
+
+	private void closeChannel() throws IOException {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			selector.close();
+		}
+		finally {
+			selector = null;
+			selectionKey = null;
+			readAhead = null;
+		}
+		channel.configureBlocking(true);
+		channel = null;
+	}
+
+	private void closeSocketSilently() {
+		try {
+			if (selector != null) {
+				selector.close();
+			}
+			socket.close();
+		}
+		catch (IOException e) {
+		}
 	}
 
 	private BasicBuffer processHeartbeat(
@@ -716,13 +1230,16 @@ class NodeConnection implements Closeable {
 			}
 
 			heartbeatReceiveCount++;
+			if (metrics != null) {
+				metrics.increment(DriverMetrics.Counter.HEARTBEAT);
+			}
 
 			if (heartbeat.orgStatementFound) {
 				resp = heartbeatBuf;
 				resp.clear();
 				resp.prepare(eeHeadLength);
 				resp.base().limit(eeHeadLength);
-				readFully(resp.base().array(), 0, eeHeadLength, eeHeadLength);
+				readFully(resp, 0, eeHeadLength, eeHeadLength);
 
 				heartbeat.orgStatementTypeNumber = firstStatementTypeNumber;
 				heartbeat.orgStatementId = lastHeartbeatId;
@@ -734,7 +1251,7 @@ class NodeConnection implements Closeable {
 			resp.prepare(eeHeadLength);
 			resp.base().limit(eeHeadLength);
 			try {
-				readFully(resp.base().array(), 0, eeHeadLength, eeHeadLength);
+				readFully(resp, 0, eeHeadLength, eeHeadLength);
 				return resp;
 			}
 			catch (GSException e) {
@@ -930,6 +1447,9 @@ class NodeConnection implements Closeable {
 		final int bodyPos = req.base().position();
 		req.putBoolean(acceptableSocketTypes.contains(SocketType.PLAIN));
 		req.putBoolean(acceptableSocketTypes.contains(SocketType.SECURE));
+		if (compressionRequested && !compressionFieldRejected) {
+			req.put((byte) CompressionType.DEFLATE.ordinal());
+		}
 
 		final int endPos = req.base().position();
 		req.base().position(headPos);
@@ -940,6 +1460,7 @@ class NodeConnection implements Closeable {
 
 	private void acceptControlInfo(BasicBuffer resp) throws GSException {
 		final Set<SocketType> respTypes = EnumSet.noneOf(SocketType.class);
+		boolean compressionAccepted = false;
 		do {
 			if (resp.base().remaining() <= 0) {
 				respTypes.add(SocketType.PLAIN);
@@ -955,6 +1476,10 @@ class NodeConnection implements Closeable {
 			if (resp.getBoolean()) {
 				respTypes.add(SocketType.SECURE);
 			}
+			if (resp.base().remaining() > 0) {
+				compressionAccepted = (resp.base().get() ==
+						CompressionType.DEFLATE.ordinal());
+			}
 
 			BufferUtils.restoreLimit(resp.base(), limit);
 		}
@@ -978,6 +1503,8 @@ class NodeConnection implements Closeable {
 		else if (!socketFactories.isEmpty()) {
 			changeTransportMethod(nextTypes);
 		}
+
+		compressionEnabled = (compressionRequested && compressionAccepted);
 	}
 
 	private void changeTransportMethod(Set<SocketType> nextTypes)
@@ -992,6 +1519,13 @@ class NodeConnection implements Closeable {
 		}
 		acceptableSocketTypes = EnumSet.of(SocketType.SECURE);
 
+		try {
+			closeChannel();
+		}
+		catch (IOException e) {
+			throw new GSConnectionException(e);
+		}
+
 		socket = createSocket(socketFactories, SocketType.SECURE, socket);
 		try {
 			input = socket.getInputStream();
@@ -1007,9 +1541,22 @@ class NodeConnection implements Closeable {
 		resp = (resp == null ? createOutput() : resp);
 
 		putConnectRequest(req);
-		executeStatement(
-				Statement.CONNECT.generalize(), SPECIAL_PARTITION_ID,
-				0, req, resp);
+		try {
+			executeStatement(
+					Statement.CONNECT.generalize(), SPECIAL_PARTITION_ID,
+					0, req, resp);
+		}
+		catch (GSStatementException e) {
+			if (!compressionRequested || compressionFieldRejected) {
+				throw e;
+			}
+
+			compressionFieldRejected = true;
+			putConnectRequest(req);
+			executeStatement(
+					Statement.CONNECT.generalize(), SPECIAL_PARTITION_ID,
+					0, req, resp);
+		}
 		acceptConnectResponse(resp);
 	}
 
@@ -1178,6 +1725,21 @@ class NodeConnection implements Closeable {
 		login(req, resp, loginInfo, databaseId);
 	}
 
+	public void heartbeat(BasicBuffer req, BasicBuffer resp)
+			throws GSException {
+		req = (req == null ? createRequestBuffer() : req);
+		resp = (resp == null ? createOutput() : resp);
+
+		putConnectRequest(req);
+		executeStatement(
+				Statement.CONNECT.generalize(), SPECIAL_PARTITION_ID,
+				0, req, resp);
+		heartbeatReceiveCount++;
+		if (metrics != null) {
+			metrics.increment(DriverMetrics.Counter.HEARTBEAT);
+		}
+	}
+
 	public void logout(BasicBuffer req, BasicBuffer resp) throws GSException {
 		req = (req == null ? createRequestBuffer() : req);
 		resp = (resp == null ? createOutput() : resp);
@@ -1269,7 +1831,15 @@ class NodeConnection implements Closeable {
 	}
 
 	public void closeImmediately() throws GSException {
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+
 		try {
+			if (selector != null) {
+				selector.close();
+			}
 			socket.close();
 		}
 		catch (IOException e) {
@@ -1369,12 +1939,15 @@ class NodeConnection implements Closeable {
 		private Map<SocketType, SocketFactory> socketFactories =
 				Collections.emptyMap();
 
+		private boolean compressionRequested;
+
 		public void set(Config config, boolean withSocketConfig) {
 			this.connectTimeoutMillis = config.connectTimeoutMillis;
 			this.statementTimeoutMillis = config.statementTimeoutMillis;
 			this.heartbeatTimeoutMillis = config.heartbeatTimeoutMillis;
 			this.statementTimeoutEnabled = config.statementTimeoutEnabled;
 			this.alternativeVersion = config.alternativeVersion;
+			this.compressionRequested = config.compressionRequested;
 
 			if (withSocketConfig) {
 				this.acceptableSocketTypes = config.acceptableSocketTypes;
@@ -1460,6 +2033,18 @@ class NodeConnection implements Closeable {
 			return socketFactories;
 		}
 
+		public Set<SocketType> getAcceptableSocketTypes() {
+			return acceptableSocketTypes;
+		}
+
+		public void setCompressionRequested(boolean compressionRequested) {
+			this.compressionRequested = compressionRequested;
+		}
+
+		public boolean isCompressionRequested() {
+			return compressionRequested;
+		}
+
 	}
 
 	enum SocketType {
@@ -1467,6 +2052,103 @@ class NodeConnection implements Closeable {
 		SECURE
 	}
 
+	static class ChannelSocketFactory extends SocketFactory {
+
+		private static final ChannelSocketFactory INSTANCE =
+				new ChannelSocketFactory();
+
+		static ChannelSocketFactory getInstance() {
+			return INSTANCE;
+		}
+
+		@Override
+		public Socket createSocket() throws IOException {
+			return SocketChannel.open().socket();
+		}
+
+		@Override
+		public Socket createSocket(String host, int port) throws IOException {
+			return connect(new InetSocketAddress(host, port), null);
+		}
+
+		@Override
+		public Socket createSocket(
+				String host, int port, InetAddress localHost, int localPort)
+				throws IOException {
+			return connect(
+					new InetSocketAddress(host, port),
+					new InetSocketAddress(localHost, localPort));
+		}
+
+		@Override
+		public Socket createSocket(InetAddress host, int port)
+				throws IOException {
+			return connect(new InetSocketAddress(host, port), null);
+		}
+
+		@Override
+		public Socket createSocket(
+				InetAddress address, int port, InetAddress localAddress,
+				int localPort) throws IOException {
+			return connect(
+					new InetSocketAddress(address, port),
+					new InetSocketAddress(localAddress, localPort));
+		}
+
+		private Socket connect(
+				InetSocketAddress remote, InetSocketAddress local)
+				throws IOException {
+			final Socket socket = createSocket();
+			try {
+				if (local != null) {
+					socket.bind(local);
+				}
+				socket.connect(remote);
+			}
+			catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+			return socket;
+		}
+
+	}
+
+	enum CompressionType {
+		NONE,
+		DEFLATE
+	}
+
+	public static class CompressionStats {
+
+		private long compressedBytes;
+
+		private long uncompressedBytes;
+
+		private long decompressionNanos;
+
+		synchronized void add(
+				long compressedBytes, long uncompressedBytes,
+				long decompressionNanos) {
+			this.compressedBytes += compressedBytes;
+			this.uncompressedBytes += uncompressedBytes;
+			this.decompressionNanos += decompressionNanos;
+		}
+
+		public synchronized long getCompressedBytes() {
+			return compressedBytes;
+		}
+
+		public synchronized long getUncompressedBytes() {
+			return uncompressedBytes;
+		}
+
+		public synchronized long getDecompressionNanos() {
+			return decompressionNanos;
+		}
+
+	}
+
 	public static class LoginInfo {
 
 		private static Map<String, AuthType> AUTH_TYPE_MAP = makeAuthTypeMap();
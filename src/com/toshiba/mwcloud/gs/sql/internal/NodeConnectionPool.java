@@ -18,46 +18,89 @@ package com.toshiba.mwcloud.gs.sql.internal;
 import java.io.Closeable;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 class NodeConnectionPool implements Closeable {
 
 	private static final int DEFAULT_MAX_SIZE = 16;
 
-	private Map<SocketAddress, List<NodeConnection>> connectionMap =
-			new HashMap<SocketAddress, List<NodeConnection>>();
+	private static final long MIN_MAINTENANCE_INTERVAL = 1000;
 
-	private Set<NodeConnection> connectionSet =
-			new LinkedHashSet<NodeConnection>();
+	private static ScheduledExecutorService maintenanceExecutor;
 
-	private List<NodeConnection> exceededConnectionList =
-			Collections.synchronizedList(new ArrayList<NodeConnection>());
+	private final ReentrantLock lock = new ReentrantLock();
 
-	private int maxSize;
+	private final ConcurrentMap<Object, Stripe> stripeMap =
+			new ConcurrentHashMap<Object, Stripe>();
+
+	private final ConcurrentMap<SocketAddress, AtomicInteger> nodeSizeMap =
+			new ConcurrentHashMap<SocketAddress, AtomicInteger>();
+
+	private final AtomicInteger totalSize = new AtomicInteger();
+
+	private final AtomicBoolean configured = new AtomicBoolean();
+
+	private final Queue<NodeConnection> exceededConnectionList =
+			new ConcurrentLinkedQueue<NodeConnection>();
+
+	private volatile boolean closed;
+
+	private volatile int maxSize;
+
+	private volatile int maxSizePerNode;
+
+	private volatile long idleTimeoutMillis = -1;
+
+	private volatile ScheduledFuture<?> maintenanceFuture;
 
 	public NodeConnectionPool() {
 		this.maxSize = DEFAULT_MAX_SIZE;
 	}
 
-	public synchronized int getMaxSize() {
+	public boolean configure(
+			int maxSize, int maxSizePerNode, long idleTimeoutMillis) {
+		if (!configured.compareAndSet(false, true)) {
+			return false;
+		}
+
+		if (maxSize >= 0) {
+			setMaxSize(maxSize);
+		}
+		if (maxSizePerNode >= 0) {
+			setMaxSizePerNode(maxSizePerNode);
+		}
+		if (idleTimeoutMillis >= 0) {
+			setIdleTimeoutMillis(idleTimeoutMillis);
+		}
+		return true;
+	}
+
+	public int getMaxSize() {
 		return maxSize;
 	}
 
 	public void setMaxSize(int maxSize) {
 		try {
-			synchronized (this) {
-				if (connectionMap != null) {
-					adjustSize(maxSize);
-				}
-				this.maxSize = maxSize;
+			this.maxSize = maxSize;
+			if (!closed) {
+				adjustSize(null, maxSize);
 			}
 		}
 		finally {
@@ -70,46 +113,189 @@ class NodeConnectionPool implements Closeable {
 		}
 	}
 
-	private void adjustSize(int maxSize) {
-		while (connectionSet.size() > Math.max(maxSize, 0)) {
-			final NodeConnection oldest = connectionSet.iterator().next();
-			if (oldest != null) {
-				final SocketAddress oldestKey = getKey(oldest);
-				final List<NodeConnection> oldestList =
-						connectionMap.get(oldestKey);
-				if (oldestList != null) {
-					oldestList.remove(oldest);
+	public void setMaxSizePerNode(int maxSizePerNode) {
+		this.maxSizePerNode = maxSizePerNode;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		lock.lock();
+		try {
+			if (this.idleTimeoutMillis == idleTimeoutMillis) {
+				return;
+			}
+			this.idleTimeoutMillis = idleTimeoutMillis;
+
+			if (maintenanceFuture != null) {
+				maintenanceFuture.cancel(false);
+				maintenanceFuture = null;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void scheduleMaintenance() {
+		if (maintenanceFuture != null || idleTimeoutMillis <= 0) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			if (maintenanceFuture != null || idleTimeoutMillis <= 0 ||
+					closed) {
+				return;
+			}
+
+			final long interval = Math.max(
+					idleTimeoutMillis / 2, MIN_MAINTENANCE_INTERVAL);
+			maintenanceFuture =
+					getMaintenanceExecutor().scheduleWithFixedDelay(
+							new Runnable() {
+								@Override
+								public void run() {
+									maintain();
+								}
+							},
+							interval, interval, TimeUnit.MILLISECONDS);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void adjustSize(SocketAddress address, int limit) {
+		while (getSize(address) > Math.max(limit, 0)) {
+			final Entry entry = pollOldest(address);
+			if (entry == null) {
+				break;
+			}
+			exceededConnectionList.add(entry.connection);
+		}
+	}
+
+	private int getSize(SocketAddress address) {
+		if (address == null) {
+			return totalSize.get();
+		}
+
+		final AtomicInteger size = nodeSizeMap.get(address);
+		return (size == null ? 0 : size.get());
+	}
+
+	private void addSize(Entry entry, int delta) {
+		totalSize.addAndGet(delta);
+		entry.nodeSize.addAndGet(delta);
+	}
+
+	private AtomicInteger getNodeSize(Stripe stripe, SocketAddress address) {
+		final AtomicInteger lastSize = stripe.nodeSize;
+		if (lastSize != null && address.equals(stripe.address)) {
+			return lastSize;
+		}
+
+		AtomicInteger size = nodeSizeMap.get(address);
+		if (size == null) {
+			final AtomicInteger newSize = new AtomicInteger();
+			size = nodeSizeMap.putIfAbsent(address, newSize);
+			if (size == null) {
+				size = newSize;
+			}
+		}
+		stripe.address = address;
+		stripe.nodeSize = size;
+		return size;
+	}
+
+	private Entry pollOldest(SocketAddress address) {
+		for (;;) {
+			Stripe oldestStripe = null;
+			Entry oldest = null;
+			for (Stripe stripe : stripeMap.values()) {
+				final Entry entry = stripe.peekOldest(address);
+				if (entry != null &&
+						(oldest == null ||
+								entry.idleStartTime < oldest.idleStartTime)) {
+					oldestStripe = stripe;
+					oldest = entry;
 				}
+			}
+
+			if (oldest == null) {
+				return null;
+			}
+
+			if (oldestStripe.remove(oldest)) {
+				addSize(oldest, -1);
+				return oldest;
+			}
+		}
+	}
+
+	private Stripe getStripe(Object key) {
+		final Stripe stripe = stripeMap.get(key);
+		if (stripe != null) {
+			return stripe;
+		}
 
-				if (oldestList.isEmpty()) {
-					connectionMap.remove(oldestKey);
+		final Stripe newStripe = new Stripe();
+		final Stripe lastStripe = stripeMap.putIfAbsent(key, newStripe);
+		return (lastStripe == null ? newStripe : lastStripe);
+	}
+
+	private boolean offer(Entry entry) {
+		for (;;) {
+			final Stripe stripe = getStripe(entry.key);
+			stripe.lock.lock();
+			try {
+				if (stripe.removed) {
+					continue;
+				}
+				if (closed || stripe.contains(entry.connection)) {
+					return false;
 				}
-				connectionSet.remove(oldest);
 
-				exceededConnectionList.add(oldest);
+				entry.nodeSize = getNodeSize(stripe, entry.address);
+				stripe.entries.addLast(entry);
+				addSize(entry, 1);
+				return true;
+			}
+			finally {
+				stripe.lock.unlock();
 			}
 		}
 	}
 
+	private void remove(Entry entry) {
+		final Stripe stripe = stripeMap.get(entry.key);
+		if (stripe == null) {
+			return;
+		}
+
+		final Entry removedEntry = stripe.remove(entry.connection);
+		if (removedEntry != null) {
+			addSize(removedEntry, -1);
+		}
+	}
+
 	public void add(NodeConnection connection) {
-		try {
-			synchronized (this) {
-				if (connectionMap == null) {
-					exceededConnectionList.add(connection);
-					connection = null;
-				}
-				else if (connectionSet.add(connection)) {
-					final SocketAddress key = getKey(connection);
-					List<NodeConnection> list = connectionMap.get(key);
-					if (list == null) {
-						list = new LinkedList<NodeConnection>();
-						connectionMap.put(key, list);
-					}
-					list.add(connection);
-					connection = null;
+		add(connection, getKey(connection));
+	}
 
-					adjustSize(maxSize);
+	public void add(NodeConnection connection, Object key) {
+		add(new Entry(connection, key, System.currentTimeMillis()));
+	}
+
+	private void add(Entry entry) {
+		boolean added = false;
+		try {
+			if (offer(entry)) {
+				added = true;
+				if (maxSizePerNode > 0) {
+					adjustSize(entry.address, maxSizePerNode);
 				}
+				adjustSize(null, maxSize);
+				scheduleMaintenance();
 			}
 		}
 		finally {
@@ -118,9 +304,9 @@ class NodeConnectionPool implements Closeable {
 					closeExceededConnections();
 				}
 				finally {
-					if (connection != null) {
-						connection.close();
-						connectionSet.remove(connection);
+					if (!added) {
+						entry.connection.close();
+						remove(entry);
 					}
 				}
 			}
@@ -130,23 +316,89 @@ class NodeConnectionPool implements Closeable {
 		}
 	}
 
-	public synchronized NodeConnection pull(SocketAddress address) {
-		if (connectionMap == null) {
+	public NodeConnection pull(Object key) {
+		final Stripe stripe = stripeMap.get(key);
+		if (stripe == null) {
 			return null;
 		}
 
-		final List<NodeConnection> list = connectionMap.get(address);
-		if (list == null || list.isEmpty()) {
-			return null;
+		final Entry entry;
+		stripe.lock.lock();
+		try {
+			entry = stripe.entries.pollLast();
+			if (entry == null) {
+				return null;
+			}
+			addSize(entry, -1);
 		}
+		finally {
+			stripe.lock.unlock();
+		}
+
+		return entry.connection;
+	}
 
-		final NodeConnection connection = list.remove(0);
-		if (list.isEmpty()) {
-			connectionMap.remove(address);
+	void maintain() {
+		final long idleTimeoutMillis = this.idleTimeoutMillis;
+		if (closed || idleTimeoutMillis <= 0) {
+			return;
 		}
-		connectionSet.remove(connection);
 
-		return connection;
+		final long currentTime = System.currentTimeMillis();
+		final List<Entry> checkingList = new ArrayList<Entry>();
+		for (Map.Entry<Object, Stripe> mapEntry : stripeMap.entrySet()) {
+			final Stripe stripe = mapEntry.getValue();
+			stripe.lock.lock();
+			try {
+				for (Iterator<Entry> it = stripe.entries.iterator();
+						it.hasNext();) {
+					final Entry entry = it.next();
+					final long idleMillis = currentTime - entry.idleStartTime;
+					if (idleMillis >= idleTimeoutMillis) {
+						it.remove();
+						addSize(entry, -1);
+						exceededConnectionList.add(entry.connection);
+					}
+					else if (currentTime - entry.lastCheckTime >=
+							idleTimeoutMillis / 2) {
+						it.remove();
+						addSize(entry, -1);
+						checkingList.add(entry);
+					}
+				}
+
+				if (stripe.entries.isEmpty()) {
+					stripe.removed = true;
+					stripeMap.remove(mapEntry.getKey(), stripe);
+				}
+			}
+			finally {
+				stripe.lock.unlock();
+			}
+		}
+
+		try {
+			closeExceededConnections();
+		}
+		catch (GSException e) {
+		}
+
+		for (Entry entry : checkingList) {
+			final NodeConnection connection = entry.connection;
+			try {
+				connection.heartbeat(null, null);
+			}
+			catch (GSException e) {
+				try {
+					connection.closeImmediately();
+				}
+				catch (GSException e2) {
+				}
+				continue;
+			}
+			entry.lastCheckTime = System.currentTimeMillis();
+			add(entry);
+		}
 	}
 
 	public NodeConnection resolve(InetSocketAddress address,
@@ -194,19 +446,52 @@ class NodeConnectionPool implements Closeable {
 		return connection.getRemoteSocketAddress();
 	}
 
+	private static synchronized ScheduledExecutorService
+	getMaintenanceExecutor() {
+		if (maintenanceExecutor == null) {
+			maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							final Thread thread = new Thread(
+									r, "gridstore-jdbc-pool-maintenance");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return maintenanceExecutor;
+	}
+
 	public void close() throws GSException {
 		try {
-			synchronized (this) {
-				if (connectionSet == null) {
+			lock.lock();
+			try {
+				if (closed) {
 					return;
 				}
 
+				closed = true;
+				if (maintenanceFuture != null) {
+					maintenanceFuture.cancel(false);
+					maintenanceFuture = null;
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+
+			for (Stripe stripe : stripeMap.values()) {
+				stripe.lock.lock();
 				try {
-					exceededConnectionList.addAll(connectionSet);
+					for (Entry entry : stripe.entries) {
+						exceededConnectionList.add(entry.connection);
+						addSize(entry, -1);
+					}
+					stripe.entries.clear();
 				}
 				finally {
-					connectionMap = null;
-					connectionSet = null;
+					stripe.lock.unlock();
 				}
 			}
 		}
@@ -216,15 +501,13 @@ class NodeConnectionPool implements Closeable {
 	}
 
 	private void closeExceededConnections() throws GSException {
-		final List<NodeConnection> connectionList;
-		synchronized (exceededConnectionList) {
-			if (exceededConnectionList.isEmpty()) {
-				return;
+		List<NodeConnection> connectionList = null;
+		for (NodeConnection connection;
+				(connection = exceededConnectionList.poll()) != null;) {
+			if (connectionList == null) {
+				connectionList = new ArrayList<NodeConnection>();
 			}
-
-			connectionList = new ArrayList<NodeConnection>();
-			connectionList.addAll(exceededConnectionList);
-			exceededConnectionList.clear();
+			connectionList.add(connection);
 		}
 		closeConnections(connectionList, false);
 	}
@@ -259,4 +542,93 @@ class NodeConnectionPool implements Closeable {
 		}
 	}
 
+	private static class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+
+		final Deque<Entry> entries = new ArrayDeque<Entry>();
+
+		SocketAddress address;
+
+		AtomicInteger nodeSize;
+
+		boolean removed;
+
+		boolean contains(NodeConnection connection) {
+			for (Entry entry : entries) {
+				if (entry.connection == connection) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		Entry peekOldest(SocketAddress address) {
+			lock.lock();
+			try {
+				for (Entry entry : entries) {
+					if (address == null || address.equals(entry.address)) {
+						return entry;
+					}
+				}
+				return null;
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		boolean remove(Entry entry) {
+			lock.lock();
+			try {
+				return entries.remove(entry);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		Entry remove(NodeConnection connection) {
+			lock.lock();
+			try {
+				for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+					final Entry entry = it.next();
+					if (entry.connection == connection) {
+						it.remove();
+						return entry;
+					}
+				}
+				return null;
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+	}
+
+	private static class Entry {
+
+		final NodeConnection connection;
+
+		final Object key;
+
+		final SocketAddress address;
+
+		final long idleStartTime;
+
+		long lastCheckTime;
+
+		AtomicInteger nodeSize;
+
+		Entry(NodeConnection connection, Object key, long idleStartTime) {
+			this.connection = connection;
+			this.key = key;
+			this.address = connection.getRemoteSocketAddress();
+			this.idleStartTime = idleStartTime;
+			this.lastCheckTime = idleStartTime;
+		}
+
+	}
+
 }
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -72,6 +73,8 @@ class NodeResolver implements Closeable {
 
 	private final NodeConnectionPool pool;
 
+	private final ReentrantLock lock = new ReentrantLock();
+
 	private final boolean ipv6Enabled;
 
 	private final InetSocketAddress notificationAddress;
@@ -198,33 +201,60 @@ class NodeResolver implements Closeable {
 		return dest;
 	}
 
-	public synchronized void setConnectionConfig(
-			NodeConnection.Config connectionConfig) {
-		this.connectionConfig.set(connectionConfig, false);
+	public void setConnectionConfig(NodeConnection.Config connectionConfig) {
+		lock.lock();
+		try {
+			this.connectionConfig.set(connectionConfig, false);
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void setNotificationReceiveTimeoutMillis(long timeout) {
-		notificationReceiveTimeoutMillis = timeout;
+	public void setNotificationReceiveTimeoutMillis(long timeout) {
+		lock.lock();
+		try {
+			notificationReceiveTimeoutMillis = timeout;
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
-	public synchronized void setPreferableConnectionPoolSize(int size) {
-		if (size >= 0 && preferableConnectionPoolSize != size) {
-			preferableConnectionPoolSize = size;
-			updateConnectionPoolSize();
+	public void setPreferableConnectionPoolSize(int size) {
+		lock.lock();
+		try {
+			if (size >= 0 && preferableConnectionPoolSize != size) {
+				preferableConnectionPoolSize = size;
+				updateConnectionPoolSize();
+			}
+		}
+		finally {
+			lock.unlock();
 		}
 	}
 
-	public synchronized void setProtocolConfig(ProtocolConfig protocolConfig) {
-		this.protocolConfig = protocolConfig;
+	public void setProtocolConfig(ProtocolConfig protocolConfig) {
+		lock.lock();
+		try {
+			this.protocolConfig = protocolConfig;
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	public int getPartitionCount(ClusterInfo clusterInfo) throws GSException {
 		if (clusterInfo.getPartitionCount() == null) {
 			final long startTrialCount = connectionTrialCounter;
-			synchronized (this) {
+			lock.lock();
+			try {
 				prepareConnectionAndClusterInfo(clusterInfo, startTrialCount);
 				applyMasterCacheCounter(clusterInfo);
 			}
+			finally {
+				lock.unlock();
+			}
 		}
 		return clusterInfo.getPartitionCount();
 	}
@@ -233,10 +263,14 @@ class NodeResolver implements Closeable {
 			throws GSException {
 		if (clusterInfo.getHashMode() == null) {
 			final long startTrialCount = connectionTrialCounter;
-			synchronized (this) {
+			lock.lock();
+			try {
 				prepareConnectionAndClusterInfo(clusterInfo, startTrialCount);
 				applyMasterCacheCounter(clusterInfo);
 			}
+			finally {
+				lock.unlock();
+			}
 		}
 		return clusterInfo.getHashMode();
 	}
@@ -244,10 +278,14 @@ class NodeResolver implements Closeable {
 	public long getDatabaseId(ClusterInfo clusterInfo) throws GSException {
 		if (clusterInfo.getDatabaseId() == null) {
 			final long startTrialCount = connectionTrialCounter;
-			synchronized (this) {
+			lock.lock();
+			try {
 				prepareConnectionAndClusterInfo(clusterInfo, startTrialCount);
 				applyMasterCacheCounter(clusterInfo);
 			}
+			finally {
+				lock.unlock();
+			}
 		}
 		return clusterInfo.getDatabaseId();
 	}
@@ -270,12 +308,16 @@ class NodeResolver implements Closeable {
 			final long startTrialCount = connectionTrialCounter;
 
 			final InetSocketAddress[] addressList;
-			synchronized (this) {
+			lock.lock();
+			try {
 				addressList = getNodeAddressList(
 						clusterInfo, partitionId, true, startTrialCount, false,
 						false);
 				applyMasterCacheCounter(clusterInfo);
 			}
+			finally {
+				lock.unlock();
+			}
 			for (InetSocketAddress address : addressList) {
 				set.add(address);
 			}
@@ -287,7 +329,8 @@ class NodeResolver implements Closeable {
 	public InetSocketAddress getMasterAddress(ClusterInfo clusterInfo)
 			throws GSException {
 		final long startTrialCount = connectionTrialCounter;
-		synchronized (this) {
+		lock.lock();
+		try {
 			if (masterAddress == null) {
 				prepareConnectionAndClusterInfo(clusterInfo, startTrialCount);
 			}
@@ -295,6 +338,9 @@ class NodeResolver implements Closeable {
 
 			return masterAddress;
 		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	public InetSocketAddress getNodeAddress(
@@ -310,12 +356,16 @@ class NodeResolver implements Closeable {
 		final long startTrialCount = connectionTrialCounter;
 
 		final InetSocketAddress[] addressList;
-		synchronized (this) {
+		lock.lock();
+		try {
 			addressList = getNodeAddressList(
 					clusterInfo, partitionId, backupPreferred, startTrialCount,
 					false, true);
 			applyMasterCacheCounter(clusterInfo);
 		}
+		finally {
+			lock.unlock();
+		}
 
 		final int backupCount = addressList.length - 1;
 		if (backupPreferred && backupCount > 0) {
@@ -344,18 +394,28 @@ class NodeResolver implements Closeable {
 		final long startTrialCount = connectionTrialCounter;
 
 		final InetSocketAddress[] addressList;
-		synchronized (this) {
+		lock.lock();
+		try {
 			addressList = getNodeAddressList(
 					clusterInfo, partitionId, true, startTrialCount, false,
 					true);
 			applyMasterCacheCounter(clusterInfo);
 		}
+		finally {
+			lock.unlock();
+		}
 
 		return Arrays.copyOf(addressList, addressList.length);
 	}
 
-	public synchronized void invalidateMaster(ClusterInfo clusterInfo) {
-		invalidateMasterInternal(clusterInfo, false);
+	public void invalidateMaster(ClusterInfo clusterInfo) {
+		lock.lock();
+		try {
+			invalidateMasterInternal(clusterInfo, false);
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	private InetSocketAddress[] getNodeAddressList(
@@ -892,22 +952,28 @@ class NodeResolver implements Closeable {
 		}
 	}
 
-	private synchronized void releaseMasterCache(boolean forceClose)
+	private void releaseMasterCache(boolean forceClose)
 			throws GSException {
-		nodeAddressMap.clear();
-		addressCache.clear();
+		lock.lock();
+		try {
+			nodeAddressMap.clear();
+			addressCache.clear();
 
-		if (masterConnection != null) {
-			final NodeConnection connection = masterConnection;
-			masterConnection = null;
+			if (masterConnection != null) {
+				final NodeConnection connection = masterConnection;
+				masterConnection = null;
 
-			if (forceClose) {
-				connection.close();
-			}
-			else {
-				pool.add(connection);
+				if (forceClose) {
+					connection.close();
+				}
+				else {
+					pool.add(connection);
+				}
 			}
 		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	private void applyMasterCacheCounter(ClusterInfo clusterInfo) {
@@ -1076,7 +1142,7 @@ class NodeResolver implements Closeable {
 		return networkInterface;
 	}
 
-	public synchronized void close() throws GSException {
+	public void close() throws GSException {
 		releaseMasterCache(false);
 	}
 
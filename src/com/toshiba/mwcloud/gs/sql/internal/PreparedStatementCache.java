@@ -0,0 +1,121 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class PreparedStatementCache {
+
+	private final Map<Object, Entry> entryMap =
+			new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Object, Entry> eldest) {
+					return size() > maxSize;
+				}
+			};
+
+	private int maxSize;
+
+	private boolean configured;
+
+	private long hitCount;
+
+	private long missCount;
+
+	static Object createKey(String url, String dbName, String sql) {
+		return Arrays.asList(url, dbName, sql);
+	}
+
+	synchronized boolean configure(int maxSize) {
+		if (configured) {
+			return false;
+		}
+
+		configured = true;
+		setMaxSize(maxSize);
+		return true;
+	}
+
+	synchronized void setMaxSize(int maxSize) {
+		this.maxSize = Math.max(maxSize, 0);
+		if (entryMap.size() > this.maxSize) {
+			final int removingCount = entryMap.size() - this.maxSize;
+			final Iterator<Object> it = entryMap.keySet().iterator();
+			for (int i = 0; i < removingCount; i++) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+
+	synchronized Entry get(Object key) {
+		final Entry entry = entryMap.get(key);
+		if (entry == null) {
+			missCount++;
+		}
+		else {
+			hitCount++;
+		}
+		return entry;
+	}
+
+	synchronized void put(Object key, Entry entry) {
+		if (maxSize <= 0) {
+			return;
+		}
+		entryMap.put(key, entry);
+	}
+
+	synchronized void remove(Object key) {
+		entryMap.remove(key);
+	}
+
+	synchronized void clear() {
+		entryMap.clear();
+	}
+
+	synchronized int size() {
+		return entryMap.size();
+	}
+
+	synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	synchronized long getMissCount() {
+		return missCount;
+	}
+
+	static class Entry {
+
+		final int parameterCount;
+
+		final RowMapper mapper;
+
+		Entry(int parameterCount, RowMapper mapper) {
+			this.parameterCount = parameterCount;
+			this.mapper = mapper;
+		}
+
+	}
+
+}
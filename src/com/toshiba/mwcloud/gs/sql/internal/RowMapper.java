@@ -15,6 +15,8 @@
 */
 package com.toshiba.mwcloud.gs.sql.internal;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
@@ -22,6 +24,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.sql.Blob;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -78,6 +81,10 @@ class RowMapper {
 
 	private static final int MAX_VAR_SIZE_LENGTH = 8;
 
+	private static final int BLOB_INPUT_CHUNK_SIZE = 64 * 1024;
+
+	private static final int LAZY_STRING_MIN_BYTES = 1024;
+
 	public enum MappingMode {
 		NORMAL,
 		ROWWISE_SEPARATED,
@@ -138,6 +145,8 @@ class RowMapper {
 
 	private transient Object[] emptyFieldArray;
 
+	private transient int[] directFieldOffsets;
+
 	private RowMapper(
 			Class<?> rowType, Constructor<?> rowConstructor,
 			Map<String, Entry> entryMap,
@@ -662,10 +671,38 @@ class RowMapper {
 		return false;
 	}
 
-	private int getVariableEntryCount() {
+	int getVariableEntryCount() {
 		return variableEntryCount;
 	}
 
+	ElementType getDirectFieldType(int columnId) {
+		if (columnId < 0 || columnId >= entryList.size()) {
+			return null;
+		}
+
+		final DetailElementType type = getEntry(columnId).getDetailType();
+		if (type.hasVarDataPart()) {
+			return null;
+		}
+		return type.base();
+	}
+
+	private int getDirectFieldOffset(int columnId) {
+		int[] offsets = directFieldOffsets;
+		if (offsets == null) {
+			final MappingMode mode = MappingMode.ROWWISE_SEPARATED_V2;
+			offsets = new int[entryList.size()];
+			int offset = (variableEntryCount > 0 ? Long.SIZE / Byte.SIZE : 0) +
+					getNullsByteSize(entryList.size());
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = offset;
+				offset += getFixedFieldPartSize(i, mode);
+			}
+			directFieldOffsets = offsets;
+		}
+		return offsets[columnId];
+	}
+
 	public ContainerType getContainerType() {
 		if (rowType == AggregationResult.class) {
 			return null;
@@ -839,7 +876,7 @@ class RowMapper {
 			case LONG:
 				return Long.parseLong(keyString);
 			case TIMESTAMP:
-				return TimestampUtils.getFormat().parse(keyString);
+				return TimestampUtils.parse(keyString);
 			default:
 				throw new IllegalStateException();
 			}
@@ -1894,7 +1931,7 @@ class RowMapper {
 		return (int)((fieldNum + 7) / 8);
 	}
 
-	private int getFixedRowPartSize(boolean rowIdIncluded, MappingMode mode) {
+	int getFixedRowPartSize(boolean rowIdIncluded, MappingMode mode) {
 		int size = (rowIdIncluded ? Long.SIZE / Byte.SIZE : 0);
 		if (mode == MappingMode.ROWWISE_SEPARATED_V2) { 
 			size += getNullsByteSize(entryList.size());
@@ -2342,6 +2379,12 @@ class RowMapper {
 				break;
 			case BLOB: {
 				cursor.beginVarDataOutput();
+				if (fieldObj instanceof BlobImpl &&
+						((BlobImpl) fieldObj).isInputPending()) {
+					putBlobInput(cursor, out, (BlobImpl) fieldObj);
+					cursor.endVarData();
+					break;
+				}
 				final byte[] rawArray;
 				try {
 					if (fieldObj instanceof BlobImpl) {
@@ -2404,6 +2447,90 @@ class RowMapper {
 		}
 	}
 
+	private static void putBlobInput(
+			Cursor cursor, BasicBuffer out, BlobImpl blob)
+			throws GSException {
+		final long length = blob.getPendingLength();
+		final long limit = blob.getPendingLimit();
+		final InputStream input = blob.takePendingInput();
+		try {
+			if (length >= 0) {
+				if (cursor.isVarSizeMode()) {
+					putVarSize(out, (int) length);
+				}
+				else {
+					out.putInt((int) length);
+				}
+				out.prepare((int) length);
+				final ByteBuffer base = out.base();
+				int remaining = (int) length;
+				while (remaining > 0) {
+					final int count = input.read(
+							base.array(), base.arrayOffset() + base.position(),
+							remaining);
+					if (count < 0) {
+						throw new GSException(
+								GSErrorCode.ILLEGAL_PARAMETER,
+								"Blob input stream ended before the " +
+								"specified length (length=" + length +
+								", read=" + (length - remaining) + ")");
+					}
+					base.position(base.position() + count);
+					remaining -= count;
+				}
+				return;
+			}
+
+			final int orgPos = out.base().position();
+			final int estimatedHeadSize = Integer.SIZE / Byte.SIZE;
+			out.prepare(estimatedHeadSize);
+			out.base().position(orgPos + estimatedHeadSize);
+
+			long totalSize = 0;
+			for (;;) {
+				out.prepare(BLOB_INPUT_CHUNK_SIZE);
+				final ByteBuffer base = out.base();
+				final int count = input.read(
+						base.array(), base.arrayOffset() + base.position(),
+						BLOB_INPUT_CHUNK_SIZE);
+				if (count < 0) {
+					break;
+				}
+				totalSize += count;
+				if (totalSize > limit) {
+					throw new GSException(
+							GSErrorCode.SIZE_VALUE_OUT_OF_RANGE,
+							"Blob input stream exceeded the size limit " +
+							"(limit=" + limit + ")");
+				}
+				base.position(base.position() + count);
+			}
+
+			int endPos = out.base().position();
+			if (cursor.isVarSizeMode()) {
+				final int actualHeadSize = getEncodedLength((int) totalSize);
+				if (estimatedHeadSize != actualHeadSize) {
+					out.prepare(actualHeadSize - estimatedHeadSize);
+					final byte[] rawBuf = out.base().array();
+					System.arraycopy(
+							rawBuf, orgPos + estimatedHeadSize,
+							rawBuf, orgPos + actualHeadSize, (int) totalSize);
+					endPos = orgPos + (actualHeadSize + (int) totalSize);
+				}
+				out.base().position(orgPos);
+				putVarSizePrepared(out, (int) totalSize);
+			}
+			else {
+				out.base().position(orgPos);
+				out.base().putInt((int) totalSize);
+			}
+			out.base().position(endPos);
+		}
+		catch (IOException e) {
+			throw new GSException(e);
+		}
+	}
+
 	private static Object getField(
 			Cursor cursor, DetailElementType type, FieldAccessMode accessMode)
 			throws GSException {
@@ -2509,7 +2636,7 @@ class RowMapper {
 			switch (type.base()) {
 			case STRING:
 				cursor.beginVarDataInput();
-				result = getString(in, cursor.isVarSizeMode());
+				result = getStringField(cursor, in);
 				cursor.endVarData();
 				return result;
 			case BOOL:
@@ -2564,6 +2691,15 @@ class RowMapper {
 				else {
 					length = in.base().getInt();
 				}
+				final ByteBuffer base = in.base();
+				if (cursor.lazyLargeValues && base.hasArray()) {
+					final Blob blob = BlobImpl.ofView(
+							base.array(), base.arrayOffset() + base.position(),
+							length);
+					base.position(base.position() + length);
+					cursor.endVarData();
+					return blob;
+				}
 				final byte[] rawArray = new byte[length];
 				in.base().get(rawArray);
 				final Blob blob;
@@ -3060,6 +3196,7 @@ class RowMapper {
 		void decode(
 				Cursor cursor, Object keyObj, Object rowObj,
 				FieldAccessMode accessMode) throws GSException {
+			cursor.stringColumn = order;
 			Object fieldObj = getField(cursor, getDetailType(), accessMode);
 			if (cursor.isNull(order)) {
 				if (objectNullable && columnNullable) {
@@ -3077,6 +3214,7 @@ class RowMapper {
 		void decodeNoNull(
 				Cursor cursor, Object keyObj, Object rowObj,
 				FieldAccessMode accessMode) throws GSException {
+			cursor.stringColumn = order;
 			final Object fieldObj =
 					getField(cursor, getDetailType(), accessMode);
 			setFieldObj(
@@ -3246,6 +3384,12 @@ class RowMapper {
 
 		private boolean onAnyData;
 
+		private boolean lazyLargeValues;
+
+		private StringDictionary stringDictionary;
+
+		private int stringColumn;
+
 		private SchemaFeatureLevel outputFeatureLevel;
 
 		private Cursor(
@@ -3291,6 +3435,14 @@ class RowMapper {
 			this.varDataBaseOffset = varDataBaseOffset;
 		}
 
+		public void setLazyLargeValues(boolean lazyLargeValues) {
+			this.lazyLargeValues = lazyLargeValues;
+		}
+
+		void setStringDictionary(StringDictionary stringDictionary) {
+			this.stringDictionary = stringDictionary;
+		}
+
 		public int getRowCount() {
 			return rowCount;
 		}
@@ -3338,6 +3490,63 @@ class RowMapper {
 			buffer = null;
 		}
 
+		public void skipRow() throws GSException {
+			if (mode != MappingMode.ROWWISE_SEPARATED_V2 || rowIdIncluded) {
+				throw new IllegalStateException();
+			}
+
+			beginRowInput();
+			buffer.base().position(topPos + fixedRowPartSize * (rowIndex + 1));
+			endRowInput();
+		}
+
+		void seekRow(int row) {
+			if (mode != MappingMode.ROWWISE_SEPARATED_V2 || rowIdIncluded ||
+					row < 0 || row >= rowCount) {
+				throw new IllegalStateException();
+			}
+
+			final ByteBuffer base = buffer.base();
+			if (getVariableEntryCount() > 0) {
+				partialVarDataOffset = (int) base.getLong(topPos);
+			}
+			rowIndex = row - 1;
+			fieldIndex = -1;
+			pendingPos = -1;
+			base.position(topPos + fixedRowPartSize * row);
+		}
+
+		int getPendingFieldPosition(int columnId) {
+			return getFieldPosition(rowIndex + 1, columnId);
+		}
+
+		int getFieldPosition(int row, int columnId) {
+			if (mode != MappingMode.ROWWISE_SEPARATED_V2 || rowIdIncluded ||
+					row < 0 || row >= rowCount ||
+					getDirectFieldType(columnId) == null) {
+				return -1;
+			}
+
+			final ByteBuffer base = buffer.base();
+			final int rowPos = topPos + fixedRowPartSize * row;
+			final int nullsPos = rowPos +
+					(getVariableEntryCount() > 0 ? Long.SIZE / Byte.SIZE : 0);
+			if ((base.get(nullsPos + columnId / Byte.SIZE) &
+					(1 << (columnId % Byte.SIZE))) != 0) {
+				return -1;
+			}
+
+			return rowPos + getDirectFieldOffset(columnId);
+		}
+
+		ByteBuffer getInputBuffer() {
+			return buffer.base();
+		}
+
+		ElementType getDirectFieldType(int columnId) {
+			return RowMapper.this.getDirectFieldType(columnId);
+		}
+
 		public void decode(boolean general, Object rowObj) throws GSException {
 			final FieldAccessMode accessMode = FieldAccessMode.of(general, rowObj);
 			if (mode == MappingMode.AGGREGATED) {
@@ -6098,14 +6307,60 @@ class RowMapper {
 	}
 
 	static String getString(BasicBuffer in, boolean varSizeMode) throws GSException {
+		final ByteBuffer base = in.base();
 		final int bytesLength =
-				varSizeMode ? getVarSize(in) : in.base().getInt();
+				varSizeMode ? getVarSize(in) : base.getInt();
+
+		if (base.hasArray()) {
+			final int pos = base.position();
+			final String str = new String(
+					base.array(), base.arrayOffset() + pos, bytesLength,
+					BasicBuffer.DEFAULT_CHARSET);
+			base.position(pos + bytesLength);
+			return str;
+		}
 
 		final byte[] buf = new byte[bytesLength];
-		in.base().get(buf);
+		base.get(buf);
 		return new String(buf, 0, buf.length, BasicBuffer.DEFAULT_CHARSET);
 	}
 
+	private static Object getStringField(Cursor cursor, BasicBuffer in)
+			throws GSException {
+		final StringDictionary dictionary = cursor.stringDictionary;
+		if (!cursor.lazyLargeValues && dictionary == null) {
+			return getString(in, cursor.isVarSizeMode());
+		}
+
+		final ByteBuffer base = in.base();
+		final int bytesLength =
+				cursor.isVarSizeMode() ? getVarSize(in) : base.getInt();
+
+		final byte[] array;
+		final int offset;
+		if (base.hasArray()) {
+			array = base.array();
+			offset = base.arrayOffset() + base.position();
+			base.position(base.position() + bytesLength);
+		}
+		else {
+			array = new byte[bytesLength];
+			offset = 0;
+			base.get(array);
+		}
+
+		if (cursor.lazyLargeValues && bytesLength >= LAZY_STRING_MIN_BYTES &&
+				base.hasArray()) {
+			return new LazyString(array, offset, bytesLength);
+		}
+		else if (dictionary != null) {
+			return dictionary.decode(
+					cursor.stringColumn, array, offset, bytesLength);
+		}
+		return new String(
+				array, offset, bytesLength, BasicBuffer.DEFAULT_CHARSET);
+	}
+
 	static void putMicroTimestamp(BasicBuffer out, Timestamp ts)
 			throws GSException {
 		out.prepare(DetailElementType.MICRO_TIMESTAMP.getBaseFixedSize());
@@ -6212,4 +6467,26 @@ class RowMapper {
 		return ts;
 	}
 
+	static class LazyString {
+
+		private final byte[] array;
+
+		private final int offset;
+
+		private final int length;
+
+		LazyString(byte[] array, int offset, int length) {
+			this.array = array;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public String toString() {
+			return new String(
+					array, offset, length, BasicBuffer.DEFAULT_CHARSET);
+		}
+
+	}
+
 }
@@ -58,10 +58,14 @@ import java.util.SimpleTimeZone;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
 
+import com.toshiba.mwcloud.gs.sql.GridStoreConnection;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics.Operation;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.LoginInfo;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.OptionalRequest;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.SocketType;
@@ -72,7 +76,8 @@ import com.toshiba.mwcloud.gs.sql.internal.SQLStatement.StatementOperation;
 import com.toshiba.mwcloud.gs.sql.internal.common.DriverProvider.TransportProvider;
 import com.toshiba.mwcloud.gs.sql.internal.proxy.ProxyTargetInstanceFactory;
 
-class SQLConnection implements Connection, LaterConnection {
+class SQLConnection
+implements Connection, LaterConnection, GridStoreConnection {
 
 	static final int SQL_STATEMENT_TYPE = 400;
 
@@ -138,6 +143,69 @@ class SQLConnection implements Connection, LaterConnection {
 	private static final String CATALOG_AND_SCHEMA_IGNORABLE_NAME =
 			"catalogAndSchemaIgnorable";
 
+	private static final String PREFETCH_BLOCKS_NAME = "prefetchBlocks";
+
+	private static final String FETCH_BYTES_SIZE_NAME = "fetchBytesSize";
+
+	private static final String SOCKET_POOLING_NAME = "socketPooling";
+
+	private static final String SOCKET_POOL_MAX_SIZE_NAME = "socketPoolMaxSize";
+
+	private static final String SOCKET_POOL_MAX_SIZE_PER_NODE_NAME =
+			"socketPoolMaxSizePerNode";
+
+	private static final String SOCKET_POOL_IDLE_TIMEOUT_NAME =
+			"socketPoolIdleTimeout";
+
+	private static final String STATEMENT_CACHE_SIZE_NAME =
+			"preparedStatementCacheSize";
+
+	private static final String STATEMENT_CACHE_SHARED_NAME =
+			"preparedStatementCacheShared";
+
+	private static final String BATCH_CHUNK_ROWS_NAME = "batchChunkRows";
+
+	private static final String BATCH_CHUNK_BYTES_NAME = "batchChunkBytes";
+
+	private static final String BATCH_PIPELINING_NAME = "batchPipelining";
+
+	private static final String BATCH_DIRECT_ENCODING_NAME =
+			"batchDirectEncoding";
+
+	private static final String LAZY_ROW_DECODING_NAME = "lazyRowDecoding";
+
+	private static final String TRANSFER_COMPRESSION_NAME =
+			"transferCompression";
+
+	private static final String BUFFER_POOLING_NAME = "bufferPooling";
+
+	private static final String BUFFER_LEAK_DETECTION_NAME =
+			"bufferLeakDetection";
+
+	private static final String SOCKET_CHANNEL_NAME = "socketChannel";
+
+	private static final String METRICS_NAME = "metrics";
+
+	private static final String TRACE_SAMPLING_NAME = "traceSampling";
+
+	private static final String TRACE_JSON_NAME = "traceJson";
+
+	private static final String EXECUTION_TIMING_NAME = "executionTiming";
+
+	private static final String BLOB_STREAM_LIMIT_NAME = "blobStreamLimit";
+
+	private static final String BLOB_STREAMING_NAME = "blobStreaming";
+
+	private static final String LAZY_LARGE_VALUES_NAME = "lazyLargeValues";
+
+	private static final String BLOB_SPILL_THRESHOLD_NAME =
+			"blobSpillThreshold";
+
+	private static final String STRING_DICTIONARY_SIZE_NAME =
+			"stringDictionarySize";
+
+	private static final String SCROLL_CACHE_SIZE_NAME = "scrollCacheSize";
+
 	private static final long DEFAULT_LOGIN_TIMEOUT = 5 * 60 * 1000;
 
 	private static final long DEFAULT_NETWORK_TIMEOUT = 5 * 60 * 1000;
@@ -148,6 +216,58 @@ class SQLConnection implements Connection, LaterConnection {
 
 	private static final boolean DEFAULT_CATALOG_AND_SCHEMA_IGNORABLE = true;
 
+	private static final int DEFAULT_PREFETCH_BLOCKS = 0;
+
+	private static final int DEFAULT_FETCH_BYTES_SIZE = 0;
+
+	private static final boolean DEFAULT_SOCKET_POOLING = false;
+
+	private static final long DEFAULT_SOCKET_POOL_IDLE_TIMEOUT = 60 * 1000;
+
+	private static final int DEFAULT_STATEMENT_CACHE_SIZE = 0;
+
+	private static final boolean DEFAULT_STATEMENT_CACHE_SHARED = false;
+
+	private static final int DEFAULT_BATCH_CHUNK_ROWS = 0;
+
+	private static final int DEFAULT_BATCH_CHUNK_BYTES = 0;
+
+	private static final boolean DEFAULT_BATCH_PIPELINING = false;
+
+	private static final boolean DEFAULT_BATCH_DIRECT_ENCODING = false;
+
+	private static final boolean DEFAULT_LAZY_ROW_DECODING = false;
+
+	private static final boolean DEFAULT_TRANSFER_COMPRESSION = false;
+
+	private static final boolean DEFAULT_BUFFER_POOLING = false;
+
+	private static final boolean DEFAULT_BUFFER_LEAK_DETECTION = false;
+
+	private static final boolean DEFAULT_SOCKET_CHANNEL = false;
+
+	private static final boolean DEFAULT_METRICS = false;
+
+	private static final int DEFAULT_TRACE_SAMPLING = 0;
+
+	private static final boolean DEFAULT_TRACE_JSON = false;
+
+	private static final boolean DEFAULT_EXECUTION_TIMING = false;
+
+	private static final int DEFAULT_BLOB_STREAM_LIMIT = 0;
+
+	private static final boolean DEFAULT_BLOB_STREAMING = false;
+
+	private static final boolean DEFAULT_LAZY_LARGE_VALUES = false;
+
+	private static final int DEFAULT_BLOB_SPILL_THRESHOLD = 0;
+
+	private static final int DEFAULT_STRING_DICTIONARY_SIZE = 0;
+
+	private static final int DEFAULT_SCROLL_CACHE_SIZE = 16 * 1024 * 1024;
+
+	private static final int MAX_POOLED_BUFFER_SIZE = 16 * 1024 * 1024;
+
 	private static int sqlProtocolVersion = -9;
 
 	private final List<InetSocketAddress> addressList;
@@ -168,12 +288,32 @@ class SQLConnection implements Connection, LaterConnection {
 
 	private final NodeResolver nodeResolver;
 
+	private final NodeConnectionPool socketPool;
+
+	private final PreparedStatementCache sharedStatementCache;
+
+	private final PreparedStatementCache localStatementCache =
+			new PreparedStatementCache();
+
+	private final BufferPool bufferPool;
+
+	private final AsyncStatementDispatcher asyncDispatcher;
+
+	private final DriverMetrics driverMetrics;
+
 	private final QueryPool queryPool = new QueryPool();
 
 	private final Hook hook = new Hook();
 
+	private final NodeConnection.CompressionStats compressionStats =
+			new NodeConnection.CompressionStats();
+
 	private final UUID uuid = UUID.randomUUID();
 
+	private final CallTracer tracer = new CallTracer(uuid.toString());
+
+	private final ReentrantLock executionLock = new ReentrantLock();
+
 	private BaseConnection base;
 
 	private BasicBuffer req;
@@ -199,6 +339,62 @@ class SQLConnection implements Connection, LaterConnection {
 	private boolean catalogAndSchemaIgnorable =
 			DEFAULT_CATALOG_AND_SCHEMA_IGNORABLE;
 
+	private int prefetchBlocks = DEFAULT_PREFETCH_BLOCKS;
+
+	private int fetchBytesSize = DEFAULT_FETCH_BYTES_SIZE;
+
+	private boolean socketPooling = DEFAULT_SOCKET_POOLING;
+
+	private int socketPoolMaxSize = -1;
+
+	private int socketPoolMaxSizePerNode = -1;
+
+	private long socketPoolIdleTimeoutMillis = -1;
+
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+	private boolean statementCacheShared = DEFAULT_STATEMENT_CACHE_SHARED;
+
+	private int batchChunkRows = DEFAULT_BATCH_CHUNK_ROWS;
+
+	private int batchChunkBytes = DEFAULT_BATCH_CHUNK_BYTES;
+
+	private boolean batchPipelining = DEFAULT_BATCH_PIPELINING;
+
+	private boolean batchDirectEncoding = DEFAULT_BATCH_DIRECT_ENCODING;
+
+	private boolean lazyRowDecoding = DEFAULT_LAZY_ROW_DECODING;
+
+	private boolean transferCompression = DEFAULT_TRANSFER_COMPRESSION;
+
+	private boolean bufferPooling = DEFAULT_BUFFER_POOLING;
+
+	private boolean bufferLeakDetection = DEFAULT_BUFFER_LEAK_DETECTION;
+
+	private boolean socketChannel = DEFAULT_SOCKET_CHANNEL;
+
+	private boolean metricsEnabled = DEFAULT_METRICS;
+
+	private volatile DriverMetrics metrics;
+
+	private int traceSampling = DEFAULT_TRACE_SAMPLING;
+
+	private boolean traceJson = DEFAULT_TRACE_JSON;
+
+	private volatile boolean executionTiming = DEFAULT_EXECUTION_TIMING;
+
+	private int blobStreamLimit = DEFAULT_BLOB_STREAM_LIMIT;
+
+	private boolean blobStreaming = DEFAULT_BLOB_STREAMING;
+
+	private boolean lazyLargeValues = DEFAULT_LAZY_LARGE_VALUES;
+
+	private int blobSpillThreshold = DEFAULT_BLOB_SPILL_THRESHOLD;
+
+	private int stringDictionarySize = DEFAULT_STRING_DICTIONARY_SIZE;
+
+	private int scrollCacheSize = DEFAULT_SCROLL_CACHE_SIZE;
+
 	private boolean initialized;
 
 	private boolean transactionStarted;
@@ -282,6 +478,13 @@ class SQLConnection implements Connection, LaterConnection {
 			loginTimeoutMillis = DEFAULT_LOGIN_TIMEOUT;
 		}
 
+		socketPool = options.getSocketPool();
+		sharedStatementCache = options.getStatementCache();
+		bufferPool = options.getBufferPool();
+		driverMetrics = options.getMetrics();
+		asyncDispatcher = new AsyncStatementDispatcher(
+				this, executionLock, options.getChannelReactor());
+
 		final Map<String, ClientInfoStatus> failedProperties =
 				new HashMap<String, ClientInfoStatus>();
 		setClientInfo(uriQuery, failedProperties, true);
@@ -324,11 +527,17 @@ class SQLConnection implements Connection, LaterConnection {
 		}
 
 		final SQLStatement statement = new SQLStatement(this);
+		boolean succeeded = false;
 		try {
 			statement.execute((StatementOperation) null, false);
+			succeeded = true;
 		}
 		finally {
 			statement.close();
+			if (!succeeded && metrics != null) {
+				driverMetrics.closeConnectionMetrics(metrics);
+				metrics = null;
+			}
 		}
 
 		initialized = true;
@@ -851,6 +1060,18 @@ class SQLConnection implements Connection, LaterConnection {
 		config.setSocketConfig(socketTypes, socketFactories);
 	}
 
+	private static void applyPlainSocketFactory(
+			NodeConnection.Config config, boolean socketChannel) {
+		final Map<SocketType, SocketFactory> socketFactories =
+				new EnumMap<SocketType, SocketFactory>(SocketType.class);
+		socketFactories.putAll(config.getSocketFactories());
+		socketFactories.put(SocketType.PLAIN, (socketChannel ?
+				NodeConnection.ChannelSocketFactory.getInstance() :
+				SocketFactory.getDefault()));
+		config.setSocketConfig(
+				config.getAcceptableSocketTypes(), socketFactories);
+	}
+
 	private static Properties resolveTransportProperties(
 			Properties props, TransportProvider transProvider)
 			throws IOException {
@@ -861,27 +1082,25 @@ class SQLConnection implements Connection, LaterConnection {
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
-		throw SQLErrorUtils.errorUnwrapping();
+		if (!isWrapperFor(iface)) {
+			throw SQLErrorUtils.errorUnwrapping();
+		}
+		return iface.cast(this);
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
-		return false;
+		return iface != null && iface.isInstance(this);
 	}
 
 	@Override
 	public Statement createStatement() throws SQLException {
-		checkOpened();
-		ProxyTargetInstanceFactory proxyTargetInstanceFactory = ProxyTargetInstanceFactory.getInstance();
-		return proxyTargetInstanceFactory.getTargetInstance(new SQLStatement(this));
+		return createStatementDirect(ResultSet.TYPE_FORWARD_ONLY);
 	}
 
 	@Override
 	public PreparedStatement prepareStatement(String sql) throws SQLException {
-		checkOpened();
-		SQLErrorUtils.checkNullParameter(sql, "sql", null);
-		ProxyTargetInstanceFactory proxyTargetInstanceFactory = ProxyTargetInstanceFactory.getInstance();
-		return proxyTargetInstanceFactory.getTargetInstance(new SQLPreparedStatement(this, sql));
+		return prepareStatementDirect(sql, ResultSet.TYPE_FORWARD_ONLY);
 	}
 
 	@Override
@@ -922,14 +1141,31 @@ class SQLConnection implements Connection, LaterConnection {
 
 	@Override
 	public void close() throws SQLException {
+		final DriverMetrics metrics = this.metrics;
+		final long startNanos = (metrics == null ? 0 : System.nanoTime());
 		closed = true;
+		asyncDispatcher.close();
 		try {
 			try {
+				executionLock.lock();
 				try {
-					closeAllQueries();
+					awaitAsyncIdle();
+					boolean succeeded = false;
+					try {
+						closeAllQueries();
+						succeeded = true;
+					}
+					finally {
+						if (succeeded) {
+							releaseBase();
+						}
+						else {
+							disconnect(false);
+						}
+					}
 				}
 				finally {
-					disconnect(false);
+					executionLock.unlock();
 				}
 			}
 			finally {
@@ -943,6 +1179,14 @@ class SQLConnection implements Connection, LaterConnection {
 					0, "Failed to close related resources (reason=" +
 					e.getMessage() + ")", e);
 		}
+		finally {
+			if (metrics != null) {
+				metrics.recordLatency(
+						Operation.CLOSE, System.nanoTime() - startNanos);
+				driverMetrics.closeConnectionMetrics(metrics);
+				this.metrics = null;
+			}
+		}
 	}
 
 	@Override
@@ -1014,7 +1258,7 @@ class SQLConnection implements Connection, LaterConnection {
 		checkResultSetType(resultSetType);
 		checkResultSetConcurrency(resultSetConcurrency);
 
-		return createStatement();
+		return createStatementDirect(resultSetType);
 	}
 
 	@Override
@@ -1023,7 +1267,7 @@ class SQLConnection implements Connection, LaterConnection {
 		checkResultSetType(resultSetType);
 		checkResultSetConcurrency(resultSetConcurrency);
 
-		return prepareStatement(sql);
+		return prepareStatementDirect(sql, resultSetType);
 	}
 
 	@Override
@@ -1082,7 +1326,7 @@ class SQLConnection implements Connection, LaterConnection {
 		checkResultSetConcurrency(resultSetConcurrency);
 		checkHoldability(resultSetHoldability);
 
-		return createStatement();
+		return createStatementDirect(resultSetType);
 	}
 
 	@Override
@@ -1093,7 +1337,7 @@ class SQLConnection implements Connection, LaterConnection {
 		checkResultSetConcurrency(resultSetConcurrency);
 		checkHoldability(resultSetHoldability);
 
-		return prepareStatement(sql);
+		return prepareStatementDirect(sql, resultSetType);
 	}
 
 	@Override
@@ -1236,6 +1480,124 @@ class SQLConnection implements Connection, LaterConnection {
 					loginInfo.getAuthType().toPropertyString());
 		}
 
+		if (prefetchBlocks != DEFAULT_PREFETCH_BLOCKS) {
+			props.setProperty(PREFETCH_BLOCKS_NAME, "" + prefetchBlocks);
+		}
+
+		if (fetchBytesSize != DEFAULT_FETCH_BYTES_SIZE) {
+			props.setProperty(FETCH_BYTES_SIZE_NAME, "" + fetchBytesSize);
+		}
+
+		if (socketPooling != DEFAULT_SOCKET_POOLING) {
+			props.setProperty(SOCKET_POOLING_NAME, "" + socketPooling);
+		}
+
+		if (socketPoolMaxSize >= 0) {
+			props.setProperty(SOCKET_POOL_MAX_SIZE_NAME, "" + socketPoolMaxSize);
+		}
+
+		if (socketPoolMaxSizePerNode >= 0) {
+			props.setProperty(
+					SOCKET_POOL_MAX_SIZE_PER_NODE_NAME,
+					"" + socketPoolMaxSizePerNode);
+		}
+
+		if (socketPoolIdleTimeoutMillis >= 0) {
+			props.setProperty(SOCKET_POOL_IDLE_TIMEOUT_NAME,
+					formatTimeoutProperty(socketPoolIdleTimeoutMillis));
+		}
+
+		if (statementCacheSize != DEFAULT_STATEMENT_CACHE_SIZE) {
+			props.setProperty(
+					STATEMENT_CACHE_SIZE_NAME, "" + statementCacheSize);
+		}
+
+		if (statementCacheShared != DEFAULT_STATEMENT_CACHE_SHARED) {
+			props.setProperty(
+					STATEMENT_CACHE_SHARED_NAME, "" + statementCacheShared);
+		}
+
+		if (batchChunkRows != DEFAULT_BATCH_CHUNK_ROWS) {
+			props.setProperty(BATCH_CHUNK_ROWS_NAME, "" + batchChunkRows);
+		}
+
+		if (batchChunkBytes != DEFAULT_BATCH_CHUNK_BYTES) {
+			props.setProperty(BATCH_CHUNK_BYTES_NAME, "" + batchChunkBytes);
+		}
+
+		if (batchPipelining != DEFAULT_BATCH_PIPELINING) {
+			props.setProperty(BATCH_PIPELINING_NAME, "" + batchPipelining);
+		}
+
+		if (batchDirectEncoding != DEFAULT_BATCH_DIRECT_ENCODING) {
+			props.setProperty(
+					BATCH_DIRECT_ENCODING_NAME, "" + batchDirectEncoding);
+		}
+
+		if (lazyRowDecoding != DEFAULT_LAZY_ROW_DECODING) {
+			props.setProperty(LAZY_ROW_DECODING_NAME, "" + lazyRowDecoding);
+		}
+
+		if (transferCompression != DEFAULT_TRANSFER_COMPRESSION) {
+			props.setProperty(
+					TRANSFER_COMPRESSION_NAME, "" + transferCompression);
+		}
+
+		if (bufferPooling != DEFAULT_BUFFER_POOLING) {
+			props.setProperty(BUFFER_POOLING_NAME, "" + bufferPooling);
+		}
+
+		if (bufferLeakDetection != DEFAULT_BUFFER_LEAK_DETECTION) {
+			props.setProperty(
+					BUFFER_LEAK_DETECTION_NAME, "" + bufferLeakDetection);
+		}
+
+		if (socketChannel != DEFAULT_SOCKET_CHANNEL) {
+			props.setProperty(SOCKET_CHANNEL_NAME, "" + socketChannel);
+		}
+
+		if (metricsEnabled != DEFAULT_METRICS) {
+			props.setProperty(METRICS_NAME, "" + metricsEnabled);
+		}
+
+		if (traceSampling != DEFAULT_TRACE_SAMPLING) {
+			props.setProperty(TRACE_SAMPLING_NAME, "" + traceSampling);
+		}
+
+		if (traceJson != DEFAULT_TRACE_JSON) {
+			props.setProperty(TRACE_JSON_NAME, "" + traceJson);
+		}
+
+		if (executionTiming != DEFAULT_EXECUTION_TIMING) {
+			props.setProperty(EXECUTION_TIMING_NAME, "" + executionTiming);
+		}
+
+		if (blobStreamLimit != DEFAULT_BLOB_STREAM_LIMIT) {
+			props.setProperty(BLOB_STREAM_LIMIT_NAME, "" + blobStreamLimit);
+		}
+
+		if (blobStreaming != DEFAULT_BLOB_STREAMING) {
+			props.setProperty(BLOB_STREAMING_NAME, "" + blobStreaming);
+		}
+
+		if (lazyLargeValues != DEFAULT_LAZY_LARGE_VALUES) {
+			props.setProperty(LAZY_LARGE_VALUES_NAME, "" + lazyLargeValues);
+		}
+
+		if (blobSpillThreshold != DEFAULT_BLOB_SPILL_THRESHOLD) {
+			props.setProperty(
+					BLOB_SPILL_THRESHOLD_NAME, "" + blobSpillThreshold);
+		}
+
+		if (stringDictionarySize != DEFAULT_STRING_DICTIONARY_SIZE) {
+			props.setProperty(
+					STRING_DICTIONARY_SIZE_NAME, "" + stringDictionarySize);
+		}
+
+		if (scrollCacheSize != DEFAULT_SCROLL_CACHE_SIZE) {
+			props.setProperty(SCROLL_CACHE_SIZE_NAME, "" + scrollCacheSize);
+		}
+
 		return props;
 	}
 
@@ -1284,6 +1646,70 @@ class SQLConnection implements Connection, LaterConnection {
 		for (ClientInfoKey.Entry<?> entry : entryList) {
 			entry.apply(this);
 		}
+
+		applySocketPoolConfig();
+		applyStatementCacheConfig();
+		applyBufferPoolConfig();
+		applyMetricsConfig();
+	}
+
+	private void applySocketPoolConfig() {
+		if (!socketPooling || socketPool == null) {
+			return;
+		}
+
+		if (socketPoolMaxSize < 0 && socketPoolMaxSizePerNode < 0 &&
+				socketPoolIdleTimeoutMillis < 0) {
+			return;
+		}
+
+		socketPool.configure(
+				socketPoolMaxSize, socketPoolMaxSizePerNode,
+				socketPoolIdleTimeoutMillis);
+	}
+
+	private void applyBufferPoolConfig() {
+		if (bufferPooling && bufferLeakDetection) {
+			bufferPool.setLeakDetectionEnabled(true);
+		}
+	}
+
+	private void applyMetricsConfig() {
+		if (metricsEnabled == (metrics != null) || closed) {
+			return;
+		}
+
+		if (metricsEnabled) {
+			metrics = driverMetrics.openConnectionMetrics(uuid.toString());
+		}
+		else {
+			driverMetrics.closeConnectionMetrics(metrics);
+			metrics = null;
+		}
+
+		executionLock.lock();
+		try {
+			if (base != null) {
+				base.base.setMetrics(metrics);
+			}
+		}
+		finally {
+			executionLock.unlock();
+		}
+	}
+
+	private void applyStatementCacheConfig() {
+		if (statementCacheSize <= 0) {
+			localStatementCache.clear();
+			return;
+		}
+
+		if (statementCacheShared && sharedStatementCache != null) {
+			sharedStatementCache.configure(statementCacheSize);
+		}
+		else {
+			localStatementCache.setMaxSize(statementCacheSize);
+		}
 	}
 
 	private static long getTimeoutProperty(
@@ -1317,6 +1743,30 @@ class SQLConnection implements Connection, LaterConnection {
 		}
 	}
 
+	private static int getIntProperty(
+			Map<String, ClientInfoStatus> failedProperties,
+			String name, String value) throws SQLException {
+		final int intValue;
+		try {
+			intValue = Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			failedProperties.put(name, ClientInfoStatus.REASON_VALUE_INVALID);
+			throw SQLErrorUtils.error(SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Failed to parse integer value (name=" + name +
+					", value=" + value + ", reason=" + e.getMessage() + ")", e);
+		}
+
+		if (intValue < 0) {
+			failedProperties.put(name, ClientInfoStatus.REASON_VALUE_INVALID);
+			throw SQLErrorUtils.error(SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Negative integer value (name=" + name +
+					", value=" + value + ")", null);
+		}
+
+		return intValue;
+	}
+
 	private static String formatTimeoutProperty(long timeoutMillis) {
 		final long timeoutSecs = Math.max(timeoutMillis / 1000, -1);
 		return Long.toString(timeoutSecs);
@@ -1373,41 +1823,209 @@ class SQLConnection implements Connection, LaterConnection {
 		return catalogAndSchemaIgnorable;
 	}
 
-	static void fillRequestHead(NodeConnection base, BasicBuffer req) {
-		final boolean ipv6Enabled = (((InetSocketAddress)
-				base.getRemoteSocketAddress()
-				).getAddress() instanceof Inet6Address);
-		NodeConnection.fillRequestHead(ipv6Enabled, req);
+	int getPrefetchBlocks() {
+		return prefetchBlocks;
 	}
 
-	private InetSocketAddress getNextAddress(
-			NodeConnection.Config connectionConfig)
-			throws SQLException, GSException {
-		int partitionCount;
-		if (nodeResolver == null) {
-			partitionCount = addressList.size();
-		}
-		else {
-			nodeResolver.setConnectionConfig(connectionConfig);
-			nodeResolver.setNotificationReceiveTimeoutMillis(
-					connectionConfig.getConnectTimeoutMillis());
-			partitionCount = nodeResolver.getPartitionCount(clusterInfo);
-		}
+	int getFetchBytesSize() {
+		return fetchBytesSize;
+	}
 
-		partitionCount = Math.min(partitionCount, Integer.MAX_VALUE - 1);
+	int getBatchChunkRows() {
+		return batchChunkRows;
+	}
 
-		if (preferablePartitionId < 0) {
-			if (partitionCount == 0) {
-				throw new Error();
-			}
-			preferablePartitionId = (int) ((uuid.getLeastSignificantBits() &
-					((long)(1L << Integer.SIZE) - 1)) % partitionCount);
+	int getBatchChunkBytes() {
+		return batchChunkBytes;
+	}
 
-		}
-		preferablePartitionId = (++preferablePartitionId >= partitionCount ?
-				0 : preferablePartitionId);
+	boolean isBatchPipelining() {
+		return batchPipelining;
+	}
 
-		final InetSocketAddress address;
+	boolean isBatchDirectEncoding() {
+		return batchDirectEncoding;
+	}
+
+	boolean isLazyRowDecoding() {
+		return lazyRowDecoding;
+	}
+
+	DriverMetrics getMetricsDirect() {
+		return metrics;
+	}
+
+	CallTracer getTracer() {
+		return tracer;
+	}
+
+	boolean isExecutionTimingEnabled() {
+		return executionTiming;
+	}
+
+	long getBlobStreamLimit() {
+		if (blobStreamLimit <= 0) {
+			return Integer.MAX_VALUE;
+		}
+		return blobStreamLimit;
+	}
+
+	boolean isBlobStreaming() {
+		return blobStreaming;
+	}
+
+	boolean isLazyLargeValues() {
+		return lazyLargeValues;
+	}
+
+	int getBlobSpillThreshold() {
+		return blobSpillThreshold;
+	}
+
+	int getStringDictionarySize() {
+		return stringDictionarySize;
+	}
+
+	int getScrollCacheSize() {
+		return scrollCacheSize;
+	}
+
+	ReentrantLock getExecutionLock() {
+		return executionLock;
+	}
+
+	AsyncStatementDispatcher getAsyncDispatcher() {
+		return asyncDispatcher;
+	}
+
+	void awaitAsyncIdle() {
+		asyncDispatcher.awaitIdle();
+	}
+
+	PreparedStatementCache.Entry findPreparedStatement(String sql) {
+		final PreparedStatementCache cache = getStatementCache();
+		if (cache == null) {
+			return null;
+		}
+		return cache.get(PreparedStatementCache.createKey(url, dbName, sql));
+	}
+
+	void putPreparedStatement(
+			String sql, PreparedStatementCache.Entry entry) {
+		final PreparedStatementCache cache = getStatementCache();
+		if (cache == null) {
+			return;
+		}
+		cache.put(PreparedStatementCache.createKey(url, dbName, sql), entry);
+	}
+
+	void invalidatePreparedStatement(String sql) {
+		final PreparedStatementCache cache = getStatementCache();
+		if (cache == null) {
+			return;
+		}
+		cache.remove(PreparedStatementCache.createKey(url, dbName, sql));
+	}
+
+	private PreparedStatementCache getStatementCache() {
+		if (statementCacheSize <= 0) {
+			return null;
+		}
+		if (statementCacheShared && sharedStatementCache != null) {
+			return sharedStatementCache;
+		}
+		return localStatementCache;
+	}
+
+	@Override
+	public long getPreparedStatementCacheHitCount() throws SQLException {
+		checkOpened();
+		final PreparedStatementCache cache = getStatementCache();
+		return (cache == null ? 0 : cache.getHitCount());
+	}
+
+	@Override
+	public long getPreparedStatementCacheMissCount() throws SQLException {
+		checkOpened();
+		final PreparedStatementCache cache = getStatementCache();
+		return (cache == null ? 0 : cache.getMissCount());
+	}
+
+	@Override
+	public int getPreparedStatementCacheSize() throws SQLException {
+		checkOpened();
+		final PreparedStatementCache cache = getStatementCache();
+		return (cache == null ? 0 : cache.size());
+	}
+
+	@Override
+	public long getCompressedReceivedBytes() throws SQLException {
+		checkOpened();
+		return compressionStats.getCompressedBytes();
+	}
+
+	@Override
+	public long getUncompressedReceivedBytes() throws SQLException {
+		checkOpened();
+		return compressionStats.getUncompressedBytes();
+	}
+
+	@Override
+	public long getDecompressionNanos() throws SQLException {
+		checkOpened();
+		return compressionStats.getDecompressionNanos();
+	}
+
+	@Override
+	public GridStoreMetrics getMetrics() throws SQLException {
+		checkOpened();
+		return metrics;
+	}
+
+	@Override
+	public void clearPreparedStatementCache() throws SQLException {
+		checkOpened();
+		final PreparedStatementCache cache = getStatementCache();
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	static void fillRequestHead(NodeConnection base, BasicBuffer req) {
+		final boolean ipv6Enabled = (((InetSocketAddress)
+				base.getRemoteSocketAddress()
+				).getAddress() instanceof Inet6Address);
+		NodeConnection.fillRequestHead(ipv6Enabled, req);
+	}
+
+	private InetSocketAddress getNextAddress(
+			NodeConnection.Config connectionConfig)
+			throws SQLException, GSException {
+		int partitionCount;
+		if (nodeResolver == null) {
+			partitionCount = addressList.size();
+		}
+		else {
+			nodeResolver.setConnectionConfig(connectionConfig);
+			nodeResolver.setNotificationReceiveTimeoutMillis(
+					connectionConfig.getConnectTimeoutMillis());
+			partitionCount = nodeResolver.getPartitionCount(clusterInfo);
+		}
+
+		partitionCount = Math.min(partitionCount, Integer.MAX_VALUE - 1);
+
+		if (preferablePartitionId < 0) {
+			if (partitionCount == 0) {
+				throw new Error();
+			}
+			preferablePartitionId = (int) ((uuid.getLeastSignificantBits() &
+					((long)(1L << Integer.SIZE) - 1)) % partitionCount);
+
+		}
+		preferablePartitionId = (++preferablePartitionId >= partitionCount ?
+				0 : preferablePartitionId);
+
+		final InetSocketAddress address;
 		if (nodeResolver == null) {
 			address = addressList.get(preferablePartitionId);
 		}
@@ -1444,18 +2062,43 @@ class SQLConnection implements Connection, LaterConnection {
 			connectionConfig.setStatementTimeoutEnabled(true);
 		}
 
-		base = new BaseConnection(new NodeConnection(
-				getNextAddress(connectionConfig), connectionConfig));
+		loginInfo.setOwnerMode(autoCommit);
+
+		final DriverMetrics metrics = this.metrics;
+		if (metrics != null && initialized) {
+			metrics.increment(DriverMetrics.Counter.RECONNECT);
+		}
+
+		final InetSocketAddress address = getNextAddress(connectionConfig);
+		long startNanos = (metrics == null ? 0 : System.nanoTime());
+		final NodeConnection pooledConnection =
+				pullPooledConnection(address, connectionConfig);
+		base = new BaseConnection(pooledConnection == null ?
+				new NodeConnection(address, connectionConfig) :
+				pooledConnection);
 		base.base.setHook(hook);
+		base.base.setCompressionStats(compressionStats);
+		base.base.setMetrics(metrics);
 
 		boolean succeeded = false;
 		try {
-			loginInfo.setOwnerMode(autoCommit);
-
-			fillRequestHead(base.base, req);
+			if (pooledConnection == null) {
+				fillRequestHead(base.base, req);
+
+				base.base.connect(req, resp);
+				if (metrics != null) {
+					final long connectedNanos = System.nanoTime();
+					metrics.recordLatency(
+							Operation.CONNECT, connectedNanos - startNanos);
+					startNanos = connectedNanos;
+				}
 
-			base.base.connect(req, resp);
-			base.base.login(req, resp, loginInfo, null);
+				base.base.login(req, resp, loginInfo, null);
+			}
+			if (metrics != null) {
+				metrics.recordLatency(
+						Operation.LOGIN, System.nanoTime() - startNanos);
+			}
 
 			base.base.setConfig(this.connectionConfig);
 			base.lastHeartbeatCount = base.base.getHeartbeatReceiveCount();
@@ -1469,6 +2112,63 @@ class SQLConnection implements Connection, LaterConnection {
 		}
 	}
 
+	private NodeConnection pullPooledConnection(
+			InetSocketAddress address, NodeConnection.Config config)
+			throws GSException {
+		if (!socketPooling || socketPool == null) {
+			return null;
+		}
+
+		final PooledConnectionKey key = new PooledConnectionKey(
+				address, loginInfo, connectionConfig);
+		for (;;) {
+			final NodeConnection connection = socketPool.pull(key);
+			if (connection == null) {
+				return null;
+			}
+
+			boolean succeeded = false;
+			try {
+				connection.setConfig(config);
+				fillRequestHead(connection, req);
+				connection.reuse(req, resp, loginInfo, null);
+				succeeded = true;
+				return connection;
+			}
+			catch (GSConnectionException e) {
+			}
+			finally {
+				if (!succeeded) {
+					try {
+						connection.closeImmediately();
+					}
+					catch (GSException e) {
+					}
+				}
+			}
+		}
+	}
+
+	private void releaseBase() throws GSException {
+		if (base == null || !socketPooling || socketPool == null ||
+				transactionStarted ||
+				(remoteEnv != null && !remoteEnv.isEmpty())) {
+			disconnect(false);
+			return;
+		}
+
+		final NodeConnection connection = base.base;
+		base = null;
+		remoteEnvLost = true;
+
+		connection.setHook(null);
+		connection.setCompressionStats(null);
+		connection.setMetrics(null);
+		socketPool.add(connection, new PooledConnectionKey(
+				(InetSocketAddress) connection.getRemoteSocketAddress(),
+				loginInfo, connectionConfig));
+	}
+
 	void disconnect(boolean immediate) throws GSException {
 		if (base != null) {
 			try {
@@ -1509,11 +2209,28 @@ class SQLConnection implements Connection, LaterConnection {
 	}
 
 	BasicBuffer takeReqBuffer() {
-		return new BasicBuffer(getDesiredBufferSize(lastReqSize));
+		return takeBuffer(lastReqSize);
 	}
 
 	BasicBuffer takeRespBuffer() {
-		return new BasicBuffer(getDesiredBufferSize(lastRespSize));
+		return takeBuffer(lastRespSize);
+	}
+
+	void releaseBuffer(BasicBuffer buf) {
+		if (bufferPooling && buf != null) {
+			bufferPool.release(buf);
+		}
+	}
+
+	BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	private BasicBuffer takeBuffer(int lastSize) {
+		if (bufferPooling) {
+			return bufferPool.take(getPooledBufferSize(lastSize));
+		}
+		return new BasicBuffer(getDesiredBufferSize(lastSize));
 	}
 
 	private static int getDesiredBufferSize(int lastSize) {
@@ -1521,6 +2238,12 @@ class SQLConnection implements Connection, LaterConnection {
 				(Integer.highestOneBit(Math.max(lastSize, 64) - 1) + 1), 0);
 	}
 
+	private static int getPooledBufferSize(int lastSize) {
+		final int size = Math.min(
+				Math.max(lastSize, 64), MAX_POOLED_BUFFER_SIZE);
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+
 	QueryPool getQueryPool() {
 		return queryPool;
 	}
@@ -1612,18 +2335,44 @@ class SQLConnection implements Connection, LaterConnection {
 
 		queryPool.detachAll(this);
 		final SQLStatement statement = new SQLStatement(this);
-		for (;;) {
-			final long queryId = queryPool.pull(this);
-			statement.closeQuery(queryId);
-			if (queryId == 0) {
-				break;
+		try {
+			for (;;) {
+				final long queryId = queryPool.pull(this);
+				statement.closeQuery(queryId);
+				if (queryId == 0) {
+					break;
+				}
 			}
 		}
+		finally {
+			statement.close();
+		}
+	}
+
+	private Statement createStatementDirect(int resultSetType)
+			throws SQLException {
+		checkOpened();
+		final SQLStatement statement = new SQLStatement(this);
+		statement.setResultSetTypeDirect(resultSetType);
+		return ProxyTargetInstanceFactory.getInstance().getTargetInstance(
+				statement);
+	}
+
+	private PreparedStatement prepareStatementDirect(
+			String sql, int resultSetType) throws SQLException {
+		checkOpened();
+		SQLErrorUtils.checkNullParameter(sql, "sql", null);
+		final SQLPreparedStatement statement =
+				new SQLPreparedStatement(this, sql);
+		statement.setResultSetTypeDirect(resultSetType);
+		return ProxyTargetInstanceFactory.getInstance().getTargetInstance(
+				statement);
 	}
 
 	private void checkResultSetType(
 			int resultSetType) throws SQLException {
-		if (resultSetType != ResultSet.TYPE_FORWARD_ONLY) {
+		if (resultSetType != ResultSet.TYPE_FORWARD_ONLY &&
+				resultSetType != ResultSet.TYPE_SCROLL_INSENSITIVE) {
 			throw SQLErrorUtils.errorNotSupportedFeature(
 					SQLErrorUtils.OPTIONAL_FEATURE_NOT_SUPPORTED,
 					"Unsupported result set type (value=" +
@@ -1718,52 +2467,72 @@ class SQLConnection implements Connection, LaterConnection {
 
 		private Query query;
 
+		private final ReentrantLock lock = new ReentrantLock();
+
 		@Override
-		protected synchronized void startHeadReceiving(
+		protected void startHeadReceiving(
 				NodeConnection connection, Socket socket,
 				long statementId) throws GSException {
-			this.connection = connection;
-			this.socket = socket;
-			this.statementId = statementId;
+			lock.lock();
+			try {
+				this.connection = connection;
+				this.socket = socket;
+				this.statementId = statementId;
 
-			final Query query = this.query;
-			if (query != null && query.cancelRequested) {
-				sendCancelRequest(query);
+				final Query query = this.query;
+				if (query != null && query.cancelRequested) {
+					sendCancelRequest(query);
+				}
+			}
+			finally {
+				lock.unlock();
 			}
 		}
 
 		@Override
-		protected synchronized void endHeadReceiving(
+		protected void endHeadReceiving(
 				NodeConnection connection, Socket socket) throws GSException {
-			this.connection = null;
-			this.socket = null;
+			lock.lock();
+			try {
+				this.connection = null;
+				this.socket = null;
+			}
+			finally {
+				lock.unlock();
+			}
 		}
 
 		@Override
-		protected synchronized void prepareHeartbeat(
+		protected void prepareHeartbeat(
 				NodeConnection connection, Socket socket, long elapsedMillis)
 				throws GSException {
-			final Query query = this.query;
-			if (query != null) {
-				query.elapsedMillis = elapsedMillis;
-			}
+			lock.lock();
+			try {
+				final Query query = this.query;
+				if (query != null) {
+					query.elapsedMillis = elapsedMillis;
+				}
 
-			if (query == null || query.cancelRequested) {
-				return;
-			}
+				if (query == null || query.cancelRequested) {
+					return;
+				}
 
-			if (query.timeoutMillis <= 0 || elapsedMillis < query.timeoutMillis) {
-				return;
-			}
-			this.connection = connection;
-			this.socket = socket;
-			try {
-				query.cancelRequested = true;
-				sendCancelRequest(query);
+				if (query.timeoutMillis <= 0 || elapsedMillis < query.timeoutMillis) {
+					return;
+				}
+				this.connection = connection;
+				this.socket = socket;
+				try {
+					query.cancelRequested = true;
+					sendCancelRequest(query);
+				}
+				finally {
+					this.connection = null;
+					this.socket = null;
+				}
 			}
 			finally {
-				this.connection = null;
-				this.socket = null;
+				lock.unlock();
 			}
 		}
 
@@ -1781,14 +2550,20 @@ class SQLConnection implements Connection, LaterConnection {
 			return (query == null ? null : query.elapsedMillis);
 		}
 
-		synchronized void cancelQuery() throws GSException {
-			final Query query = this.query;
-			if (query == null || query.cancelRequested) {
-				return;
-			}
+		void cancelQuery() throws GSException {
+			lock.lock();
+			try {
+				final Query query = this.query;
+				if (query == null || query.cancelRequested) {
+					return;
+				}
 
-			query.cancelRequested = true;
-			sendCancelRequest(query);
+				query.cancelRequested = true;
+				sendCancelRequest(query);
+			}
+			finally {
+				lock.unlock();
+			}
 		}
 
 		private void sendCancelRequest(Query query) throws GSException {
@@ -1824,8 +2599,7 @@ class SQLConnection implements Connection, LaterConnection {
 			NodeConnection.putStatementId(req, statementId, false);
 
 			try {
-				socket.getOutputStream().write(
-						req.base().array(), 0, reqLength);
+				connection.writeConcurrently(req, reqLength);
 			}
 			catch (IOException e) {
 				throw new GSConnectionException(
@@ -1895,14 +2669,75 @@ class SQLConnection implements Connection, LaterConnection {
 
 	}
 
+	static class PooledConnectionKey {
+
+		private final List<Object> components;
+
+		PooledConnectionKey(
+				InetSocketAddress address, LoginInfo loginInfo,
+				NodeConnection.Config config) {
+			components = Arrays.<Object>asList(
+					address,
+					loginInfo.getUser(),
+					loginInfo.getDatabase(),
+					loginInfo.getClusterName(),
+					loginInfo.getAuthType(),
+					loginInfo.getConnectionRoute(),
+					config.getAcceptableSocketTypes(),
+					config.getSocketFactories().get(SocketType.PLAIN),
+					config.isCompressionRequested());
+		}
+
+		@Override
+		public int hashCode() {
+			return components.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof PooledConnectionKey)) {
+				return false;
+			}
+			return components.equals(((PooledConnectionKey) obj).components);
+		}
+
+	}
+
 	static class Options {
 
 		private TransportProvider transportProvider =
 				new PlainTransportProvider();
 
+		private final NodeConnectionPool socketPool;
+
+		private final PreparedStatementCache statementCache;
+
+		private final BufferPool bufferPool;
+
+		private final ChannelReactor channelReactor;
+
+		private final DriverMetrics metrics;
+
 		Options(Options src) {
 			if (src != null) {
 				transportProvider = src.transportProvider;
+				socketPool = src.socketPool;
+				statementCache = src.statementCache;
+				bufferPool = src.bufferPool;
+				channelReactor = src.channelReactor;
+				metrics = src.metrics;
+			}
+			else {
+				socketPool = new NodeConnectionPool();
+				socketPool.setIdleTimeoutMillis(
+						DEFAULT_SOCKET_POOL_IDLE_TIMEOUT);
+				statementCache = new PreparedStatementCache();
+				bufferPool = new BufferPool();
+				channelReactor = new ChannelReactor();
+				metrics = new DriverMetrics();
 			}
 		}
 
@@ -1910,6 +2745,26 @@ class SQLConnection implements Connection, LaterConnection {
 			return transportProvider;
 		}
 
+		public NodeConnectionPool getSocketPool() {
+			return socketPool;
+		}
+
+		public PreparedStatementCache getStatementCache() {
+			return statementCache;
+		}
+
+		public BufferPool getBufferPool() {
+			return bufferPool;
+		}
+
+		public ChannelReactor getChannelReactor() {
+			return channelReactor;
+		}
+
+		public DriverMetrics getMetrics() {
+			return metrics;
+		}
+
 		public void setTransportProvider(TransportProvider provider) {
 			this.transportProvider = provider;
 		}
@@ -1958,7 +2813,34 @@ class SQLConnection implements Connection, LaterConnection {
 						ofNetworkTimeout(),
 						ofHeartbearTimeout(),
 						ofFailoverInterval(),
-						ofCatalogAndSchemaIgnorable());
+						ofCatalogAndSchemaIgnorable(),
+						ofPrefetchBlocks(),
+						ofFetchBytesSize(),
+						ofSocketPooling(),
+						ofSocketPoolMaxSize(),
+						ofSocketPoolMaxSizePerNode(),
+						ofSocketPoolIdleTimeout(),
+						ofStatementCacheSize(),
+						ofStatementCacheShared(),
+						ofBatchChunkRows(),
+						ofBatchChunkBytes(),
+						ofBatchPipelining(),
+						ofBatchDirectEncoding(),
+						ofLazyRowDecoding(),
+						ofTransferCompression(),
+						ofBufferPooling(),
+						ofBufferLeakDetection(),
+						ofSocketChannel(),
+						ofMetrics(),
+						ofTraceSampling(),
+						ofTraceJson(),
+						ofExecutionTiming(),
+						ofBlobStreamLimit(),
+						ofBlobStreaming(),
+						ofLazyLargeValues(),
+						ofBlobSpillThreshold(),
+						ofStringDictionarySize(),
+						ofScrollCacheSize());
 
 		private final String name;
 
@@ -2031,6 +2913,253 @@ class SQLConnection implements Connection, LaterConnection {
 			};
 		}
 
+		private static IntKey ofPrefetchBlocks() {
+			return new IntKey(PREFETCH_BLOCKS_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.prefetchBlocks = value;
+				}
+			};
+		}
+
+		private static IntKey ofFetchBytesSize() {
+			return new IntKey(FETCH_BYTES_SIZE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.fetchBytesSize = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofSocketPooling() {
+			return new BooleanKey(SOCKET_POOLING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.socketPooling = value;
+				}
+			};
+		}
+
+		private static IntKey ofSocketPoolMaxSize() {
+			return new IntKey(SOCKET_POOL_MAX_SIZE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.socketPoolMaxSize = value;
+				}
+			};
+		}
+
+		private static IntKey ofSocketPoolMaxSizePerNode() {
+			return new IntKey(SOCKET_POOL_MAX_SIZE_PER_NODE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.socketPoolMaxSizePerNode = value;
+				}
+			};
+		}
+
+		private static MilliTimeKey ofSocketPoolIdleTimeout() {
+			return new MilliTimeKey(SOCKET_POOL_IDLE_TIMEOUT_NAME) {
+				@Override
+				void apply(SQLConnection conn, Long value) {
+					conn.socketPoolIdleTimeoutMillis = value;
+				}
+			};
+		}
+
+		private static IntKey ofStatementCacheSize() {
+			return new IntKey(STATEMENT_CACHE_SIZE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.statementCacheSize = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofStatementCacheShared() {
+			return new BooleanKey(STATEMENT_CACHE_SHARED_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.statementCacheShared = value;
+				}
+			};
+		}
+
+		private static IntKey ofBatchChunkRows() {
+			return new IntKey(BATCH_CHUNK_ROWS_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.batchChunkRows = value;
+				}
+			};
+		}
+
+		private static IntKey ofBatchChunkBytes() {
+			return new IntKey(BATCH_CHUNK_BYTES_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.batchChunkBytes = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofBatchPipelining() {
+			return new BooleanKey(BATCH_PIPELINING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.batchPipelining = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofBatchDirectEncoding() {
+			return new BooleanKey(BATCH_DIRECT_ENCODING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.batchDirectEncoding = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofLazyRowDecoding() {
+			return new BooleanKey(LAZY_ROW_DECODING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.lazyRowDecoding = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofTransferCompression() {
+			return new BooleanKey(TRANSFER_COMPRESSION_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.transferCompression = value;
+					conn.connectionConfig.setCompressionRequested(value);
+				}
+			};
+		}
+
+		private static BooleanKey ofBufferPooling() {
+			return new BooleanKey(BUFFER_POOLING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.bufferPooling = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofBufferLeakDetection() {
+			return new BooleanKey(BUFFER_LEAK_DETECTION_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.bufferLeakDetection = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofSocketChannel() {
+			return new BooleanKey(SOCKET_CHANNEL_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.socketChannel = value;
+					applyPlainSocketFactory(conn.connectionConfig, value);
+				}
+			};
+		}
+
+		private static BooleanKey ofMetrics() {
+			return new BooleanKey(METRICS_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.metricsEnabled = value;
+				}
+			};
+		}
+
+		private static IntKey ofTraceSampling() {
+			return new IntKey(TRACE_SAMPLING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.traceSampling = value;
+					conn.tracer.setSamplingInterval(value);
+				}
+			};
+		}
+
+		private static BooleanKey ofTraceJson() {
+			return new BooleanKey(TRACE_JSON_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.traceJson = value;
+					conn.tracer.setJsonFormat(value);
+				}
+			};
+		}
+
+		private static BooleanKey ofExecutionTiming() {
+			return new BooleanKey(EXECUTION_TIMING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.executionTiming = value;
+				}
+			};
+		}
+
+		private static IntKey ofBlobStreamLimit() {
+			return new IntKey(BLOB_STREAM_LIMIT_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.blobStreamLimit = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofBlobStreaming() {
+			return new BooleanKey(BLOB_STREAMING_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.blobStreaming = value;
+				}
+			};
+		}
+
+		private static BooleanKey ofLazyLargeValues() {
+			return new BooleanKey(LAZY_LARGE_VALUES_NAME) {
+				@Override
+				void apply(SQLConnection conn, Boolean value) {
+					conn.lazyLargeValues = value;
+				}
+			};
+		}
+
+		private static IntKey ofBlobSpillThreshold() {
+			return new IntKey(BLOB_SPILL_THRESHOLD_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.blobSpillThreshold = value;
+				}
+			};
+		}
+
+		private static IntKey ofStringDictionarySize() {
+			return new IntKey(STRING_DICTIONARY_SIZE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.stringDictionarySize = value;
+				}
+			};
+		}
+
+		private static IntKey ofScrollCacheSize() {
+			return new IntKey(SCROLL_CACHE_SIZE_NAME) {
+				@Override
+				void apply(SQLConnection conn, Integer value) {
+					conn.scrollCacheSize = value;
+				}
+			};
+		}
+
 		static class Entry<T> {
 			final ClientInfoKey<T> key;
 			final T value;
@@ -2076,6 +3205,21 @@ class SQLConnection implements Connection, LaterConnection {
 
 		}
 
+		static abstract class IntKey extends ClientInfoKey<Integer> {
+
+			public IntKey(String name) {
+				super(name);
+			}
+
+			@Override
+			Integer parse(
+					Map<String, ClientInfoStatus> failedProperties,
+					SQLConnection conn, String value) throws SQLException {
+				return getIntProperty(failedProperties, getName(), value);
+			}
+
+		}
+
 	}
 
 }
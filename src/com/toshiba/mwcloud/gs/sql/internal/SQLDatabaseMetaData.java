@@ -1085,13 +1085,14 @@ implements DatabaseMetaData, LaterDatabaseMetadata {
 
 	@Override
 	public boolean supportsResultSetType(int type) throws SQLException {
-		return type == ResultSet.TYPE_FORWARD_ONLY;
+		return type == ResultSet.TYPE_FORWARD_ONLY ||
+				type == ResultSet.TYPE_SCROLL_INSENSITIVE;
 	}
 
 	@Override
 	public boolean supportsResultSetConcurrency(int type, int concurrency)
 			throws SQLException {
-		return type == ResultSet.TYPE_FORWARD_ONLY &&
+		return supportsResultSetType(type) &&
 				concurrency == ResultSet.CONCUR_READ_ONLY;
 	}
 
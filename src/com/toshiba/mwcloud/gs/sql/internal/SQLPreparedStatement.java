@@ -15,13 +15,12 @@
 */
 package com.toshiba.mwcloud.gs.sql.internal;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -37,13 +36,14 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-
-import javax.sql.rowset.serial.SerialBlob;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import com.toshiba.mwcloud.gs.sql.internal.RowMapper.MappingMode;
 import com.toshiba.mwcloud.gs.sql.internal.RowMapper.SchemaFeatureLevel;
@@ -53,6 +53,8 @@ import com.toshiba.mwcloud.gs.sql.internal.proxy.ProxyTargetInstanceFactory;
 class SQLPreparedStatement
 extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
+	private static final int INITIAL_BATCH_CHUNK_ROWS = 1000;
+
 	static boolean neverPrepare = false;
 
 	private int parameterCount;
@@ -71,9 +73,28 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
 	private ResultSetMetaData lastMetaData;
 
+	private final String sql;
+
+	private boolean prepareDeferred;
+
+	private List<Row> batchChunkRowList;
+
+	private BatchInputTable batchChunkTable;
+
+	private int lastInputTableSize;
+
+	private BatchRowBuffer batchRows;
+
+	private int batchUnassignedPos = -1;
+
+	private int batchChunkStart;
+
+	private int batchChunkEnd;
+
 	public SQLPreparedStatement(
 			SQLConnection connection, String sql) throws SQLException {
 		super(connection);
+		this.sql = sql;
 
 		boolean succeeded = false;
 		try {
@@ -92,7 +113,7 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
-		execute(StatementOperation.QUERY, false);
+		executePrepared(StatementOperation.QUERY);
 		final ResultSet rs = getResultSet();
 		lastMetaData = rs.getMetaData();
 		return rs;
@@ -100,7 +121,7 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
 	@Override
 	public int executeUpdate() throws SQLException {
-		execute(StatementOperation.UPDATE, false);
+		executePrepared(StatementOperation.UPDATE);
 		return getLastResult().updateCount;
 	}
 
@@ -224,7 +245,7 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
 	@Override
 	public boolean execute() throws SQLException {
-		execute(StatementOperation.EXECUTE, false);
+		executePrepared(StatementOperation.EXECUTE);
 		return getLastResult().tableFound;
 	}
 
@@ -234,7 +255,13 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
+
+		if (batchRows != null || (rowList.isEmpty() &&
+				getConnectionDirect().isBatchDirectEncoding())) {
+			addBatchDirect();
+			return;
+		}
 
 		final Row newRow;
 		try {
@@ -256,6 +283,49 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		parameterAssignmentSetList.add((BitSet)parameterAssignmentSet.clone());
 	}
 
+	private void addBatchDirect() throws SQLException {
+		final int unassignedPos = parameterAssignmentSet.nextClearBit(0);
+		if (unassignedPos < parameterCount) {
+			if (batchUnassignedPos < 0) {
+				batchUnassignedPos = unassignedPos;
+			}
+			return;
+		}
+
+		try {
+			if (batchRows == null || (batchRows.isEmpty() &&
+					batchRows.getMapper() != mapper)) {
+				batchRows = new BatchRowBuffer(mapper);
+			}
+			else if (batchRows.getMapper() != mapper) {
+				throw SQLErrorUtils.error(
+						SQLErrorUtils.ILLEGAL_STATE,
+						"Parameter schema changed while adding batch", null);
+			}
+			batchRows.add(activeRow);
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+	}
+
+	private void clearBatchDirect() {
+		if (batchRows != null) {
+			batchRows.clear();
+		}
+		batchUnassignedPos = -1;
+	}
+
+	private void checkBatchParameterAssigned() throws SQLException {
+		if (batchUnassignedPos >= 0) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Parameter is not assigned (" +
+					"parameterIndex=" + (batchUnassignedPos + 1) +
+					", parameterCount=" + parameterCount + ")", null);
+		}
+	}
+
 	@Override
 	public void setCharacterStream(
 			int parameterIndex, Reader reader, int length)
@@ -382,51 +452,18 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 
 	private Blob convertToBlob(InputStream inputStream, long length)
 			throws SQLException {
-		final ByteArrayOutputStream output = new ByteArrayOutputStream();
-		final byte[] buffer = new byte[1024000];
-
-		int count = 0;
-		long remaining = length;
-		if (length < 0) {
-			remaining = Long.MAX_VALUE;
-		}
-
-		try {
-			int readLen = buffer.length;
-
-			if (remaining < buffer.length) {
-				readLen = (int) remaining;
-			}
-			else {
-				readLen = buffer.length;
-			}
-			while (remaining > 0 &&
-					(count = inputStream.read(buffer, 0, readLen)) != -1) {
-				remaining -= count;
-				output.write(buffer, 0, count);
-
-				if (remaining < buffer.length) {
-					readLen = (int) remaining;
-				}
-				else {
-					readLen = buffer.length;
-				}
-			}
-		}
-		catch (IOException e) {
-			throw SQLErrorUtils.error(0, null, e);
-		}
-
-		if (!(length < 0) && remaining > 0) {
+		final long limit = getConnectionDirect().getBlobStreamLimit();
+		if (length > limit) {
 			throw SQLErrorUtils.error(
 					SQLErrorUtils.ILLEGAL_PARAMETER,
-					"Invalid length (" +
-					"specified=" + length + ")", null);
+					"Blob stream length exceeds the limit (" +
+					"specified=" + length + ", limit=" + limit + ")", null);
 		}
 
-		final byte[] contents = output.toByteArray();
-		final Blob blob = new SerialBlob(contents);
-
+		final BlobImpl blob = BlobImpl.ofInput(inputStream, length, limit);
+		if (!getConnectionDirect().isBlobStreaming()) {
+			blob.getDataDirect();
+		}
 		return blob;
 	}
 
@@ -517,6 +554,24 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		throw sqlAlteringError();
 	}
 
+	@Override
+	public List<ResultSet> executeQueries(List<String> sqlList)
+			throws SQLException {
+		throw sqlAlteringError();
+	}
+
+	@Override
+	public CompletableFuture<ResultSet> executeQueryAsync(String sql)
+			throws SQLException {
+		throw sqlAlteringError();
+	}
+
+	@Override
+	public CompletableFuture<Integer> executeUpdateAsync(String sql)
+			throws SQLException {
+		throw sqlAlteringError();
+	}
+
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
 		throw sqlAlteringError();
@@ -574,11 +629,12 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
 		clearResults();
 
 		rowList.clear();
 		parameterAssignmentSetList.clear();
+		clearBatchDirect();
 	}
 
 	@Override
@@ -587,30 +643,190 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
 
-		final boolean bindInfoExists = (rowList != null && !rowList.isEmpty());
+		final boolean direct = (batchRows != null);
+		final boolean bindInfoExists = (direct ?
+				(!batchRows.isEmpty() || batchUnassignedPos >= 0) :
+				(rowList != null && !rowList.isEmpty()));
 		if (!bindInfoExists) {
 			return new int[0];
 		}
 
+		final SQLConnection connection = getConnectionDirect();
+		final int maxChunkRows = connection.getBatchChunkRows();
+		final int maxChunkBytes = connection.getBatchChunkBytes();
+		final boolean pipelining = connection.isBatchPipelining();
+
+		final List<Row> batchRowList = rowList;
+		final int rowCount =
+				(direct ? batchRows.getRowCount() : batchRowList.size());
+		int[] batchResult = new int[0];
+		Future<BatchInputTable> nextTable = null;
 		setIsExecuteBatch(true);
 		try {
-			execute(StatementOperation.EXECUTE, false);
+			if (direct) {
+				checkBatchParameterAssigned();
+			}
+			else {
+				checkRowListParameterAssigned();
+			}
+
+			int start = 0;
+			int chunkRows = getInitialChunkRows(
+					rowCount, maxChunkRows, maxChunkBytes, pipelining);
+			while (start < rowCount) {
+				if (direct) {
+					final int end = batchRows.getChunkEnd(
+							start, maxChunkRows, maxChunkBytes);
+					batchChunkStart = start;
+					batchChunkEnd = end;
+					try {
+						executePrepared(StatementOperation.EXECUTE);
+					}
+					catch (SQLException e) {
+						throw errorBatchChunk(e, batchResult);
+					}
+					batchResult = appendBatchResult(batchResult);
+					start = end;
+					continue;
+				}
+
+				final int end = getChunkEnd(start, chunkRows, rowCount);
+				final List<Row> chunk = batchRowList.subList(start, end);
+
+				BatchInputTable table = null;
+				if (nextTable != null) {
+					table = BatchInputTable.await(nextTable);
+					nextTable = null;
+				}
+				else if (pipelining) {
+					table = new BatchInputTable(
+							mapper, parameterCount, chunk, lastInputTableSize);
+					table.encode();
+				}
+
+				if (table != null) {
+					lastInputTableSize = table.getSize();
+					chunkRows = getNextChunkRows(
+							end - start, maxChunkRows, maxChunkBytes);
+					if (end < rowCount) {
+						nextTable = BatchInputTable.submit(new BatchInputTable(
+								mapper, parameterCount,
+								batchRowList.subList(end, getChunkEnd(
+										end, chunkRows, rowCount)),
+								lastInputTableSize));
+					}
+				}
+
+				batchChunkRowList = chunk;
+				batchChunkTable = table;
+				try {
+					executePrepared(StatementOperation.EXECUTE);
+				}
+				catch (SQLException e) {
+					throw errorBatchChunk(e, batchResult);
+				}
+
+				if (table == null) {
+					chunkRows = getNextChunkRows(
+							end - start, maxChunkRows, maxChunkBytes);
+				}
+				batchResult = appendBatchResult(batchResult);
+				start = end;
+			}
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
 		}
 		finally {
+			if (nextTable != null) {
+				nextTable.cancel(false);
+			}
+			batchChunkRowList = null;
+			batchChunkTable = null;
 			rowList.clear();
 			parameterAssignmentSetList.clear();
+			clearBatchDirect();
 			setIsExecuteBatch(false);
 		}
 
-		final int[] batchResult = new int[getResultListSize()];
-		for (int i = 0; i < batchResult.length; i++) {
-			final Result result = getResultList(i);
-			batchResult[i] = result.updateCount;
+		return batchResult;
+	}
+
+	private static int getChunkEnd(int start, int chunkRows, int rowCount) {
+		return (int) Math.min((long) start + chunkRows, rowCount);
+	}
+
+	private static int getInitialChunkRows(
+			int rowCount, int maxChunkRows, int maxChunkBytes,
+			boolean pipelining) {
+		int chunkRows = (maxChunkRows > 0 ? maxChunkRows : rowCount);
+		if (maxChunkBytes > 0 || (pipelining && maxChunkRows <= 0)) {
+			chunkRows = Math.min(chunkRows, INITIAL_BATCH_CHUNK_ROWS);
 		}
+		return Math.max(chunkRows, 1);
+	}
 
-		return batchResult;
+	private int getNextChunkRows(
+			int lastChunkRows, int maxChunkRows, int maxChunkBytes) {
+		if (maxChunkBytes <= 0) {
+			return (maxChunkRows > 0 ? maxChunkRows : Integer.MAX_VALUE);
+		}
+
+		final long rowSize =
+				Math.max(lastInputTableSize / Math.max(lastChunkRows, 1), 1);
+		long chunkRows = Math.max(maxChunkBytes / rowSize, 1);
+		if (maxChunkRows > 0) {
+			chunkRows = Math.min(chunkRows, maxChunkRows);
+		}
+		return (int) Math.min(chunkRows, Integer.MAX_VALUE);
+	}
+
+	private int[] appendBatchResult(int[] batchResult) {
+		final int count = getResultListSize();
+		final int[] newResult =
+				Arrays.copyOf(batchResult, batchResult.length + count);
+		for (int i = 0; i < count; i++) {
+			newResult[batchResult.length + i] = getResultList(i).updateCount;
+		}
+		return newResult;
+	}
+
+	private static SQLException errorBatchChunk(
+			SQLException e, int[] batchResult) {
+		if (batchResult.length == 0) {
+			return e;
+		}
+
+		return new BatchUpdateException(
+				e.getMessage(), e.getSQLState(), e.getErrorCode(),
+				batchResult, e);
+	}
+
+	private void executePrepared(StatementOperation statementOp)
+			throws SQLException {
+		try {
+			execute(statementOp, prepareDeferred);
+		}
+		catch (SQLException e) {
+			if (isPlanMismatch(e)) {
+				getConnectionDirect().invalidatePreparedStatement(sql);
+			}
+			throw e;
+		}
+		prepareDeferred = false;
+	}
+
+	private static boolean isPlanMismatch(SQLException e) {
+		switch (e.getErrorCode()) {
+		case GSErrorCode.ILLEGAL_SCHEMA:
+		case GSErrorCode.UNSUPPORTED_FIELD_TYPE:
+		case GSErrorCode.UNSUPPORTED_ROW_MAPPING:
+			return true;
+		default:
+			return false;
+		}
 	}
 
 	protected boolean refreshQuery(
@@ -634,6 +850,21 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		}
 		setQueryDirect(sqlList.get(0));
 
+		if (mapper == null && !neverPrepare) {
+			final PreparedStatementCache.Entry entry =
+					getConnectionDirect().findPreparedStatement(sql);
+			if (entry != null) {
+				applyPlan(entry.parameterCount, entry.mapper);
+				prepareDeferred = true;
+				return true;
+			}
+		}
+
+		preparePlan();
+		return true;
+	}
+
+	private void preparePlan() throws SQLException {
 		final int parameterCount;
 		final BasicBuffer schemaBuffer;
 		if (neverPrepare) {
@@ -664,9 +895,6 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		}
 
 		final RowMapper mapper;
-		final List<Row> rowList;
-		final Row activeRow;
-		List<BitSet> parameterAssignmentSetList = new ArrayList<BitSet>();
 		try {
 			if (containerInfo == null) {
 				mapper = RowMapper.getInstance(
@@ -676,6 +904,27 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 				mapper = RowMapper.getInstance(
 						null, containerInfo, getRowMapperConfig());
 			}
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+
+		applyPlan(parameterCount, mapper);
+
+		if (!neverPrepare) {
+			getConnectionDirect().putPreparedStatement(
+					sql, new PreparedStatementCache.Entry(
+							parameterCount, mapper));
+		}
+	}
+
+	private void applyPlan(int parameterCount, RowMapper mapper)
+			throws SQLException {
+		final ContainerInfo containerInfo;
+		final List<Row> rowList;
+		final Row activeRow;
+		List<BitSet> parameterAssignmentSetList = new ArrayList<BitSet>();
+		try {
 			containerInfo = mapper.getContainerInfo();
 			rowList = rebuildRowList(
 					mapper, this.parameterAssignmentSet, this.rowList);
@@ -703,8 +952,6 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		this.parameterAssignmentSet = parameterAssignmentSet;
 		this.parameterAssignmentSetList = parameterAssignmentSetList;
 		this.activeRow = activeRow;
-
-		return true;
 	}
 
 	private static List<Row> rebuildRowList(
@@ -732,9 +979,13 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 		return destList;
 	}
 
+	@Override
 	protected SchemaFeatureLevel putInputTable(BasicBuffer out) throws SQLException {
 		final boolean found;
-		if (getIsExecuteBatch()) {
+		if (getIsExecuteBatch() && batchRows != null) {
+			found = !batchRows.isEmpty();
+		}
+		else if (getIsExecuteBatch()) {
 			found = (rowList != null && !rowList.isEmpty());
 		}
 		else {
@@ -746,66 +997,134 @@ extends SQLStatement implements PreparedStatement, LaterPreparedStatement {
 			return SchemaFeatureLevel.LEVEL1;
 		}
 
+		if (getIsExecuteBatch() && batchChunkTable != null &&
+				batchChunkTable.getMapper() == mapper) {
+			return batchChunkTable.putTo(out);
+		}
+
+		if (getIsExecuteBatch() && batchRows != null) {
+			checkBatchParameterAssigned();
+			if (batchRows.getMapper() != mapper) {
+				final SQLException e = SQLErrorUtils.error(
+						GSErrorCode.ILLEGAL_SCHEMA,
+						"Parameter schema changed while executing batch",
+						null);
+				throw new BatchUpdateException(
+						e.getMessage(), e.getSQLState(), e.getErrorCode(),
+						new int[0], e);
+			}
+			try {
+				return batchRows.putTable(
+						out, parameterCount, batchChunkStart, batchChunkEnd);
+			}
+			catch (GSException e) {
+				throw SQLErrorUtils.error(0, null, e);
+			}
+		}
+
 		if (getIsExecuteBatch()) {
-			checkRowListParameterAssigned();
+			if (batchChunkRowList == null) {
+				checkRowListParameterAssigned();
+			}
 		}
 		else {
 			checkParameterAssigned();
 		}
-		List<Row> rowList = new ArrayList<Row>();
+
+		final List<Row> rowList;
+		if (getIsExecuteBatch()) {
+			rowList = (batchChunkRowList == null ?
+					this.rowList : batchChunkRowList);
+		}
+		else {
+			rowList = Collections.singletonList(activeRow);
+		}
 
 		try {
-			if (getIsExecuteBatch()) {
-				rowList = rebuildRowList(mapper, parameterAssignmentSet, this.rowList);
-			}
-			else {
-				rowList.add(activeRow);
-			}
-			final int rowCount = rowList.size();
-			final int dummySize = 0;
-			{
-				out.putLong((long) rowCount);
-
-				out.putInt(dummySize);
-				final int schemaPos = out.base().position();
-
-				mapper.exportSchema(out, getRowMapperConfig());
-				for (int i = 0; i < parameterCount; i++) {
-					final String label = "";
-					out.putString(label);
-				}
+			final int startPos = out.base().position();
+			final SchemaFeatureLevel level =
+					putInputTable(out, mapper, parameterCount, rowList);
+			lastInputTableSize = out.base().position() - startPos;
+			return level;
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+	}
 
-				final int schemaSize = out.base().position() - schemaPos;
-				out.base().position(schemaPos - Integer.SIZE / Byte.SIZE);
-				out.putInt(schemaSize);
-				out.base().position(schemaPos + schemaSize);
-			}
+	static void putInputSchema(
+			BasicBuffer out, RowMapper mapper, int parameterCount,
+			int rowCount) throws GSException {
+		final int dummySize = 0;
+		out.putLong((long) rowCount);
 
-			{
-				out.putInt(dummySize);
-				final int tablePos = out.base().position();
+		out.putInt(dummySize);
+		final int schemaPos = out.base().position();
 
-				final long varDataBaseOffset = 0;
-				out.putLong(varDataBaseOffset);
+		mapper.exportSchema(out, getRowMapperConfig());
+		for (int i = 0; i < parameterCount; i++) {
+			final String label = "";
+			out.putString(label);
+		}
 
-				final RowMapper.Cursor cursor = mapper.createCursor(
-						out, MappingMode.ROWWISE_SEPARATED_V2, rowCount,
-						false, null);
-				for (Row row : rowList) {
-					mapper.encode(cursor, null, row);
-				}
+		final int schemaSize = out.base().position() - schemaPos;
+		out.base().position(schemaPos - Integer.SIZE / Byte.SIZE);
+		out.putInt(schemaSize);
+		out.base().position(schemaPos + schemaSize);
+	}
+
+	static SchemaFeatureLevel putInputTable(
+			BasicBuffer out, RowMapper mapper, int parameterCount,
+			List<Row> rowList) throws GSException {
+		final int rowCount = rowList.size();
+		final int dummySize = 0;
+		putInputSchema(out, mapper, parameterCount, rowCount);
+
+		{
+			out.putInt(dummySize);
+			final int tablePos = out.base().position();
 
-				final int tableSize = out.base().position() - tablePos;
-				out.base().position(tablePos - Integer.SIZE / Byte.SIZE);
-				out.putInt(tableSize);
-				out.base().position(tablePos + tableSize);
+			final long varDataBaseOffset = 0;
+			out.putLong(varDataBaseOffset);
 
-				return cursor.getOutputFeatureLevel(mapper);
+			final RowMapper.Cursor cursor = mapper.createCursor(
+					out, MappingMode.ROWWISE_SEPARATED_V2, rowCount,
+					false, null);
+			for (Row row : rowList) {
+				mapper.encode(cursor, null, resolveRow(mapper, row));
 			}
+
+			final int tableSize = out.base().position() - tablePos;
+			out.base().position(tablePos - Integer.SIZE / Byte.SIZE);
+			out.putInt(tableSize);
+			out.base().position(tablePos + tableSize);
+
+			return cursor.getOutputFeatureLevel(mapper);
 		}
-		catch (GSException e) {
-			throw SQLErrorUtils.error(0, null, e);
+	}
+
+	private static Row resolveRow(RowMapper mapper, Row row)
+			throws GSException {
+		final RowMapper srcMapper =
+				RowMapper.getInstance(row, getRowMapperConfig());
+		if (srcMapper == mapper) {
+			return row;
+		}
+
+		final int columnCount = mapper.getContainerInfo().getColumnCount();
+		if (srcMapper.getContainerInfo().getColumnCount() != columnCount) {
+			throw new GSException(
+					GSErrorCode.ILLEGAL_SCHEMA,
+					"Parameter count changed while executing (" +
+					"expected=" + columnCount + ", actual=" +
+					srcMapper.getContainerInfo().getColumnCount() + ")");
+		}
+
+		final Row destRow = mapper.createGeneralRow();
+		for (int column = 0; column < columnCount; column++) {
+			destRow.setValue(column, row.getValue(column));
 		}
+		return destRow;
 	}
 
 	private SQLException sqlAlteringError() {
@@ -16,10 +16,12 @@
 package com.toshiba.mwcloud.gs.sql.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -38,21 +40,32 @@ import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.EnumSet;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.sql.rowset.serial.SerialBlob;
 
+import com.toshiba.mwcloud.gs.sql.GridStoreAsyncResultSet;
+import com.toshiba.mwcloud.gs.sql.GridStoreExecutionTiming;
+import com.toshiba.mwcloud.gs.sql.GridStoreResultSet;
 import com.toshiba.mwcloud.gs.sql.internal.SQLLaterFeatures.LaterResultSet;
 import com.toshiba.mwcloud.gs.sql.internal.proxy.ProxyTargetInstanceFactory;
 
-class SQLResultSet implements ResultSet, LaterResultSet {
+class SQLResultSet
+implements ResultSet, LaterResultSet, GridStoreResultSet,
+GridStoreAsyncResultSet {
 
 	private static final Pattern INTEGER_PATTERN =
 			Pattern.compile("^\\-?[0-9]+$");
@@ -66,6 +79,49 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 			")?" +
 			"(.+)?");
 
+	private static final Set<RowMapper.ElementType> BYTE_FIELD_TYPES =
+			EnumSet.of(RowMapper.ElementType.BYTE);
+
+	private static final Set<RowMapper.ElementType> SHORT_FIELD_TYPES =
+			EnumSet.of(
+					RowMapper.ElementType.BYTE,
+					RowMapper.ElementType.SHORT);
+
+	private static final Set<RowMapper.ElementType> INT_FIELD_TYPES =
+			EnumSet.of(
+					RowMapper.ElementType.BYTE,
+					RowMapper.ElementType.SHORT,
+					RowMapper.ElementType.INTEGER);
+
+	private static final Set<RowMapper.ElementType> LONG_FIELD_TYPES =
+			RowMapper.ElementType.INTEGRAL_TYPES;
+
+	private static final Set<RowMapper.ElementType> FLOAT_FIELD_TYPES =
+			EnumSet.of(RowMapper.ElementType.FLOAT);
+
+	private static final Set<RowMapper.ElementType> DOUBLE_FIELD_TYPES =
+			EnumSet.of(
+					RowMapper.ElementType.BYTE,
+					RowMapper.ElementType.SHORT,
+					RowMapper.ElementType.INTEGER,
+					RowMapper.ElementType.LONG,
+					RowMapper.ElementType.FLOAT,
+					RowMapper.ElementType.DOUBLE);
+
+	private static final Set<RowMapper.ElementType> BOOL_FIELD_TYPES =
+			EnumSet.of(RowMapper.ElementType.BOOL);
+
+	private static final Set<RowMapper.ElementType> TIMESTAMP_FIELD_TYPES =
+			EnumSet.of(RowMapper.ElementType.TIMESTAMP);
+
+	private static final Set<RowMapper.ElementType> LONG_BLOCK_TYPES =
+			EnumSet.of(
+					RowMapper.ElementType.BYTE,
+					RowMapper.ElementType.SHORT,
+					RowMapper.ElementType.INTEGER,
+					RowMapper.ElementType.LONG,
+					RowMapper.ElementType.TIMESTAMP);
+
 	private final SQLStatement statement;
 
 	private final ContainerInfo containerInfo;
@@ -82,6 +138,8 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	private boolean statementOwned;
 
+	private BasicBuffer ownedBuffer;
+
 	
 	private int fetchSize;
 
@@ -95,12 +153,45 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	private Boolean wasNull;
 
+	private boolean prefetchPending;
+
+	private FetchPrefetcher prefetcher;
+
+	private final boolean lazyDecoding;
+
+	private boolean rowPending;
+
+	private RowMapper.Cursor blockCursor;
+
+	private int blockStart;
+
+	private int blockRowCount;
+
+	private ExecutionTiming executionTiming;
+
+	private final int blobSpillThreshold;
+
+	private List<BlobImpl> blobViewList;
+
+	private StringDictionary stringDictionary;
+
+	private final RowMapper mapper;
+
+	private ScrollBlockStore scrollStore;
+
+	private int scrollBlock = -1;
+
+	private int scrollRow = -1;
+
+	private int fetchDirection = ResultSet.FETCH_FORWARD;
+
 	SQLResultSet(
 			SQLStatement statement, RowMapper mapper, String[] labelList,
 			long queryId, boolean followingExists, boolean followingAccepting,
 			int rowCount, long varDataBaseOffset, BasicBuffer buf)
 			throws SQLException {
 		this.statement = statement;
+		this.mapper = mapper;
 		this.containerInfo = mapper.getContainerInfo();
 		this.labelList = labelList;
 		this.queryId = queryId;
@@ -110,8 +201,39 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 				buf, RowMapper.MappingMode.ROWWISE_SEPARATED_V2,
 				rowCount, false, null);
 		cursor.setVarDataBaseOffset(varDataBaseOffset);
+		cursor.setLazyLargeValues(
+				statement.getConnectionDirect().isLazyLargeValues());
+		blobSpillThreshold =
+				statement.getConnectionDirect().getBlobSpillThreshold();
+
+		final int dictionarySize =
+				statement.getConnectionDirect().getStringDictionarySize();
+		if (dictionarySize > 0 && !followingAccepting) {
+			stringDictionary = new StringDictionary(
+					containerInfo.getColumnCount(), dictionarySize);
+			cursor.setStringDictionary(stringDictionary);
+		}
 
-		if (!followingAccepting && cursor.hasNext()) {
+		if (!followingAccepting && statement.isScrollable()) {
+			scrollStore = new ScrollBlockStore(
+					statement.getConnectionDirect().getScrollCacheSize());
+			if (rowCount > 0) {
+				try {
+					scrollStore.add(buf.base(), rowCount);
+				}
+				catch (IOException e) {
+					throw SQLErrorUtils.error(0, null, e);
+				}
+				switchScrollBlock(0);
+			}
+		}
+
+		prefetchPending = (!followingAccepting && this.followingExists &&
+				scrollStore == null &&
+				statement.getPrefetchBlocksDirect() > 0);
+		lazyDecoding = statement.getConnectionDirect().isLazyRowDecoding();
+
+		if (!followingAccepting && scrollStore == null && cursor.hasNext()) {
 			try {
 				firstRow = mapper.createGeneralRow();
 				cursor.decode(true, firstRow);
@@ -124,17 +246,34 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (isWrapperFor(iface)) {
+			return iface.cast(this);
+		}
 		throw SQLErrorUtils.errorUnwrapping();
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
-		return false;
+		return (iface != null && iface.isInstance(this));
 	}
 
 	@Override
 	public boolean next() throws SQLException {
+		if (scrollStore != null) {
+			return moveScroll(scrollRow + 1);
+		}
+
+		if (prefetchPending) {
+			startPrefetch();
+		}
+
+		blockCursor = null;
 		try {
+			if (rowPending) {
+				rowPending = false;
+				cursor.skipRow();
+			}
+
 			if (firstRow != null) {
 				currentRow = firstRow;
 				firstRow = null;
@@ -146,7 +285,12 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 				return false;
 			}
 
-			cursor.decode(true, currentRow);
+			if (lazyDecoding) {
+				rowPending = true;
+			}
+			else {
+				decodeRow();
+			}
 		}
 		catch (GSException e) {
 			throw SQLErrorUtils.error(0, null, e);
@@ -159,18 +303,220 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 		return true;
 	}
 
+	@Override
+	public CompletableFuture<Boolean> fetchAsync() throws SQLException {
+		checkOpened();
+		checkForwardOnly();
+		if (firstRow != null || (rowPending ?
+				cursor.getRowIndex() + 2 < cursor.getRowCount() :
+				cursor.hasNext())) {
+			return CompletableFuture.completedFuture(true);
+		}
+		else if (!followingExists) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		prefetchPending = false;
+		blockCursor = null;
+		decodePendingRow();
+
+		if (prefetcher != null) {
+			final AsyncStatementDispatcher dispatcher =
+					statement.getConnectionDirect().getAsyncDispatcher();
+			return dispatcher.submitDetached(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws SQLException {
+					return fetchFollowingBlocking();
+				}
+			});
+		}
+		return statement.fetchFollowingAsync(queryId, this);
+	}
+
+	@Override
+	public int nextBlock() throws SQLException {
+		checkOpened();
+		checkForwardOnly();
+		if (prefetchPending) {
+			startPrefetch();
+		}
+
+		blockCursor = null;
+		blockRowCount = 0;
+		try {
+			if (rowPending) {
+				rowPending = false;
+				cursor.skipRow();
+			}
+
+			final int start;
+			if (firstRow != null) {
+				currentRow = firstRow;
+				firstRow = null;
+				start = 0;
+			}
+			else if (!cursor.hasNext() &&
+					(!followingExists || !fetchFollowing())) {
+				lastRow = currentRow;
+				currentRow = null;
+				return 0;
+			}
+			else {
+				start = cursor.getRowIndex() + 1;
+			}
+
+			final int end = cursor.getRowCount();
+			while (cursor.getRowIndex() + 2 < end) {
+				cursor.skipRow();
+			}
+			rowPending = (cursor.getRowIndex() + 1 < end);
+
+			blockCursor = cursor;
+			blockStart = start;
+			blockRowCount = end - start;
+			return blockRowCount;
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+		catch (NullPointerException e) {
+			checkOpened();
+			throw e;
+		}
+	}
+
+	@Override
+	public int getBlockRowCount() throws SQLException {
+		checkOpened();
+		return (blockCursor == null ? 0 : blockRowCount);
+	}
+
+	@Override
+	public void getBlockInts(
+			int columnIndex, int[] values, int offset, long[] nulls)
+			throws SQLException {
+		final RowMapper.ElementType type = checkBlockColumn(
+				columnIndex, INT_FIELD_TYPES, values.length, offset, nulls);
+		final RowMapper.Cursor cursor = blockCursor;
+		final ByteBuffer buf = cursor.getInputBuffer();
+		for (int i = 0; i < blockRowCount; i++) {
+			final int pos =
+					cursor.getFieldPosition(blockStart + i, columnIndex - 1);
+			setBlockNull(nulls, offset + i, pos < 0);
+			if (pos < 0) {
+				values[offset + i] = 0;
+				continue;
+			}
+			switch (type) {
+			case BYTE:
+				values[offset + i] = buf.get(pos);
+				break;
+			case SHORT:
+				values[offset + i] = buf.getShort(pos);
+				break;
+			default:
+				values[offset + i] = buf.getInt(pos);
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void getBlockLongs(
+			int columnIndex, long[] values, int offset, long[] nulls)
+			throws SQLException {
+		final RowMapper.ElementType type = checkBlockColumn(
+				columnIndex, LONG_BLOCK_TYPES, values.length, offset, nulls);
+		final RowMapper.Cursor cursor = blockCursor;
+		final ByteBuffer buf = cursor.getInputBuffer();
+		for (int i = 0; i < blockRowCount; i++) {
+			final int pos =
+					cursor.getFieldPosition(blockStart + i, columnIndex - 1);
+			setBlockNull(nulls, offset + i, pos < 0);
+			if (pos < 0) {
+				values[offset + i] = 0;
+				continue;
+			}
+			switch (type) {
+			case BYTE:
+				values[offset + i] = buf.get(pos);
+				break;
+			case SHORT:
+				values[offset + i] = buf.getShort(pos);
+				break;
+			case INTEGER:
+				values[offset + i] = buf.getInt(pos);
+				break;
+			default:
+				values[offset + i] = buf.getLong(pos);
+				break;
+			}
+		}
+	}
+
+	@Override
+	public void getBlockDoubles(
+			int columnIndex, double[] values, int offset, long[] nulls)
+			throws SQLException {
+		final RowMapper.ElementType type = checkBlockColumn(
+				columnIndex, DOUBLE_FIELD_TYPES, values.length, offset, nulls);
+		final RowMapper.Cursor cursor = blockCursor;
+		final ByteBuffer buf = cursor.getInputBuffer();
+		for (int i = 0; i < blockRowCount; i++) {
+			final int pos =
+					cursor.getFieldPosition(blockStart + i, columnIndex - 1);
+			setBlockNull(nulls, offset + i, pos < 0);
+			if (pos < 0) {
+				values[offset + i] = 0;
+				continue;
+			}
+			switch (type) {
+			case BYTE:
+				values[offset + i] = buf.get(pos);
+				break;
+			case SHORT:
+				values[offset + i] = buf.getShort(pos);
+				break;
+			case INTEGER:
+				values[offset + i] = buf.getInt(pos);
+				break;
+			case LONG:
+				values[offset + i] = buf.getLong(pos);
+				break;
+			case FLOAT:
+				values[offset + i] = buf.getFloat(pos);
+				break;
+			default:
+				values[offset + i] = buf.getDouble(pos);
+				break;
+			}
+		}
+	}
+
 	@Override
 	public void close() throws SQLException {
 		final RowMapper.Cursor lastCursor = cursor;
 
+		detachBlobViews();
+		stopPrefetch();
+		rowPending = false;
+		blockCursor = null;
 		cursor = null;
 		firstRow = null;
 		currentRow = null;
 		lastRow = null;
 		followingExists = false;
+		if (scrollStore != null) {
+			scrollStore.close();
+		}
 
-		if (lastCursor != null) {
-			cleanUnusedResources();
+		try {
+			if (lastCursor != null) {
+				cleanUnusedResources();
+			}
+		}
+		finally {
+			releaseOwnedBuffer();
 		}
 	}
 
@@ -193,36 +539,71 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	@Override
 	public boolean getBoolean(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, BOOL_FIELD_TYPES);
+		if (pos >= 0) {
+			return cursor.getInputBuffer().get(pos) != 0;
+		}
 		return getValue(columnIndex, Boolean.class, false, null);
 	}
 
 	@Override
 	public byte getByte(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, BYTE_FIELD_TYPES);
+		if (pos >= 0) {
+			return cursor.getInputBuffer().get(pos);
+		}
 		return getValue(columnIndex, Byte.class, (byte) 0, null);
 	}
 
 	@Override
 	public short getShort(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, SHORT_FIELD_TYPES);
+		if (pos >= 0) {
+			return (short) getDirectIntegralField(columnIndex, pos);
+		}
 		return getValue(columnIndex, Short.class, (short) 0, null);
 	}
 
 	@Override
 	public int getInt(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, INT_FIELD_TYPES);
+		if (pos >= 0) {
+			return (int) getDirectIntegralField(columnIndex, pos);
+		}
 		return getValue(columnIndex, Integer.class, (int) 0, null);
 	}
 
 	@Override
 	public long getLong(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, LONG_FIELD_TYPES);
+		if (pos >= 0) {
+			return getDirectIntegralField(columnIndex, pos);
+		}
 		return getValue(columnIndex, Long.class, (long) 0, null);
 	}
 
 	@Override
 	public float getFloat(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, FLOAT_FIELD_TYPES);
+		if (pos >= 0) {
+			return cursor.getInputBuffer().getFloat(pos);
+		}
 		return getValue(columnIndex, Float.class, (float) 0, null);
 	}
 
 	@Override
 	public double getDouble(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, DOUBLE_FIELD_TYPES);
+		if (pos >= 0) {
+			switch (cursor.getDirectFieldType(columnIndex - 1)) {
+			case FLOAT:
+				return cursor.getInputBuffer().getFloat(pos);
+			case DOUBLE:
+				return cursor.getInputBuffer().getDouble(pos);
+			default:
+				return getDirectIntegralField(columnIndex, pos);
+			}
+		}
 		return getValue(columnIndex, Double.class, (double) 0, null);
 	}
 
@@ -239,6 +620,10 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	@Override
 	public Date getDate(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, TIMESTAMP_FIELD_TYPES);
+		if (pos >= 0) {
+			return new Date(cursor.getInputBuffer().getLong(pos));
+		}
 		return getValue(columnIndex, Date.class, null, null);
 	}
 
@@ -249,6 +634,10 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	@Override
 	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		final int pos = findDirectField(columnIndex, TIMESTAMP_FIELD_TYPES);
+		if (pos >= 0) {
+			return new Timestamp(cursor.getInputBuffer().getLong(pos));
+		}
 		return getValue(columnIndex, Timestamp.class, null, null);
 	}
 
@@ -411,18 +800,29 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 	@Override
 	public boolean isBeforeFirst() throws SQLException {
 		checkOpened();
+		if (scrollStore != null) {
+			return (scrollRow < 0 && scrollStore.getRowCount() > 0);
+		}
 		return (firstRow != null);
 	}
 
 	@Override
 	public boolean isAfterLast() throws SQLException {
 		checkOpened();
+		if (scrollStore != null) {
+			return (currentRow == null && scrollRow >= 0 &&
+					scrollStore.getRowCount() > 0);
+		}
 		return (lastRow != null);
 	}
 
 	@Override
 	public boolean isFirst() throws SQLException {
 		checkOpened();
+		if (scrollStore != null) {
+			return (currentRow != null && scrollRow == 0);
+		}
+		decodePendingRow();
 		return (currentRow != null && !followingFetched &&
 				cursor.getRowIndex() == 0);
 	}
@@ -430,72 +830,97 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 	@Override
 	public boolean isLast() throws SQLException {
 		checkOpened();
+		if (scrollStore != null) {
+			if (currentRow == null) {
+				return false;
+			}
+			fetchScrollRows(scrollRow + 2);
+			return (scrollRow + 1 == scrollStore.getRowCount());
+		}
+		decodePendingRow();
 		return (currentRow != null && !fetchFollowing());
 	}
 
 	@Override
 	public void beforeFirst() throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		moveScroll(-1);
 	}
 
 	@Override
 	public void afterLast() throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		fetchScrollRows(Integer.MAX_VALUE);
+		moveScroll(scrollStore.getRowCount());
 	}
 
 	@Override
 	public boolean first() throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		return moveScroll(0);
 	}
 
 	@Override
 	public boolean last() throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		fetchScrollRows(Integer.MAX_VALUE);
+		return moveScroll(scrollStore.getRowCount() - 1);
 	}
 
 	@Override
 	public int getRow() throws SQLException {
-		throw SQLErrorUtils.errorNotSupportedFeature();
+		if (scrollStore == null) {
+			throw SQLErrorUtils.errorNotSupportedFeature();
+		}
+		checkOpened();
+		return (currentRow == null ? 0 : scrollRow + 1);
 	}
 
 	@Override
 	public boolean absolute(int row) throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		if (row >= 0) {
+			return moveScroll(row - 1);
+		}
+
+		fetchScrollRows(Integer.MAX_VALUE);
+		return moveScroll(Math.max(scrollStore.getRowCount() + row, -1));
 	}
 
 	@Override
 	public boolean relative(int rows) throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		final long row = (long) scrollRow + rows;
+		return moveScroll((int) Math.max(
+				Math.min(row, Integer.MAX_VALUE - 1), -1));
 	}
 
 	@Override
 	public boolean previous() throws SQLException {
-		checkOpened();
-		throw errorCursorMove();
+		checkScrollable();
+		return moveScroll(scrollRow - 1);
 	}
 
 	@Override
 	public void setFetchDirection(int direction) throws SQLException {
 		checkOpened();
 
-		if (direction != ResultSet.FETCH_FORWARD) {
+		if (direction != ResultSet.FETCH_FORWARD && (scrollStore == null ||
+				(direction != ResultSet.FETCH_REVERSE &&
+				direction != ResultSet.FETCH_UNKNOWN))) {
 			throw SQLErrorUtils.error(
 					SQLErrorUtils.UNSUPPORTED_PARAMETER_VALUE,
 					"Unsupported fetch direction (direction=" + direction + ")",
 					null);
 		}
+
+		fetchDirection = direction;
 	}
 
 	@Override
 	public int getFetchDirection() throws SQLException {
 		checkOpened();
-		return ResultSet.FETCH_FORWARD;
+		return fetchDirection;
 	}
 
 	@Override
@@ -527,7 +952,9 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 	@Override
 	public int getType() throws SQLException {
-		return ResultSet.TYPE_FORWARD_ONLY;
+		return (scrollStore == null ?
+				ResultSet.TYPE_FORWARD_ONLY :
+				ResultSet.TYPE_SCROLL_INSENSITIVE);
 	}
 
 	@Override
@@ -1209,10 +1636,112 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 		}
 	}
 
-	private SQLException errorCursorMove() {
-		return SQLErrorUtils.error(
-				SQLErrorUtils.ILLEGAL_STATE,
-				"Failed to move cursor because of forward only", null);
+	private void checkScrollable() throws SQLException {
+		checkOpened();
+		if (scrollStore == null) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.ILLEGAL_STATE,
+					"Failed to move cursor because of forward only", null);
+		}
+	}
+
+	private void checkForwardOnly() throws SQLException {
+		if (scrollStore != null) {
+			throw SQLErrorUtils.errorNotSupportedFeature(
+					SQLErrorUtils.OPTIONAL_FEATURE_NOT_SUPPORTED,
+					"Block fetch is not supported by scrollable result set",
+					null);
+		}
+	}
+
+	private boolean moveScroll(int row) throws SQLException {
+		checkOpened();
+		if (row < 0) {
+			scrollRow = -1;
+			currentRow = null;
+			return false;
+		}
+
+		fetchScrollRows(row + 1);
+		final int rowCount = scrollStore.getRowCount();
+		if (row >= rowCount) {
+			scrollRow = rowCount;
+			currentRow = null;
+			return false;
+		}
+
+		final int index = scrollStore.findBlock(row);
+		if (index != scrollBlock) {
+			switchScrollBlock(index);
+		}
+
+		try {
+			cursor.seekRow(row - scrollStore.getBlockStart(index));
+			if (currentRow == null) {
+				currentRow = mapper.createGeneralRow();
+			}
+			decodeRow();
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+		scrollRow = row;
+		return true;
+	}
+
+	private void switchScrollBlock(int index) throws SQLException {
+		final BasicBuffer buf;
+		try {
+			buf = scrollStore.getBuffer(index);
+		}
+		catch (IOException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+
+		detachBlobViews();
+		cursor = mapper.createCursor(
+				buf, RowMapper.MappingMode.ROWWISE_SEPARATED_V2,
+				scrollStore.getBlockRowCount(index), false, null);
+		cursor.setLazyLargeValues(
+				statement.getConnectionDirect().isLazyLargeValues());
+		cursor.setStringDictionary(stringDictionary);
+		scrollBlock = index;
+	}
+
+	private void fetchScrollRows(int rowCount) throws SQLException {
+		while (followingExists && scrollStore.getRowCount() < rowCount) {
+			SQLResultSet rs = null;
+			try {
+				rs = statement.fetchFollowing(queryId);
+			}
+			finally {
+				if (rs == null) {
+					close();
+				}
+			}
+
+			followingExists = rs.followingExists;
+			if (executionTiming != null && rs.executionTiming != null) {
+				executionTiming.merge(rs.executionTiming);
+			}
+
+			try {
+				final int blockRowCount = rs.cursor.getRowCount();
+				if (blockRowCount > 0) {
+					scrollStore.add(rs.cursor.getInputBuffer(), blockRowCount);
+				}
+			}
+			catch (IOException e) {
+				throw SQLErrorUtils.error(0, null, e);
+			}
+			finally {
+				rs.releaseOwnedBuffer();
+			}
+
+			if (!followingExists) {
+				cleanUnusedResources();
+			}
+		}
 	}
 
 	private boolean fetchFollowing() throws SQLException {
@@ -1225,7 +1754,16 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 			SQLResultSet rs = null;
 			try {
-				rs = statement.fetchFollowing(queryId);
+				if (prefetcher == null) {
+					rs = statement.fetchFollowing(queryId);
+				}
+				else {
+					rs = prefetcher.take();
+					if (rs == null) {
+						stopPrefetch();
+						rs = statement.fetchFollowing(queryId);
+					}
+				}
 			}
 			finally {
 				if (rs == null) {
@@ -1233,26 +1771,126 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 				}
 			}
 
-			followingExists = rs.followingExists;
-			cursor = rs.cursor;
+			return acceptFollowing(rs);
+		}
 
-			cleanUnusedResources();
+		return cursor.hasNext();
+	}
 
-			if (!cursor.hasNext()) {
-				return false;
-			}
+	boolean acceptFollowing(SQLResultSet rs) throws SQLException {
+		followingExists = rs.followingExists;
+		cursor = rs.cursor;
+		cursor.setStringDictionary(stringDictionary);
+		if (executionTiming != null && rs.executionTiming != null) {
+			executionTiming.merge(rs.executionTiming);
+		}
+
+		detachBlobViews();
+		releaseOwnedBuffer();
+		ownedBuffer = rs.ownedBuffer;
+		rs.ownedBuffer = null;
 
-			followingFetched = true;
-			return true;
+		if (!followingExists) {
+			stopPrefetch();
 		}
+		cleanUnusedResources();
 
-		return cursor.hasNext();
+		if (!cursor.hasNext()) {
+			return false;
+		}
+
+		followingFetched = true;
+		return true;
+	}
+
+	boolean fetchFollowingBlocking() throws SQLException {
+		checkOpened();
+		return fetchFollowing();
+	}
+
+	void setExecutionTiming(ExecutionTiming executionTiming) {
+		this.executionTiming = executionTiming;
+	}
+
+	@Override
+	public GridStoreExecutionTiming getExecutionTiming() throws SQLException {
+		checkOpened();
+		return executionTiming;
+	}
+
+	private void detachBlobViews() throws SQLException {
+		final List<BlobImpl> list = blobViewList;
+		if (list == null) {
+			return;
+		}
+
+		blobViewList = null;
+		for (BlobImpl blob : list) {
+			blob.detach(blobSpillThreshold);
+		}
+	}
+
+	private void trackBlobView(Object value) {
+		if (!(value instanceof BlobImpl) || !((BlobImpl) value).isView()) {
+			return;
+		}
+
+		if (blobViewList == null) {
+			blobViewList = new ArrayList<BlobImpl>();
+		}
+		blobViewList.add((BlobImpl) value);
+	}
+
+	void adoptBuffer(BasicBuffer buf) {
+		ownedBuffer = buf;
+	}
+
+	void releaseOwnedBuffer() {
+		final BasicBuffer buf = ownedBuffer;
+		ownedBuffer = null;
+		statement.getConnectionDirect().releaseBuffer(buf);
+	}
+
+	boolean isFollowingExists() {
+		return followingExists;
+	}
+
+	private void startPrefetch() {
+		prefetchPending = false;
+		if (!followingExists || cursor == null) {
+			return;
+		}
+
+		prefetcher = new FetchPrefetcher(
+				statement, queryId, statement.getPrefetchBlocksDirect());
+		statement.attachPrefetcher(prefetcher);
+		prefetcher.start();
+	}
+
+	private void stopPrefetch() {
+		prefetchPending = false;
+
+		final FetchPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher == null) {
+			return;
+		}
+
+		this.prefetcher = null;
+		try {
+			prefetcher.close();
+		}
+		finally {
+			statement.detachPrefetcher(prefetcher);
+		}
 	}
 
 	private void cleanUnusedResources() throws SQLException {
 		boolean succeeded = false;
 		try {
 			if (statementOwned && !followingExists) {
+				if (ownedBuffer == null && cursor != null) {
+					ownedBuffer = statement.detachRespBuffer();
+				}
 				statement.closeWithoutResultSet();
 			}
 			succeeded = true;
@@ -1264,11 +1902,129 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 		}
 	}
 
+	private int findDirectField(
+			int columnIndex, Set<RowMapper.ElementType> acceptableTypes) {
+		if (!rowPending) {
+			return -1;
+		}
+
+		final RowMapper.ElementType type =
+				cursor.getDirectFieldType(columnIndex - 1);
+		if (type == null || !acceptableTypes.contains(type)) {
+			return -1;
+		}
+
+		final int pos = cursor.getPendingFieldPosition(columnIndex - 1);
+		if (pos >= 0) {
+			wasNull = false;
+		}
+		return pos;
+	}
+
+	private long getDirectIntegralField(int columnIndex, int pos) {
+		final ByteBuffer buf = cursor.getInputBuffer();
+		switch (cursor.getDirectFieldType(columnIndex - 1)) {
+		case BYTE:
+			return buf.get(pos);
+		case SHORT:
+			return buf.getShort(pos);
+		case INTEGER:
+			return buf.getInt(pos);
+		default:
+			return buf.getLong(pos);
+		}
+	}
+
+	private RowMapper.ElementType checkBlockColumn(
+			int columnIndex, Set<RowMapper.ElementType> acceptableTypes,
+			int length, int offset, long[] nulls) throws SQLException {
+		checkOpened();
+		if (blockCursor == null) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.INVALID_CURSOR_POSITION,
+					"No block is positioned", null);
+		}
+
+		final int columnCount = containerInfo.getColumnCount();
+		if (columnIndex <= 0 || columnIndex > columnCount) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.COLUMN_INDEX_OUT_OF_RANGE,
+					"Column index out of range (columnIndex=" +
+					columnIndex + ", columnCount=" + columnCount + ")", null);
+		}
+
+		final RowMapper.ElementType type =
+				blockCursor.getDirectFieldType(columnIndex - 1);
+		if (type == null || !acceptableTypes.contains(type)) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.VALUE_TYPE_CONVERSION_FAILED,
+					"Unsupported column type for block read (" +
+					"columnIndex=" + columnIndex +
+					", type=" + containerInfo.getColumnInfo(
+							columnIndex - 1).getType() + ")", null);
+		}
+
+		final long end = (long) offset + blockRowCount;
+		if (offset < 0 || end > length || (nulls != null &&
+				(end + Long.SIZE - 1) / Long.SIZE > nulls.length)) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Insufficient vector size (offset=" + offset +
+					", blockRowCount=" + blockRowCount +
+					", valuesLength=" + length +
+					", nullsLength=" +
+					(nulls == null ? null : nulls.length) + ")", null);
+		}
+
+		return type;
+	}
+
+	private static void setBlockNull(long[] nulls, int index, boolean isNull) {
+		if (nulls == null) {
+			return;
+		}
+
+		final long mask = 1L << (index % Long.SIZE);
+		if (isNull) {
+			nulls[index / Long.SIZE] |= mask;
+		}
+		else {
+			nulls[index / Long.SIZE] &= ~mask;
+		}
+	}
+
+	private void decodePendingRow() throws SQLException {
+		if (!rowPending) {
+			return;
+		}
+
+		rowPending = false;
+		try {
+			decodeRow();
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
+	}
+
+	private void decodeRow() throws GSException {
+		final ExecutionTiming timing = executionTiming;
+		if (timing == null) {
+			cursor.decode(true, currentRow);
+			return;
+		}
+
+		final long startNanos = System.nanoTime();
+		cursor.decode(true, currentRow);
+		timing.addDecode(System.nanoTime() - startNanos);
+	}
+
 	private <T> T getValue(
 			int columnIndex, Class<T> type, T defaultValue, Calendar cal)
 			throws SQLException {
+		decodePendingRow();
 		try {
-			final Object value;
+			Object value;
 			try {
 				value = currentRow.getValue(columnIndex - 1);
 			}
@@ -1287,6 +2043,13 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 
 			wasNull = false;
 
+			if (value instanceof RowMapper.LazyString) {
+				value = value.toString();
+			}
+			else if (type.isInstance(value)) {
+				trackBlobView(value);
+			}
+
 			if (!type.isInstance(value)) {
 				if (value == null) {
 					wasNull = true;
@@ -1413,9 +2176,9 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 				else if (value instanceof Timestamp) {
 					final TimeUnit timePrecision = containerInfo.getColumnInfo(
 							columnIndex - 1).getTimePrecision();
-					destValue = TimestampUtils.getFormat(
-							resolveTimeZoneOffset(), timePrecision).format(
-							(java.util.Date) value);
+					destValue = TimestampUtils.format(
+							(java.util.Date) value, resolveTimeZoneOffset(),
+							timePrecision);
 				}
 				else if (value instanceof java.util.Date) {
 					destValue = TimestampUtils.format(
@@ -1607,6 +2370,11 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 				}
 			}
 			else if (type == InputStream.class) {
+				if (value instanceof BlobImpl) {
+					trackBlobView(value);
+					destValue = ((BlobImpl) value).getBinaryStream();
+					return type.cast(destValue);
+				}
 				final byte[] bytesValue;
 				try {
 					bytesValue = convertValueType(
@@ -1719,6 +2487,12 @@ class SQLResultSet implements ResultSet, LaterResultSet {
 	private static Timestamp parseTimestamp(
 			String stringValue, Calendar cal, SQLStatement statement)
 			throws SQLException {
+		final Timestamp fastTs = TimestampCodec.parseFlexible(
+				stringValue, resolveTimeZoneOffset(cal, statement));
+		if (fastTs != null) {
+			return fastTs;
+		}
+
 		do {
 			final String[] elems = tryNormalizeTimestampString(stringValue);
 			if (elems == null) {
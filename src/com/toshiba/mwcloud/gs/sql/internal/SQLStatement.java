@@ -22,13 +22,19 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SimpleTimeZone;
+import java.util.concurrent.CompletableFuture;
 
+import com.toshiba.mwcloud.gs.sql.GridStoreAsyncStatement;
+import com.toshiba.mwcloud.gs.sql.GridStoreExecutionTiming;
+import com.toshiba.mwcloud.gs.sql.GridStoreMetrics.Operation;
+import com.toshiba.mwcloud.gs.sql.GridStoreStatement;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.FeatureVersion;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.OptionalRequest;
 import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.OptionalRequestType;
@@ -37,7 +43,9 @@ import com.toshiba.mwcloud.gs.sql.internal.SQLConnection.BaseConnection;
 import com.toshiba.mwcloud.gs.sql.internal.SQLConnection.Hook;
 import com.toshiba.mwcloud.gs.sql.internal.SQLLaterFeatures.LaterStatement;
 
-class SQLStatement implements Statement, LaterStatement {
+class SQLStatement
+implements Statement, LaterStatement, GridStoreStatement,
+GridStoreAsyncStatement {
 
 	private static final long TIMEOUT_RESOLUTION_MILLIS = 1 * 1000;
 
@@ -64,7 +72,7 @@ class SQLStatement implements Statement, LaterStatement {
 
 	private ResultSet lastResultSet;
 
-	private final BasicBuffer req;
+	private BasicBuffer req;
 
 	private BasicBuffer resp;
 
@@ -74,6 +82,23 @@ class SQLStatement implements Statement, LaterStatement {
 
 	private int fetchSize;
 
+	private int prefetchBlocks;
+
+	private int fetchBytesSize;
+
+	private int resultSetType = ResultSet.TYPE_FORWARD_ONLY;
+
+	private double averageRowBytes;
+
+	private volatile FetchPrefetcher prefetcher;
+
+	private ExecutionTiming lastExecutionTiming;
+
+	private CompletableFuture<?> lastAsyncFuture;
+
+	private final List<SQLStatement> pipelinedList =
+			new ArrayList<SQLStatement>();
+
 	public SQLStatement(SQLConnection connection) {
 		this.connection = connection;
 
@@ -86,21 +111,26 @@ class SQLStatement implements Statement, LaterStatement {
 		resultList = new ArrayList<Result>();
 		req = connection.takeReqBuffer();
 		resp = connection.takeRespBuffer();
+		prefetchBlocks = connection.getPrefetchBlocks();
+		fetchBytesSize = connection.getFetchBytesSize();
 	}
 
 	@Override
 	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (isWrapperFor(iface)) {
+			return iface.cast(this);
+		}
 		throw SQLErrorUtils.errorUnwrapping();
 	}
 
 	@Override
 	public boolean isWrapperFor(Class<?> iface) throws SQLException {
-		return false;
+		return (iface != null && iface.isInstance(this));
 	}
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
-		checkOpened();
+		checkExecutable();
 		SQLErrorUtils.checkNullParameter(sql, "sql", null);
 
 		queryList.clear();
@@ -110,9 +140,73 @@ class SQLStatement implements Statement, LaterStatement {
 		return prepareResultSet(false);
 	}
 
+	@Override
+	public List<ResultSet> executeQueries(List<String> sqlList)
+			throws SQLException {
+		checkExecutable();
+		SQLErrorUtils.checkNullParameter(sqlList, "sqlList", null);
+		for (String sql : sqlList) {
+			SQLErrorUtils.checkNullParameter(sql, "sql", null);
+		}
+
+		clearResults();
+		closePipelined();
+
+		final List<SQLStatement> statementList =
+				new ArrayList<SQLStatement>(sqlList.size());
+		boolean succeeded = false;
+		try {
+			for (String sql : sqlList) {
+				final SQLStatement statement = new SQLStatement(connection);
+				statementList.add(statement);
+
+				statement.queryTimeoutSecs = queryTimeoutSecs;
+				statement.maxRows = maxRows;
+				statement.fetchSize = fetchSize;
+				statement.prefetchBlocks = prefetchBlocks;
+				statement.fetchBytesSize = fetchBytesSize;
+				statement.averageRowBytes = averageRowBytes;
+				statement.queryList.add(sql);
+			}
+
+			connection.getExecutionLock().lock();
+			try {
+				connection.awaitAsyncIdle();
+				executePipelined(statementList);
+			}
+			finally {
+				connection.getExecutionLock().unlock();
+			}
+
+			final List<ResultSet> rsList =
+					new ArrayList<ResultSet>(statementList.size());
+			for (SQLStatement statement : statementList) {
+				final SQLResultSet rs =
+						(SQLResultSet) statement.prepareResultSet(false);
+				rsList.add(rs);
+				rs.setStatementOwned(true);
+			}
+
+			pipelinedList.addAll(statementList);
+			succeeded = true;
+			return rsList;
+		}
+		finally {
+			if (!succeeded) {
+				for (SQLStatement statement : statementList) {
+					try {
+						statement.close();
+					}
+					catch (Throwable t) {
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
-		checkOpened();
+		checkExecutable();
 		SQLErrorUtils.checkNullParameter(sql, "sql", null);
 
 		queryList.clear();
@@ -122,14 +216,56 @@ class SQLStatement implements Statement, LaterStatement {
 		return getLastResult().updateCount;
 	}
 
+	@Override
+	public CompletableFuture<ResultSet> executeQueryAsync(String sql)
+			throws SQLException {
+		checkExecutable();
+		SQLErrorUtils.checkNullParameter(sql, "sql", null);
+
+		return submitAsync(
+				new AsyncExecution<ResultSet>(StatementOperation.QUERY, sql) {
+					@Override
+					ResultSet getResult() throws SQLException {
+						return prepareResultSet(false);
+					}
+				});
+	}
+
+	@Override
+	public CompletableFuture<Integer> executeUpdateAsync(String sql)
+			throws SQLException {
+		checkExecutable();
+		SQLErrorUtils.checkNullParameter(sql, "sql", null);
+
+		return submitAsync(
+				new AsyncExecution<Integer>(StatementOperation.UPDATE, sql) {
+					@Override
+					Integer getResult() throws SQLException {
+						return getLastResult().updateCount;
+					}
+				});
+	}
+
 	@Override
 	public void close() throws SQLException {
 		if (closed) {
 			return;
 		}
 
+		final FetchPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher != null) {
+			prefetcher.awaitUninterruptibly();
+		}
+		connection.getExecutionLock().lock();
+		try {
+			connection.awaitAsyncIdle();
+		}
+		finally {
+			connection.getExecutionLock().unlock();
+		}
 		try {
 			try {
+				closePipelined();
 				if (lastResultSet != null) {
 					lastResultSet.close();
 				}
@@ -140,7 +276,18 @@ class SQLStatement implements Statement, LaterStatement {
 			}
 		}
 		finally {
-			closed = true;
+			connection.getExecutionLock().lock();
+			try {
+				connection.awaitAsyncIdle();
+				closed = true;
+				connection.releaseBuffer(req);
+				connection.releaseBuffer(resp);
+				req = null;
+				resp = null;
+			}
+			finally {
+				connection.getExecutionLock().unlock();
+			}
 		}
 	}
 
@@ -204,6 +351,11 @@ class SQLStatement implements Statement, LaterStatement {
 	public void cancel() throws SQLException {
 		checkOpened();
 
+		final FetchPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher != null) {
+			prefetcher.cancel();
+		}
+
 		try {
 			connection.getHook().cancelQuery();
 		}
@@ -230,7 +382,7 @@ class SQLStatement implements Statement, LaterStatement {
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
-		checkOpened();
+		checkExecutable();
 		SQLErrorUtils.checkNullParameter(sql, "sql", null);
 
 		queryList.clear();
@@ -242,20 +394,20 @@ class SQLStatement implements Statement, LaterStatement {
 
 	@Override
 	public ResultSet getResultSet() throws SQLException {
-		checkOpened();
+		checkExecutable();
 		return getResultSetDirect(false);
 	}
 
 	@Override
 	public int getUpdateCount() throws SQLException {
-		checkOpened();
+		checkExecutable();
 		return (isResultsAccessible() && !getLastResult().tableFound ?
 				getLastResult().updateCount : -1);
 	}
 
 	@Override
 	public boolean getMoreResults() throws SQLException {
-		checkOpened();
+		checkExecutable();
 		lastResultIndex++;
 		return (isResultsAccessible() && getLastResult().tableFound);
 	}
@@ -297,6 +449,47 @@ class SQLStatement implements Statement, LaterStatement {
 		return fetchSize;
 	}
 
+	@Override
+	public void setPrefetchBlocks(int blocks) throws SQLException {
+		checkOpened();
+		if (blocks < 0) {
+			throw SQLErrorUtils.error(SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Negative parameter (value=" + blocks + ")", null);
+		}
+
+		prefetchBlocks = blocks;
+	}
+
+	@Override
+	public int getPrefetchBlocks() throws SQLException {
+		checkOpened();
+		return prefetchBlocks;
+	}
+
+	@Override
+	public void setFetchBytesSize(int bytes) throws SQLException {
+		checkOpened();
+		if (bytes < 0) {
+			throw SQLErrorUtils.error(SQLErrorUtils.ILLEGAL_PARAMETER,
+					"Negative parameter (value=" + bytes + ")", null);
+		}
+
+		fetchBytesSize = bytes;
+	}
+
+	@Override
+	public int getFetchBytesSize() throws SQLException {
+		checkOpened();
+		return fetchBytesSize;
+	}
+
+	@Override
+	public GridStoreExecutionTiming getLastExecutionTiming()
+			throws SQLException {
+		checkOpened();
+		return lastExecutionTiming;
+	}
+
 	@Override
 	public int getResultSetConcurrency() throws SQLException {
 		checkOpened();
@@ -306,7 +499,7 @@ class SQLStatement implements Statement, LaterStatement {
 	@Override
 	public int getResultSetType() throws SQLException {
 		checkOpened();
-		return ResultSet.TYPE_FORWARD_ONLY;
+		return resultSetType;
 	}
 
 	@Override
@@ -315,7 +508,7 @@ class SQLStatement implements Statement, LaterStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
 		queryList.add(sql);
 	}
 
@@ -325,7 +518,7 @@ class SQLStatement implements Statement, LaterStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
 		queryList.clear();
 		clearResults();
 	}
@@ -336,7 +529,7 @@ class SQLStatement implements Statement, LaterStatement {
 			throw SQLErrorUtils.errorNotSupported();
 		}
 
-		checkOpened();
+		checkExecutable();
 
 		isExecuteBatch = true;
 		try {
@@ -443,6 +636,12 @@ class SQLStatement implements Statement, LaterStatement {
 		GET
 	}
 
+	private static class TraceInfo {
+		long sentBytes;
+		long receivedBytes;
+		int retries;
+	}
+
 	protected static class Result {
 		BasicBuffer buf;
 		long queryId;
@@ -565,8 +764,13 @@ class SQLStatement implements Statement, LaterStatement {
 		}
 	}
 
-	boolean executePragma(String pragma) throws SQLException {
+	protected void checkExecutable() throws SQLException {
 		checkOpened();
+		awaitPrefetch();
+	}
+
+	boolean executePragma(String pragma) throws SQLException {
+		checkExecutable();
 
 		queryList.clear();
 		queryList.add(pragma);
@@ -577,18 +781,83 @@ class SQLStatement implements Statement, LaterStatement {
 
 	protected void execute(StatementOperation statementOp, boolean newQuery)
 			throws SQLException {
+		awaitPrefetch();
+		connection.getExecutionLock().lock();
+		try {
+			connection.awaitAsyncIdle();
+			executeDirect(statementOp, newQuery);
+		}
+		finally {
+			connection.getExecutionLock().unlock();
+		}
+	}
+
+	private void executeDirect(
+			StatementOperation statementOp, boolean newQuery)
+			throws SQLException {
+		final CallTracer tracer = connection.getTracer();
+		if (!tracer.isSampled()) {
+			executeDirect(statementOp, newQuery, null);
+			return;
+		}
+
+		final long startNanos = System.nanoTime();
+		final TraceInfo traceInfo = new TraceInfo();
+		Throwable error = null;
+		try {
+			executeDirect(statementOp, newQuery, traceInfo);
+		}
+		catch (SQLException e) {
+			error = e;
+			throw e;
+		}
+		catch (RuntimeException e) {
+			error = e;
+			throw e;
+		}
+		finally {
+			long rows = 0;
+			if (error == null) {
+				for (Result result : resultList) {
+					rows += (result.tableFound ?
+							result.rowCount : result.updateCount);
+				}
+			}
+			tracer.trace(
+					CallTracer.toMethodName(statementOp),
+					System.nanoTime() - startNanos, rows,
+					traceInfo.sentBytes, traceInfo.receivedBytes,
+					traceInfo.retries, error);
+		}
+	}
+
+	private void executeDirect(
+			StatementOperation statementOp, boolean newQuery,
+			TraceInfo traceInfo) throws SQLException {
 
 		final long queryTimeoutMillis = Math.max(queryTimeoutSecs * 1000L, -1);
 		long remainingTimeout = queryTimeoutMillis;
 		long initialTime = -1;
 		long failoverStartTime = -1;
 
+		final DriverMetrics metrics = connection.getMetricsDirect();
+		final ExecutionTiming timing =
+				(statementOp != null && connection.isExecutionTimingEnabled() ?
+						new ExecutionTiming(
+								CallTracer.toMethodName(statementOp)) :
+						null);
+		final long startNanos =
+				(metrics == null && timing == null ? 0 : System.nanoTime());
+
 		clearResults();
 
 		for (int retryCount = 0;; retryCount++) {
 			BaseConnection curBaseConnection = connection.base();
 			final Hook hook = connection.getHook();
 			try {
+				if (retryCount > 0 && metrics != null) {
+					metrics.increment(DriverMetrics.Counter.FAILOVER_RETRY);
+				}
 				if (retryCount > 0 || curBaseConnection == null) {
 					if (initialTime < 0) {
 						initialTime = System.currentTimeMillis();
@@ -649,44 +918,14 @@ class SQLStatement implements Statement, LaterStatement {
 					break;
 				}
 
-				SQLConnection.fillRequestHead(curBaseConnection.base, req);
-
-				req.putUUID(connection.getUUID());
-				req.putByteEnum(
-						prepared ? SessionMode.GET : SessionMode.CREATE);
-				req.putEnum(statementOp);
-				req.putLong(queryRef.queryId);
-				req.putLong(oldQueryId);
-				req.putBoolean(connection.isTransactionStarted());
-				req.putBoolean(retryCount > 0);
-
-				putInputTable(req);
-
-				final OptionalRequest optionalRequest = new OptionalRequest();
-				optionalRequest.put(OptionalRequestType.STATEMENT_TIMEOUT,
-						PropertyUtils.timeoutPropertyToIntMillis(
-								remainingTimeout));
-				optionalRequest.put(OptionalRequestType.FETCH_LIMIT,
-						(long) maxRows);
-				optionalRequest.put(OptionalRequestType.FETCH_SIZE,
-						(long) fetchSize);
-				optionalRequest.put(OptionalRequestType.DB_NAME,
-						connection.getDbName());
-				if (isExecuteBatch) {
-					optionalRequest.putFeatureVersion(FeatureVersion.V5_5);
-				}
-				connection.putOptionalRequest(optionalRequest);
-
-				optionalRequest.format(req);
-
-				if (prepared) {
-					req.putInt(0);
-				}
-				else {
-					req.putInt(queryList.size());
-					for (String query : queryList) {
-						req.putString(query);
-					}
+				final long encodeStartNanos =
+						(timing == null ? 0 : System.nanoTime());
+				putRequest(
+						curBaseConnection, statementOp, prepared, oldQueryId,
+						retryCount, remainingTimeout);
+				if (timing != null) {
+					timing.addEncode(System.nanoTime() - encodeStartNanos);
+					curBaseConnection.base.setExecutionTiming(timing);
 				}
 
 				final int partitionId =
@@ -698,9 +937,16 @@ class SQLStatement implements Statement, LaterStatement {
 						partitionId, connection.getUUID(), queryRef.queryId,
 						remainingTimeout);
 
+				if (traceInfo != null) {
+					traceInfo.retries = retryCount;
+					traceInfo.sentBytes += req.base().position();
+				}
 				curBaseConnection.base.executeStatementDirect(
 						SQLConnection.SQL_STATEMENT_TYPE,
 						partitionId, 0, req, resp, null);
+				if (traceInfo != null) {
+					traceInfo.receivedBytes += resp.base().limit();
+				}
 			}
 			catch (GSConnectionException e) {
 				if (curBaseConnection != null) {
@@ -789,47 +1035,281 @@ class SQLStatement implements Statement, LaterStatement {
 				if (hook != null) {
 					hook.endQuery();
 				}
+				if (timing != null && curBaseConnection != null) {
+					curBaseConnection.base.setExecutionTiming(null);
+				}
 			}
 
-			connection.updateBufferStatus(
-					req.base().capacity(), resp.base().capacity());
+			final long decodeStartNanos =
+					(timing == null ? 0 : System.nanoTime());
+			acceptResponse(statementOp);
 
-			final boolean transactionStarted = resp.getBoolean();
-			final boolean autoCommit = resp.getBoolean();
-			connection.updateTransactionStatus(transactionStarted, autoCommit);
+			queryRef.lastBaseConnection = curBaseConnection;
+			if (metrics != null || timing != null) {
+				final long endNanos = System.nanoTime();
+				if (metrics != null) {
+					recordLatency(metrics, statementOp, endNanos - startNanos);
+				}
+				if (timing != null) {
+					timing.addDecode(endNanos - decodeStartNanos);
+					timing.addTotal(endNanos - startNanos);
+					lastExecutionTiming = timing;
+					ExecutionTiming.notifyListeners(timing);
+				}
+			}
+			break;
+		}
+	}
 
+	private static void recordLatency(
+			DriverMetrics metrics, StatementOperation statementOp,
+			long nanos) {
+		switch (statementOp) {
+		case FETCH:
+			metrics.increment(DriverMetrics.Counter.FETCH_BLOCK);
+			metrics.recordLatency(Operation.FETCH, nanos);
+			break;
+		case CLOSE:
+			metrics.recordLatency(Operation.CLOSE, nanos);
+			break;
+		default:
+			metrics.recordLatency(Operation.EXECUTE, nanos);
+			break;
+		}
+	}
+
+	private void putRequest(
+			BaseConnection curBaseConnection, StatementOperation statementOp,
+			boolean prepared, long oldQueryId, int retryCount,
+			long remainingTimeout) throws GSException, SQLException {
+		SQLConnection.fillRequestHead(curBaseConnection.base, req);
+
+		req.putUUID(connection.getUUID());
+		req.putByteEnum(
+				prepared ? SessionMode.GET : SessionMode.CREATE);
+		req.putEnum(statementOp);
+		req.putLong(queryRef.queryId);
+		req.putLong(oldQueryId);
+		req.putBoolean(connection.isTransactionStarted());
+		req.putBoolean(retryCount > 0);
+
+		putInputTable(req);
+
+		final OptionalRequest optionalRequest = new OptionalRequest();
+		optionalRequest.put(OptionalRequestType.STATEMENT_TIMEOUT,
+				PropertyUtils.timeoutPropertyToIntMillis(
+						remainingTimeout));
+		optionalRequest.put(OptionalRequestType.FETCH_LIMIT,
+				(long) maxRows);
+		optionalRequest.put(OptionalRequestType.FETCH_SIZE,
+				(long) getRequestFetchSize());
+		if (fetchBytesSize > 0) {
+			optionalRequest.put(OptionalRequestType.FETCH_BYTES_SIZE,
+					fetchBytesSize);
+		}
+		optionalRequest.put(OptionalRequestType.DB_NAME,
+				connection.getDbName());
+		if (isExecuteBatch) {
+			optionalRequest.putFeatureVersion(FeatureVersion.V5_5);
+		}
+		connection.putOptionalRequest(optionalRequest);
+
+		optionalRequest.format(req);
+
+		if (prepared) {
+			req.putInt(0);
+		}
+		else {
+			req.putInt(queryList.size());
+			for (String query : queryList) {
+				req.putString(query);
+			}
+		}
+	}
+
+	private void acceptResponse(StatementOperation statementOp)
+			throws SQLException {
+		connection.updateBufferStatus(
+				req.base().capacity(), resp.base().capacity());
+
+		final boolean transactionStarted = resp.getBoolean();
+		final boolean autoCommit = resp.getBoolean();
+		connection.updateTransactionStatus(transactionStarted, autoCommit);
+
+		clearResults();
+		final int count = resp.base().getInt();
+		boolean acceptable = true;
+		for (int i = 0; i < count; i++) {
+			final Result result = new Result();
+			acceptable &=
+					result.accept(resp, queryRef.queryId, statementOp);
+			resultList.add(result);
+		}
+
+		if (resp.base().hasRemaining()) {
+			final Map<String, String> env =
+					SQLConnection.importRemoteEnv(resp);
+			if (env != null) {
+				connection.acceptRemoteEnv(env);
+			}
+		}
+
+		if (!acceptable) {
 			clearResults();
-			final int count = resp.base().getInt();
-			boolean acceptable = true;
-			for (int i = 0; i < count; i++) {
-				final Result result = new Result();
-				acceptable &=
-						result.accept(resp, queryRef.queryId, statementOp);
-				resultList.add(result);
+			connection.updateTransactionStatus(
+					false, autoCommit);
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.STATEMENT_CATEGORY_UNMATCHED,
+					statementOp == StatementOperation.QUERY ?
+							"Writable query specified for read only request" :
+							"Read only query specified for writable request",
+					null);
+		}
+
+		for (Result result : resultList) {
+			updateAverageRowBytes(result);
+		}
+	}
+
+	private void executePipelined(List<SQLStatement> statementList)
+			throws SQLException {
+		final BaseConnection curBaseConnection = connection.base();
+		if (curBaseConnection == null) {
+			executeSequentially(statementList);
+			return;
+		}
+
+		final NodeConnection base = curBaseConnection.base;
+		final long queryTimeoutMillis = Math.max(queryTimeoutSecs * 1000L, -1);
+		final int partitionId =
+				Math.max(connection.getPreferablePartitionId(), 0);
+		final Map<Long, SQLStatement> pendingMap =
+				new HashMap<Long, SQLStatement>();
+		SQLException lastException = null;
+		try {
+			base.setMinHeartbeatTimeoutMillis(queryTimeoutMillis);
+			for (SQLStatement statement : statementList) {
+				final QueryReference queryRef = statement.queryRef;
+				if (curBaseConnection != queryRef.lastBaseConnection) {
+					queryRef.queryId = 0;
+					queryRef.lastBaseConnection = curBaseConnection;
+				}
+				final long oldQueryId = queryRef.queryId;
+				queryRef.queryId = connection.generateQueryId();
+
+				statement.putRequest(
+						curBaseConnection, StatementOperation.QUERY, false,
+						oldQueryId, 0, queryTimeoutMillis);
+				pendingMap.put(base.sendStatementDirect(
+						SQLConnection.SQL_STATEMENT_TYPE, partitionId, 0,
+						statement.req), statement);
 			}
 
-			if (resp.base().hasRemaining()) {
-				final Map<String, String> env =
-						SQLConnection.importRemoteEnv(resp);
-				if (env != null) {
-					connection.acceptRemoteEnv(env);
+			BasicBuffer buf = connection.takeRespBuffer();
+			try {
+				while (!pendingMap.isEmpty()) {
+					final SQLStatement statement = pendingMap.remove(
+							base.receiveStatementDirect(
+									SQLConnection.SQL_STATEMENT_TYPE, buf));
+					if (statement == null) {
+						throw new GSConnectionException(
+								GSErrorCode.MESSAGE_CORRUPTED,
+								"Protocol error by illegal statement ID (" +
+								"address=" + base.getRemoteSocketAddress() +
+								")");
+					}
+
+					final BasicBuffer orgResp = statement.resp;
+					statement.resp = buf;
+					buf = orgResp;
+
+					try {
+						try {
+							base.checkStatementResult(
+									statement.resp, partitionId);
+						}
+						catch (GSConnectionException e) {
+							throw e;
+						}
+						catch (GSException e) {
+							connection.updateTransactionStatus(
+									false, connection.getAutoCommit());
+							throw SQLErrorUtils.error(0, null, e);
+						}
+						statement.acceptResponse(StatementOperation.QUERY);
+					}
+					catch (SQLException e) {
+						if (lastException == null) {
+							lastException = e;
+						}
+					}
 				}
 			}
+			finally {
+				connection.releaseBuffer(buf);
+			}
+		}
+		catch (GSConnectionException e) {
+			curBaseConnection.lastException = e;
+			try {
+				connection.disconnect(true);
+			}
+			catch (GSException e2) {
+			}
+			executeSequentially(statementList);
+		}
+		catch (GSException e) {
+			throw SQLErrorUtils.error(0, null, e);
+		}
 
-			if (!acceptable) {
-				clearResults();
-				connection.updateTransactionStatus(
-						false, autoCommit);
-				throw SQLErrorUtils.error(
-						SQLErrorUtils.STATEMENT_CATEGORY_UNMATCHED,
-						statementOp == StatementOperation.QUERY ?
-								"Writable query specified for read only request" :
-								"Read only query specified for writable request",
-						null);
+		if (lastException != null) {
+			throw lastException;
+		}
+	}
+
+	private static void executeSequentially(List<SQLStatement> statementList)
+			throws SQLException {
+		for (SQLStatement statement : statementList) {
+			if (!statement.isResultsAccessible()) {
+				statement.executeDirect(StatementOperation.QUERY, true);
 			}
+		}
+	}
 
-			queryRef.lastBaseConnection = curBaseConnection;
-			break;
+	private void closePipelined() throws SQLException {
+		try {
+			for (SQLStatement statement : pipelinedList) {
+				statement.close();
+			}
+		}
+		finally {
+			pipelinedList.clear();
+		}
+	}
+
+	private int getRequestFetchSize() {
+		if (fetchBytesSize <= 0 || averageRowBytes <= 0) {
+			return fetchSize;
+		}
+
+		final double rows = Math.max(fetchBytesSize / averageRowBytes, 1);
+		if (fetchSize > 0 && rows > fetchSize) {
+			return fetchSize;
+		}
+		return (int) Math.min(rows, Integer.MAX_VALUE);
+	}
+
+	private void updateAverageRowBytes(Result result) {
+		if (!result.tableFound || result.rowCount <= 0) {
+			return;
+		}
+
+		final double rowBytes = (double) result.rowSetSize / result.rowCount;
+		if (averageRowBytes <= 0) {
+			averageRowBytes = rowBytes;
+		}
+		else {
+			averageRowBytes += (rowBytes - averageRowBytes) / 2;
 		}
 	}
 
@@ -840,10 +1320,24 @@ class SQLStatement implements Statement, LaterStatement {
 	}
 
 	SQLResultSet fetchFollowing(long queryId) throws SQLException {
-		if (!resultList.isEmpty()) {
-			resp = connection.takeRespBuffer();
+		awaitPrefetch();
+		connection.getExecutionLock().lock();
+		try {
+			connection.awaitAsyncIdle();
+			if (isClosed()) {
+				throw SQLErrorUtils.error(
+						SQLErrorUtils.ALREADY_CLOSED,
+						"Related statement already closed", null);
+			}
+			return fetchFollowingDirect(queryId);
 		}
+		finally {
+			connection.getExecutionLock().unlock();
+		}
+	}
 
+	private SQLResultSet fetchFollowingDirect(long queryId)
+			throws SQLException {
 		if (queryId != queryRef.queryId) {
 			throw SQLErrorUtils.error(
 					SQLErrorUtils.ALREADY_CLOSED,
@@ -855,21 +1349,35 @@ class SQLStatement implements Statement, LaterStatement {
 		final int lastResultIndex = this.lastResultIndex;
 		final ResultSet lastResultSet = this.lastResultSet;
 
+		final BasicBuffer orgResp = resp;
+		final BasicBuffer fetchResp = (resultList.isEmpty() ?
+				null : connection.takeRespBuffer());
+
 		this.resultList.clear();
 		this.lastResultIndex = 0;
 		this.lastResultSet = null;
 
+		boolean adopted = false;
 		try {
-			execute(StatementOperation.FETCH, false);
+			if (fetchResp != null) {
+				resp = fetchResp;
+			}
+			executeDirect(StatementOperation.FETCH, false);
 			final SQLResultSet rs = (SQLResultSet) getResultSetDirect(true);
 			if (rs == null) {
 				throw SQLErrorUtils.error(
 						SQLErrorUtils.MESSAGE_CORRUPTED,
 						"Protocol error occurred on fetching results", null);
 			}
+			rs.adoptBuffer(fetchResp);
+			adopted = true;
 			return rs;
 		}
 		finally {
+			if (!adopted) {
+				connection.releaseBuffer(fetchResp);
+			}
+			resp = orgResp;
 			this.queryList.clear();
 			this.queryList.addAll(queryList);
 			this.resultList.clear();
@@ -879,6 +1387,253 @@ class SQLStatement implements Statement, LaterStatement {
 		}
 	}
 
+	CompletableFuture<Boolean> fetchFollowingAsync(
+			long queryId, SQLResultSet target) {
+		final CompletableFuture<Boolean> future =
+				connection.getAsyncDispatcher().submit(
+						new AsyncFetch(queryId, target));
+		synchronized (this) {
+			lastAsyncFuture = future;
+		}
+		return future;
+	}
+
+	private synchronized <T> CompletableFuture<T> submitAsync(
+			AsyncStatementDispatcher.Operation<T> op) throws SQLException {
+		if (lastAsyncFuture != null && !lastAsyncFuture.isDone()) {
+			throw SQLErrorUtils.error(
+					SQLErrorUtils.ILLEGAL_STATE,
+					"Another asynchronous operation is still in progress " +
+					"on this statement", null);
+		}
+
+		clearResults();
+		final CompletableFuture<T> future =
+				connection.getAsyncDispatcher().submit(op);
+		lastAsyncFuture = future;
+		return future;
+	}
+
+	private long getAsyncTimeoutMillis() {
+		if (queryTimeoutSecs <= 0) {
+			return 0;
+		}
+		return queryTimeoutSecs * 1000L + connection.getNetworkTimeoutMillis();
+	}
+
+	private void checkResult(BaseConnection curBaseConnection, int partitionId)
+			throws GSException, SQLException {
+		try {
+			curBaseConnection.base.checkStatementResult(resp, partitionId);
+		}
+		catch (GSConnectionException e) {
+			throw e;
+		}
+		catch (GSException e) {
+			connection.updateTransactionStatus(
+					false, connection.getAutoCommit());
+			throw SQLErrorUtils.error(0, null, e);
+		}
+	}
+
+	private abstract class AsyncExecution<T>
+	extends AsyncStatementDispatcher.Operation<T> {
+
+		private final StatementOperation statementOp;
+
+		private final String sql;
+
+		private final long timeoutMillis = getAsyncTimeoutMillis();
+
+		AsyncExecution(StatementOperation statementOp, String sql) {
+			this.statementOp = statementOp;
+			this.sql = sql;
+		}
+
+		@Override
+		boolean isPipelinable() {
+			return (statementOp == StatementOperation.QUERY);
+		}
+
+		@Override
+		long getTimeoutMillis() {
+			return timeoutMillis;
+		}
+
+		@Override
+		boolean prepare(BaseConnection curBaseConnection)
+				throws GSException, SQLException {
+			if (isClosed()) {
+				throw SQLErrorUtils.errorAlreadyClosed();
+			}
+			setQueryDirect(sql);
+
+			if (curBaseConnection != queryRef.lastBaseConnection) {
+				queryRef.queryId = 0;
+				queryRef.lastBaseConnection = curBaseConnection;
+			}
+			final long oldQueryId = queryRef.queryId;
+			queryRef.queryId = connection.generateQueryId();
+
+			putRequest(
+					curBaseConnection, statementOp, false, oldQueryId, 0,
+					Math.max(queryTimeoutSecs * 1000L, -1));
+			return true;
+		}
+
+		@Override
+		BasicBuffer getRequest() {
+			return req;
+		}
+
+		@Override
+		BasicBuffer swapResponse(BasicBuffer buf) {
+			final BasicBuffer orgResp = resp;
+			resp = buf;
+			return orgResp;
+		}
+
+		@Override
+		T accept(BaseConnection curBaseConnection, int partitionId)
+				throws GSException, SQLException {
+			checkResult(curBaseConnection, partitionId);
+			acceptResponse(statementOp);
+			queryRef.lastBaseConnection = curBaseConnection;
+			return getResult();
+		}
+
+		@Override
+		T executeBlocking() throws SQLException {
+			if (isClosed()) {
+				throw SQLErrorUtils.errorAlreadyClosed();
+			}
+			setQueryDirect(sql);
+			execute(statementOp, true);
+			return getResult();
+		}
+
+		abstract T getResult() throws SQLException;
+
+	}
+
+	private class AsyncFetch
+	extends AsyncStatementDispatcher.Operation<Boolean> {
+
+		private final long queryId;
+
+		private final SQLResultSet target;
+
+		private final long timeoutMillis = getAsyncTimeoutMillis();
+
+		private BasicBuffer fetchResp;
+
+		AsyncFetch(long queryId, SQLResultSet target) {
+			this.queryId = queryId;
+			this.target = target;
+		}
+
+		@Override
+		boolean isPipelinable() {
+			return true;
+		}
+
+		@Override
+		long getTimeoutMillis() {
+			return timeoutMillis;
+		}
+
+		@Override
+		boolean prepare(BaseConnection curBaseConnection)
+				throws GSException, SQLException {
+			if (isClosed()) {
+				throw SQLErrorUtils.error(
+						SQLErrorUtils.ALREADY_CLOSED,
+						"Related statement already closed", null);
+			}
+			if (queryId != queryRef.queryId) {
+				throw SQLErrorUtils.error(
+						SQLErrorUtils.ALREADY_CLOSED,
+						"Unable to fetch by already closed result set", null);
+			}
+			if (curBaseConnection != queryRef.lastBaseConnection) {
+				return false;
+			}
+
+			putRequest(
+					curBaseConnection, StatementOperation.FETCH, true, 0, 0,
+					Math.max(queryTimeoutSecs * 1000L, -1));
+			fetchResp = connection.takeRespBuffer();
+			return true;
+		}
+
+		@Override
+		BasicBuffer getRequest() {
+			return req;
+		}
+
+		@Override
+		BasicBuffer swapResponse(BasicBuffer buf) {
+			final BasicBuffer orgResp = fetchResp;
+			fetchResp = buf;
+			return orgResp;
+		}
+
+		@Override
+		Boolean accept(BaseConnection curBaseConnection, int partitionId)
+				throws GSException, SQLException {
+			final List<Result> resultList =
+					new ArrayList<Result>(SQLStatement.this.resultList);
+			final int lastResultIndex = SQLStatement.this.lastResultIndex;
+			final ResultSet lastResultSet = SQLStatement.this.lastResultSet;
+			final BasicBuffer orgResp = resp;
+
+			SQLStatement.this.resultList.clear();
+			SQLStatement.this.lastResultIndex = 0;
+			SQLStatement.this.lastResultSet = null;
+
+			final SQLResultSet rs;
+			try {
+				resp = fetchResp;
+				checkResult(curBaseConnection, partitionId);
+				acceptResponse(StatementOperation.FETCH);
+				final DriverMetrics metrics = connection.getMetricsDirect();
+				if (metrics != null) {
+					metrics.increment(DriverMetrics.Counter.FETCH_BLOCK);
+				}
+				rs = (SQLResultSet) getResultSetDirect(true);
+				if (rs == null) {
+					throw SQLErrorUtils.error(
+							SQLErrorUtils.MESSAGE_CORRUPTED,
+							"Protocol error occurred on fetching results",
+							null);
+				}
+				rs.adoptBuffer(fetchResp);
+				fetchResp = null;
+			}
+			finally {
+				resp = orgResp;
+				SQLStatement.this.resultList.clear();
+				SQLStatement.this.resultList.addAll(resultList);
+				SQLStatement.this.lastResultIndex = lastResultIndex;
+				SQLStatement.this.lastResultSet = lastResultSet;
+			}
+
+			return target.acceptFollowing(rs);
+		}
+
+		@Override
+		Boolean executeBlocking() throws SQLException {
+			return target.fetchFollowingBlocking();
+		}
+
+		@Override
+		void abort() {
+			connection.releaseBuffer(fetchResp);
+			fetchResp = null;
+		}
+
+	}
+
 	void closeQuery(long queryId) throws SQLException {
 		try {
 			queryList.clear();
@@ -921,6 +1676,8 @@ class SQLStatement implements Statement, LaterStatement {
 					SQLErrorUtils.ILLEGAL_STATE, "Result set not found", null);
 		}
 
+		final long startNanos = (lastExecutionTiming == null ?
+				0 : System.nanoTime());
 		try {
 			final RowMapper mapper = RowMapper.getInstance(
 					result.getSchemaBuffer(), null, getRowMapperConfig());
@@ -933,10 +1690,18 @@ class SQLStatement implements Statement, LaterStatement {
 			final BasicBuffer rowBuf = result.getRowSetBuffer();
 			long varDataBaseOffset = 0;
 			varDataBaseOffset = rowBuf.base().getLong();
-			lastResultSet = new SQLResultSet(
+			final SQLResultSet rs = new SQLResultSet(
 					this, mapper, labelList,
 					result.queryId, result.followingExists, followingAccepting,
 					result.rowCount, varDataBaseOffset, rowBuf);
+			if (lastExecutionTiming != null &&
+					connection.isExecutionTimingEnabled()) {
+				final ExecutionTiming timing =
+						new ExecutionTiming(lastExecutionTiming);
+				timing.addDecode(System.nanoTime() - startNanos);
+				rs.setExecutionTiming(timing);
+			}
+			lastResultSet = rs;
 		}
 		catch (GSException e) {
 			throw SQLErrorUtils.error(0, null, e);
@@ -945,6 +1710,12 @@ class SQLStatement implements Statement, LaterStatement {
 		return lastResultSet;
 	}
 
+	BasicBuffer detachRespBuffer() {
+		final BasicBuffer buf = resp;
+		resp = null;
+		return buf;
+	}
+
 	void closeWithoutResultSet() throws SQLException {
 		lastResultSet = null;
 		close();
@@ -1075,6 +1846,39 @@ class SQLStatement implements Statement, LaterStatement {
 		return connection.getTimeZoneOffset();
 	}
 
+	SQLConnection getConnectionDirect() {
+		return connection;
+	}
+
+	int getPrefetchBlocksDirect() {
+		return prefetchBlocks;
+	}
+
+	void setResultSetTypeDirect(int resultSetType) {
+		this.resultSetType = resultSetType;
+	}
+
+	boolean isScrollable() {
+		return (resultSetType != ResultSet.TYPE_FORWARD_ONLY);
+	}
+
+	void attachPrefetcher(FetchPrefetcher prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	void detachPrefetcher(FetchPrefetcher prefetcher) {
+		if (this.prefetcher == prefetcher) {
+			this.prefetcher = null;
+		}
+	}
+
+	private void awaitPrefetch() throws SQLException {
+		final FetchPrefetcher prefetcher = this.prefetcher;
+		if (prefetcher != null) {
+			prefetcher.await();
+		}
+	}
+
 	static class QueryReference extends WeakReference<SQLStatement> {
 
 		private BaseConnection lastBaseConnection;
@@ -0,0 +1,198 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ScrollBlockStore {
+
+	private final long cacheSize;
+
+	private final List<Block> blockList = new ArrayList<Block>();
+
+	private final Map<Block, Boolean> residentMap =
+			new LinkedHashMap<Block, Boolean>(16, 0.75f, true);
+
+	private long residentSize;
+
+	private int rowCount;
+
+	private File spillFile;
+
+	private RandomAccessFile spillAccess;
+
+	private SpillFileCleaner.Entry spillEntry;
+
+	private long spillSize;
+
+	ScrollBlockStore(long cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	void add(ByteBuffer rowSet, int blockRowCount) throws IOException {
+		final byte[] data = new byte[rowSet.remaining()];
+		rowSet.duplicate().get(data);
+
+		final Block block = new Block(rowCount, blockRowCount, data);
+		blockList.add(block);
+		rowCount += blockRowCount;
+
+		residentMap.put(block, true);
+		residentSize += data.length;
+		evict();
+	}
+
+	int getBlockCount() {
+		return blockList.size();
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	int findBlock(int row) {
+		int low = 0;
+		int high = blockList.size() - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (blockList.get(mid).startRow <= row) {
+				low = mid;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	int getBlockStart(int index) {
+		return blockList.get(index).startRow;
+	}
+
+	int getBlockRowCount(int index) {
+		return blockList.get(index).rowCount;
+	}
+
+	BasicBuffer getBuffer(int index) throws IOException {
+		final Block block = blockList.get(index);
+		if (block.data != null) {
+			residentMap.get(block);
+		}
+		else {
+			load(block);
+			residentMap.put(block, true);
+			residentSize += block.length;
+			evict();
+		}
+		return BasicBuffer.wrap(block.data);
+	}
+
+	void close() {
+		blockList.clear();
+		residentMap.clear();
+		residentSize = 0;
+		rowCount = 0;
+
+		if (spillEntry != null) {
+			spillEntry.clean();
+			spillEntry = null;
+		}
+		spillAccess = null;
+		spillFile = null;
+	}
+
+	private void evict() throws IOException {
+		final Iterator<Block> it = residentMap.keySet().iterator();
+		while (residentSize > cacheSize && residentMap.size() > 1) {
+			final Block block = it.next();
+			spill(block);
+			it.remove();
+			residentSize -= block.length;
+		}
+	}
+
+	private void spill(Block block) throws IOException {
+		if (block.spillOffset >= 0) {
+			block.data = null;
+			return;
+		}
+
+		if (spillAccess == null) {
+			spillFile = File.createTempFile("gsscroll", null);
+			spillAccess = new RandomAccessFile(spillFile, "rw");
+			spillEntry = SpillFileCleaner.register(
+					this, spillFile, spillAccess);
+		}
+
+		final FileChannel channel = spillAccess.getChannel();
+		final ByteBuffer src = ByteBuffer.wrap(block.data);
+		long pos = spillSize;
+		while (src.hasRemaining()) {
+			pos += channel.write(src, pos);
+		}
+
+		block.spillOffset = spillSize;
+		block.data = null;
+		spillSize = pos;
+	}
+
+	private void load(Block block) throws IOException {
+		final FileChannel channel = spillAccess.getChannel();
+		final byte[] data = new byte[block.length];
+		final ByteBuffer dest = ByteBuffer.wrap(data);
+		long pos = block.spillOffset;
+		while (dest.hasRemaining()) {
+			final int size = channel.read(dest, pos);
+			if (size < 0) {
+				throw new EOFException();
+			}
+			pos += size;
+		}
+		block.data = data;
+	}
+
+	private static class Block {
+
+		final int startRow;
+
+		final int rowCount;
+
+		final int length;
+
+		byte[] data;
+
+		long spillOffset = -1;
+
+		Block(int startRow, int rowCount, byte[] data) {
+			this.startRow = startRow;
+			this.rowCount = rowCount;
+			this.length = data.length;
+			this.data = data;
+		}
+
+	}
+
+}
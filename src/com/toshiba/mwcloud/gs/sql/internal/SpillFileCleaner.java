@@ -0,0 +1,100 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashSet;
+import java.util.Set;
+
+class SpillFileCleaner implements Runnable {
+
+	private static final SpillFileCleaner INSTANCE = new SpillFileCleaner();
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	private final Set<Entry> entrySet = new HashSet<Entry>();
+
+	private Thread thread;
+
+	static Entry register(Object owner, File file, Closeable resource) {
+		return INSTANCE.add(owner, file, resource);
+	}
+
+	private synchronized Entry add(
+			Object owner, File file, Closeable resource) {
+		final Entry entry = new Entry(owner, file, resource);
+		entrySet.add(entry);
+
+		if (thread == null) {
+			thread = new Thread(this, "gridstore-jdbc-spill-cleaner");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return entry;
+	}
+
+	private synchronized boolean remove(Entry entry) {
+		return entrySet.remove(entry);
+	}
+
+	@Override
+	public void run() {
+		for (;;) {
+			try {
+				((Entry) queue.remove()).clean();
+			}
+			catch (InterruptedException e) {
+			}
+		}
+	}
+
+	class Entry extends PhantomReference<Object> {
+
+		private final File file;
+
+		private final Closeable resource;
+
+		private Entry(Object owner, File file, Closeable resource) {
+			super(owner, queue);
+			this.file = file;
+			this.resource = resource;
+		}
+
+		void clean() {
+			if (!remove(this)) {
+				return;
+			}
+			clear();
+
+			try {
+				if (resource != null) {
+					resource.close();
+				}
+			}
+			catch (IOException e) {
+			}
+			finally {
+				file.delete();
+			}
+		}
+
+	}
+
+}
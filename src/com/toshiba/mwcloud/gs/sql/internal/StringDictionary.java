@@ -0,0 +1,151 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+class StringDictionary {
+
+	static final int MAX_VALUE_BYTES = 64;
+
+	private static final int SAMPLE_LOOKUPS = 1024;
+
+	private final int capacity;
+
+	private final Column[] columns;
+
+	StringDictionary(int columnCount, int capacity) {
+		this.capacity = capacity;
+		this.columns = new Column[columnCount];
+	}
+
+	String decode(int column, byte[] array, int offset, int length) {
+		if (length > MAX_VALUE_BYTES || column < 0 ||
+				column >= columns.length) {
+			return newString(array, offset, length);
+		}
+
+		Column entry = columns[column];
+		if (entry == null) {
+			entry = new Column(capacity);
+			columns[column] = entry;
+		}
+		else if (entry.disabled) {
+			return newString(array, offset, length);
+		}
+
+		return entry.decode(array, offset, length);
+	}
+
+	private static String newString(byte[] array, int offset, int length) {
+		return new String(array, offset, length, BasicBuffer.DEFAULT_CHARSET);
+	}
+
+	private static class Column {
+
+		private final int capacity;
+
+		private final int mask;
+
+		private byte[][] keys;
+
+		private String[] values;
+
+		private int[] hashes;
+
+		private int size;
+
+		private int lookups;
+
+		private int misses;
+
+		private boolean disabled;
+
+		Column(int capacity) {
+			int tableSize = 16;
+			while (tableSize < capacity * 2) {
+				tableSize <<= 1;
+			}
+			this.capacity = capacity;
+			this.mask = tableSize - 1;
+			this.keys = new byte[tableSize][];
+			this.values = new String[tableSize];
+			this.hashes = new int[tableSize];
+		}
+
+		String decode(byte[] array, int offset, int length) {
+			int hash = length;
+			for (int i = 0; i < length; i++) {
+				hash = hash * 31 + array[offset + i];
+			}
+
+			int index = mix(hash) & mask;
+			String value;
+			for (;;) {
+				final byte[] key = keys[index];
+				if (key == null) {
+					value = newString(array, offset, length);
+					if (size < capacity) {
+						final byte[] newKey = new byte[length];
+						System.arraycopy(array, offset, newKey, 0, length);
+						keys[index] = newKey;
+						values[index] = value;
+						hashes[index] = hash;
+						size++;
+					}
+					misses++;
+					break;
+				}
+				else if (hashes[index] == hash &&
+						matches(key, array, offset, length)) {
+					value = values[index];
+					break;
+				}
+				index = (index + 1) & mask;
+			}
+
+			if (++lookups >= SAMPLE_LOOKUPS) {
+				if (misses * 2 > lookups) {
+					disabled = true;
+					keys = null;
+					values = null;
+					hashes = null;
+				}
+				lookups = 0;
+				misses = 0;
+			}
+
+			return value;
+		}
+
+		private static int mix(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean matches(
+				byte[] key, byte[] array, int offset, int length) {
+			if (key.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (key[i] != array[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,404 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+class TimestampCodec {
+
+	private static final int MIN_YEAR = 1583;
+
+	private static final int MAX_YEAR = 9999;
+
+	private static final long MILLIS_PER_SECOND = 1000;
+
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	private static final long MILLIS_PER_DAY =
+			SECONDS_PER_DAY * MILLIS_PER_SECOND;
+
+	private static final int NANOS_PER_MILLI = 1000 * 1000;
+
+	private static final int[] FRACTION_SCALES = {
+		100 * 1000 * 1000, 10 * 1000 * 1000, 1000 * 1000,
+		100 * 1000, 10 * 1000, 1000,
+		100, 10, 1
+	};
+
+	private TimestampCodec() {
+	}
+
+	static String format(Date date, TimeZone zone, TimeUnit timePrecision) {
+		switch (timePrecision) {
+		case SECOND:
+		case MILLISECOND:
+		case MICROSECOND:
+		case NANOSECOND:
+			break;
+		default:
+			return null;
+		}
+		if (zone.useDaylightTime()) {
+			return null;
+		}
+
+		final long millis = date.getTime();
+		final long localMillis = millis + zone.getOffset(millis);
+		final long days = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+		final long dayMillis = localMillis - days * MILLIS_PER_DAY;
+
+		final long civil = civilFromDays(days);
+		final int year = (int) (civil >> 16);
+		if (year < MIN_YEAR || year > MAX_YEAR) {
+			return null;
+		}
+
+		final char[] buf = new char[35];
+		int pos = 0;
+		pos = putDigits(buf, pos, year, 4);
+		buf[pos++] = '-';
+		pos = putDigits(buf, pos, (int) (civil >> 8) & 0xff, 2);
+		buf[pos++] = '-';
+		pos = putDigits(buf, pos, (int) civil & 0xff, 2);
+		buf[pos++] = 'T';
+
+		final int secondOfDay = (int) (dayMillis / MILLIS_PER_SECOND);
+		pos = putDigits(buf, pos, secondOfDay / 3600, 2);
+		buf[pos++] = ':';
+		pos = putDigits(buf, pos, secondOfDay / 60 % 60, 2);
+		buf[pos++] = ':';
+		pos = putDigits(buf, pos, secondOfDay % 60, 2);
+
+		if (timePrecision != TimeUnit.SECOND) {
+			buf[pos++] = '.';
+			pos = putDigits(
+					buf, pos, (int) (dayMillis % MILLIS_PER_SECOND), 3);
+		}
+
+		final int subNanos = (date instanceof Timestamp ?
+				((Timestamp) date).getNanos() % NANOS_PER_MILLI : 0);
+		if (timePrecision == TimeUnit.MICROSECOND) {
+			pos = putDigits(buf, pos, subNanos / 1000, 3);
+		}
+		else if (timePrecision == TimeUnit.NANOSECOND) {
+			pos = putDigits(buf, pos, subNanos, 6);
+		}
+
+		pos = putOffset(buf, pos, zone.getRawOffset());
+		return new String(buf, 0, pos);
+	}
+
+	static Date parse(String source, TimeUnit timePrecision) {
+		final int length = source.length();
+		if (length < 20) {
+			return null;
+		}
+
+		final long seconds = parseDateTime(source, 0, 'T');
+		if (seconds == Long.MIN_VALUE) {
+			return null;
+		}
+
+		int pos = 19;
+		int millis = 0;
+		int subNanos = 0;
+		int subLength = 0;
+		if (source.charAt(pos) == '.') {
+			if (timePrecision == TimeUnit.SECOND || length < pos + 4) {
+				return null;
+			}
+			millis = parseDigits(source, pos + 1, 3);
+			if (millis < 0) {
+				return null;
+			}
+			pos += 4;
+
+			final int maxSubLength;
+			switch (timePrecision) {
+			case MICROSECOND:
+				maxSubLength = 3;
+				break;
+			case NANOSECOND:
+				maxSubLength = 6;
+				break;
+			default:
+				maxSubLength = 0;
+				break;
+			}
+			while (subLength < maxSubLength && pos + subLength < length &&
+					isDigit(source.charAt(pos + subLength))) {
+				subLength++;
+			}
+			if (subLength != 0 && subLength != 3 && subLength != 6) {
+				return null;
+			}
+			if (subLength > 0) {
+				subNanos = parseDigits(source, pos, subLength);
+				if (subLength == 3) {
+					subNanos *= 1000;
+				}
+				pos += subLength;
+			}
+		}
+
+		final int offset = parseOffset(source, pos, length);
+		if (offset == Integer.MIN_VALUE) {
+			return null;
+		}
+
+		final long timeMillis = toMillis(seconds, offset, millis);
+		switch (timePrecision) {
+		case MICROSECOND:
+		case NANOSECOND:
+			final int nanos = (int) (timeMillis % MILLIS_PER_SECOND) *
+					NANOS_PER_MILLI + subNanos;
+			if (nanos < 0) {
+				return null;
+			}
+			final Timestamp ts = new Timestamp(timeMillis);
+			ts.setNanos(nanos);
+			return ts;
+		default:
+			return new Date(timeMillis);
+		}
+	}
+
+	static Timestamp parseFlexible(String source, TimeZone defaultZone) {
+		final int length = source.length();
+		final boolean dateFound = (length >= 10 && source.charAt(4) == '-');
+		final boolean timeFound;
+		final long seconds;
+		int pos;
+		if (dateFound && length >= 19 && (source.charAt(10) == 'T' ||
+				source.charAt(10) == ' ')) {
+			seconds = parseDateTime(source, 0, source.charAt(10));
+			timeFound = true;
+			pos = 19;
+		}
+		else if (dateFound) {
+			final long days = parseDate(source, 0);
+			seconds = (days == Long.MIN_VALUE ?
+					Long.MIN_VALUE : days * SECONDS_PER_DAY);
+			timeFound = false;
+			pos = 10;
+		}
+		else if (length >= 8 && source.charAt(2) == ':') {
+			seconds = parseTime(source, 0);
+			timeFound = true;
+			pos = 8;
+		}
+		else {
+			return null;
+		}
+		if (seconds == Long.MIN_VALUE) {
+			return null;
+		}
+
+		int nanos = 0;
+		if (timeFound && pos < length && source.charAt(pos) == '.') {
+			pos++;
+			int fractionLength = 0;
+			while (pos + fractionLength < length &&
+					isDigit(source.charAt(pos + fractionLength))) {
+				fractionLength++;
+			}
+			if (fractionLength != 3 && fractionLength != 6 &&
+					fractionLength != 9) {
+				return null;
+			}
+			nanos = parseDigits(source, pos, fractionLength) *
+					FRACTION_SCALES[fractionLength - 1];
+			pos += fractionLength;
+		}
+
+		final int offset;
+		if (pos < length) {
+			offset = parseOffset(source, pos, length);
+		}
+		else if (defaultZone instanceof SimpleTimeZone &&
+				!defaultZone.useDaylightTime()) {
+			offset = defaultZone.getRawOffset();
+		}
+		else {
+			return null;
+		}
+		if (offset == Integer.MIN_VALUE) {
+			return null;
+		}
+
+		final Timestamp ts = new Timestamp(toMillis(seconds, offset, 0));
+		ts.setNanos(nanos);
+		return ts;
+	}
+
+	private static long parseDateTime(String source, int pos, char separator) {
+		if (source.length() < pos + 19 ||
+				source.charAt(pos + 10) != separator) {
+			return Long.MIN_VALUE;
+		}
+		final long days = parseDate(source, pos);
+		final long time = parseTime(source, pos + 11);
+		if (days == Long.MIN_VALUE || time == Long.MIN_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		return days * SECONDS_PER_DAY + time;
+	}
+
+	private static long parseDate(String source, int pos) {
+		if (source.length() < pos + 10 ||
+				source.charAt(pos + 4) != '-' ||
+				source.charAt(pos + 7) != '-') {
+			return Long.MIN_VALUE;
+		}
+		final int year = parseDigits(source, pos, 4);
+		final int month = parseDigits(source, pos + 5, 2);
+		final int day = parseDigits(source, pos + 8, 2);
+		if (year < MIN_YEAR || month < 1 || month > 12 || day < 1 ||
+				day > getDaysOfMonth(year, month)) {
+			return Long.MIN_VALUE;
+		}
+		return daysFromCivil(year, month, day);
+	}
+
+	private static long parseTime(String source, int pos) {
+		if (source.length() < pos + 8 ||
+				source.charAt(pos + 2) != ':' ||
+				source.charAt(pos + 5) != ':') {
+			return Long.MIN_VALUE;
+		}
+		final int hour = parseDigits(source, pos, 2);
+		final int minute = parseDigits(source, pos + 3, 2);
+		final int second = parseDigits(source, pos + 6, 2);
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59 ||
+				second < 0 || second > 59) {
+			return Long.MIN_VALUE;
+		}
+		return (hour * 60 + minute) * 60 + second;
+	}
+
+	private static int parseOffset(String source, int pos, int length) {
+		final int remaining = length - pos;
+		if (remaining == 1 && source.charAt(pos) == 'Z') {
+			return 0;
+		}
+		if (remaining != 5 && remaining != 6) {
+			return Integer.MIN_VALUE;
+		}
+
+		final char sign = source.charAt(pos);
+		if (sign != '+' && sign != '-') {
+			return Integer.MIN_VALUE;
+		}
+		final int hour = parseDigits(source, pos + 1, 2);
+		final int minutePos = pos + (remaining == 6 ? 4 : 3);
+		if (remaining == 6 && source.charAt(pos + 3) != ':') {
+			return Integer.MIN_VALUE;
+		}
+		final int minute = parseDigits(source, minutePos, 2);
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+			return Integer.MIN_VALUE;
+		}
+
+		final int offset = (hour * 60 + minute) * 60 * 1000;
+		return (sign == '+' ? offset : -offset);
+	}
+
+	private static long toMillis(long seconds, int offset, int millis) {
+		return seconds * MILLIS_PER_SECOND - offset + millis;
+	}
+
+	private static boolean isDigit(char ch) {
+		return '0' <= ch && ch <= '9';
+	}
+
+	private static int parseDigits(String source, int pos, int count) {
+		int value = 0;
+		for (int i = 0; i < count; i++) {
+			final char ch = source.charAt(pos + i);
+			if (!isDigit(ch)) {
+				return -1;
+			}
+			value = value * 10 + (ch - '0');
+		}
+		return value;
+	}
+
+	private static int putDigits(char[] buf, int pos, int value, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			buf[pos + i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return pos + count;
+	}
+
+	private static int putOffset(char[] buf, int pos, int offsetMillis) {
+		if (offsetMillis == 0) {
+			buf[pos++] = 'Z';
+			return pos;
+		}
+
+		final int absMinutes = Math.abs(offsetMillis) / (60 * 1000);
+		buf[pos++] = (offsetMillis >= 0 ? '+' : '-');
+		pos = putDigits(buf, pos, absMinutes / 60 % 24, 2);
+		buf[pos++] = ':';
+		return putDigits(buf, pos, absMinutes % 60, 2);
+	}
+
+	private static int getDaysOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ?
+					29 : 28);
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	private static long daysFromCivil(int year, int month, int day) {
+		final int y = (month <= 2 ? year - 1 : year);
+		final int era = y / 400;
+		final int yearOfEra = y - era * 400;
+		final int dayOfYear =
+				(153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		final int dayOfEra =
+				yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	private static long civilFromDays(long days) {
+		final long z = days + 719468;
+		final long era = Math.floorDiv(z, 146097);
+		final int dayOfEra = (int) (z - era * 146097);
+		final int yearOfEra = (dayOfEra - dayOfEra / 1460 +
+				dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final int dayOfYear =
+				dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int mp = (5 * dayOfYear + 2) / 153;
+		final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		final int month = mp + (mp < 10 ? 3 : -9);
+		final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return (year << 16) | (month << 8) | day;
+	}
+
+}
@@ -280,8 +280,7 @@ class TimestampUtils {
 	 * </div>
 	 */
 	public static String format(Date timestamp, TimeZone zone) {
-		final DateFormat format = getFormat(zone);
-		return format.format(checkTimestamp(timestamp));
+		return format(timestamp, zone, null);
 	}
 
 	/**
@@ -305,8 +304,7 @@ class TimestampUtils {
 	 * </div>
 	 */
 	public static String formatPrecise(Timestamp timestamp, TimeZone zone) {
-		final DateFormat format = getFormat(zone, getDefaultPrecision(true));
-		return format.format(checkTimestamp(timestamp));
+		return format(timestamp, zone, getDefaultPrecision(true));
 	}
 
 	/**
@@ -332,7 +330,12 @@ class TimestampUtils {
 	 * </div>
 	 */
 	public static Date parse(String source) throws ParseException {
-		return getFormat().parse(checkSource(source));
+		final Date date = TimestampCodec.parse(
+				checkSource(source), getDefaultPrecision(false));
+		if (date != null) {
+			return date;
+		}
+		return getFormat().parse(source);
 	}
 
 	/**
@@ -352,8 +355,14 @@ class TimestampUtils {
 	 * </div>
 	 */
 	public static Timestamp parsePrecise(String source) throws ParseException {
-		final DateFormat format = getFormat(null, getDefaultPrecision(true));
-		return (Timestamp) format.parse(checkSource(source));
+		final TimeUnit timePrecision = getDefaultPrecision(true);
+		final Date date = TimestampCodec.parse(
+				checkSource(source), timePrecision);
+		if (date != null) {
+			return (Timestamp) date;
+		}
+		final DateFormat format = getFormat(null, timePrecision);
+		return (Timestamp) format.parse(source);
 	}
 
 	/**
@@ -438,6 +447,17 @@ class TimestampUtils {
 				resolveTimeZone(zone), resolvePrecision(timePrecision));
 	}
 
+	static String format(
+			Date timestamp, TimeZone zone, TimeUnit timePrecision) {
+		final String str = TimestampCodec.format(
+				checkTimestamp(timestamp), resolveTimeZone(zone),
+				resolvePrecision(timePrecision));
+		if (str != null) {
+			return str;
+		}
+		return getFormat(zone, timePrecision).format(timestamp);
+	}
+
 	private static Date checkTimestamp(Date timestamp) {
 		GSErrorCode.checkNullParameter(timestamp, "timestamp", null);
 		return timestamp;
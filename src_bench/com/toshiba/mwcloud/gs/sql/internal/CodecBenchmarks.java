@@ -0,0 +1,384 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.toshiba.mwcloud.gs.sql.internal.RowMapper.MappingMode;
+
+class CodecBenchmarks {
+
+	private static final int ROW_COUNT = 1000;
+
+	private static final int STRING_COUNT = 1000;
+
+	private static final int WIDE_COLUMN_COUNT = 64;
+
+	private static final int TAG_COUNT = 20;
+
+	private static final int DICTIONARY_SIZE = 256;
+
+	static void addCases(List<DriverBenchmark.Case> caseList)
+			throws GSException {
+		for (Schema schema : new Schema[] {
+				Schema.NARROW, Schema.WIDE, Schema.VARIABLE, Schema.TAGGED }) {
+			final RowMapper mapper = createMapper(schema);
+			final List<Row> rowList = createRows(mapper, schema);
+			caseList.add(new EncodeCase(schema, mapper, rowList));
+			caseList.add(new DecodeCase(schema, mapper, rowList, 0));
+			caseList.add(new DirectReadCase(schema, mapper, rowList));
+			caseList.add(new InputTableCase(schema, mapper, rowList));
+			caseList.add(new DirectInputTableCase(schema, mapper, rowList));
+			if (schema == Schema.TAGGED) {
+				caseList.add(new DecodeCase(
+						schema, mapper, rowList, DICTIONARY_SIZE));
+			}
+		}
+
+		for (boolean multibyte : new boolean[] { false, true }) {
+			caseList.add(new PutStringCase(multibyte));
+			caseList.add(new GetStringCase(multibyte));
+		}
+	}
+
+	private static RowMapper createMapper(Schema schema) throws GSException {
+		final List<ColumnInfo> columnList = new ArrayList<ColumnInfo>();
+		switch (schema) {
+		case NARROW:
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			columnList.add(new ColumnInfo("value", GSType.INTEGER));
+			columnList.add(new ColumnInfo("score", GSType.DOUBLE));
+			columnList.add(new ColumnInfo("ts", GSType.TIMESTAMP));
+			break;
+		case WIDE:
+			for (int i = 0; i < WIDE_COLUMN_COUNT; i++) {
+				final GSType type = (i % 3 == 0 ? GSType.LONG :
+						i % 3 == 1 ? GSType.DOUBLE : GSType.INTEGER);
+				columnList.add(new ColumnInfo("c" + i, type));
+			}
+			break;
+		case TAGGED:
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			columnList.add(new ColumnInfo("site", GSType.STRING));
+			columnList.add(new ColumnInfo("sensor", GSType.STRING));
+			columnList.add(new ColumnInfo("value", GSType.DOUBLE));
+			break;
+		default:
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			columnList.add(new ColumnInfo("name", GSType.STRING));
+			columnList.add(new ColumnInfo("note", GSType.STRING));
+			columnList.add(new ColumnInfo("ts", GSType.TIMESTAMP));
+			break;
+		}
+
+		final ContainerInfo info =
+				new ContainerInfo(null, null, columnList, false);
+		return RowMapper.getInstance(
+				null, info, SQLStatement.getRowMapperConfig());
+	}
+
+	private static List<Row> createRows(RowMapper mapper, Schema schema)
+			throws GSException {
+		final List<Row> rowList = new ArrayList<Row>(ROW_COUNT);
+		for (int r = 0; r < ROW_COUNT; r++) {
+			final Row row = mapper.createGeneralRow();
+			switch (schema) {
+			case NARROW:
+				row.setValue(0, (long) r);
+				row.setValue(1, (r % 10 == 0 ? null : (Object) r));
+				row.setValue(2, r / 7.0);
+				row.setValue(3, new Date(r * 1000L));
+				break;
+			case WIDE:
+				for (int i = 0; i < WIDE_COLUMN_COUNT; i++) {
+					final Object value = (i % 3 == 0 ? (Object) (r * 100L + i) :
+							i % 3 == 1 ? (Object) (r + i / 10.0) :
+							(Object) (r ^ i));
+					row.setValue(i, value);
+				}
+				break;
+			case TAGGED:
+				row.setValue(0, (long) r);
+				row.setValue(1, "site-" + (r % TAG_COUNT));
+				row.setValue(2, "sensor-" + (r % (TAG_COUNT * 4)));
+				row.setValue(3, r / 7.0);
+				break;
+			default:
+				row.setValue(0, (long) r);
+				row.setValue(1, "name-" + r);
+				row.setValue(2, (r % 5 == 0 ? null :
+						"note for row " + r + " with some trailing text"));
+				row.setValue(3, new Date(r * 1000L));
+				break;
+			}
+			rowList.add(row);
+		}
+		return rowList;
+	}
+
+	private static BasicBuffer encodeRows(
+			RowMapper mapper, List<Row> rowList, BasicBuffer buf)
+			throws GSException {
+		buf.clear();
+		final RowMapper.Cursor cursor = mapper.createCursor(
+				buf, MappingMode.ROWWISE_SEPARATED_V2, rowList.size(),
+				false, null);
+		for (Row row : rowList) {
+			mapper.encode(cursor, null, row);
+		}
+		return buf;
+	}
+
+	private static int getColumnCount(RowMapper mapper) {
+		return mapper.getContainerInfo().getColumnCount();
+	}
+
+	private static String createString(boolean multibyte, int index) {
+		if (multibyte) {
+			return "データ-" + index + "-文字列";
+		}
+		return "string-value-" + index;
+	}
+
+	private enum Schema {
+		NARROW,
+		WIDE,
+		VARIABLE,
+		TAGGED
+	}
+
+	private static class EncodeCase extends DriverBenchmark.Case {
+
+		private final RowMapper mapper;
+
+		private final List<Row> rowList;
+
+		private final BasicBuffer buf = new BasicBuffer(64 * 1024);
+
+		EncodeCase(Schema schema, RowMapper mapper, List<Row> rowList) {
+			super("rowMapper.encode." + schema.name().toLowerCase(),
+					rowList.size());
+			this.mapper = mapper;
+			this.rowList = rowList;
+		}
+
+		@Override
+		long run() throws GSException {
+			return encodeRows(mapper, rowList, buf).base().position();
+		}
+
+	}
+
+	private static class DecodeCase extends DriverBenchmark.Case {
+
+		private final RowMapper mapper;
+
+		private final List<Row> rowList;
+
+		private BasicBuffer buf;
+
+		private Row row;
+
+		private final int dictionarySize;
+
+		DecodeCase(
+				Schema schema, RowMapper mapper, List<Row> rowList,
+				int dictionarySize) {
+			super("rowMapper.decode." + schema.name().toLowerCase() +
+					(dictionarySize > 0 ? ".dictionary" : ""),
+					rowList.size());
+			this.mapper = mapper;
+			this.rowList = rowList;
+			this.dictionarySize = dictionarySize;
+		}
+
+		@Override
+		void setUp() throws GSException {
+			buf = encodeRows(mapper, rowList, new BasicBuffer(64 * 1024));
+			row = mapper.createGeneralRow();
+		}
+
+		@Override
+		long run() throws GSException {
+			buf.base().position(0);
+			final RowMapper.Cursor cursor = mapper.createCursor(
+					buf, MappingMode.ROWWISE_SEPARATED_V2, rowList.size(),
+					false, null);
+			if (dictionarySize > 0) {
+				cursor.setStringDictionary(new StringDictionary(
+						getColumnCount(mapper), dictionarySize));
+			}
+			while (cursor.hasNext()) {
+				cursor.decode(true, row);
+			}
+			return cursor.getRowIndex();
+		}
+
+	}
+
+	private static class DirectReadCase extends DriverBenchmark.Case {
+
+		private final RowMapper mapper;
+
+		private final List<Row> rowList;
+
+		private BasicBuffer buf;
+
+		DirectReadCase(Schema schema, RowMapper mapper, List<Row> rowList) {
+			super("rowMapper.directRead." + schema.name().toLowerCase(),
+					rowList.size());
+			this.mapper = mapper;
+			this.rowList = rowList;
+		}
+
+		@Override
+		void setUp() throws GSException {
+			buf = encodeRows(mapper, rowList, new BasicBuffer(64 * 1024));
+		}
+
+		@Override
+		long run() throws GSException {
+			buf.base().position(0);
+			final RowMapper.Cursor cursor = mapper.createCursor(
+					buf, MappingMode.ROWWISE_SEPARATED_V2, rowList.size(),
+					false, null);
+			long sum = 0;
+			while (cursor.hasNext()) {
+				final int pos = cursor.getPendingFieldPosition(0);
+				if (pos >= 0) {
+					sum += cursor.getInputBuffer().getLong(pos);
+				}
+				cursor.skipRow();
+			}
+			return sum;
+		}
+
+	}
+
+	private static class InputTableCase extends DriverBenchmark.Case {
+
+		private final RowMapper mapper;
+
+		private final List<Row> rowList;
+
+		private final BasicBuffer out = new BasicBuffer(64 * 1024);
+
+		InputTableCase(Schema schema, RowMapper mapper, List<Row> rowList) {
+			super("batch.putInputTable." + schema.name().toLowerCase(),
+					rowList.size());
+			this.mapper = mapper;
+			this.rowList = rowList;
+		}
+
+		@Override
+		long run() throws GSException {
+			out.clear();
+			SQLPreparedStatement.putInputTable(
+					out, mapper, getColumnCount(mapper), rowList);
+			return out.base().position();
+		}
+
+	}
+
+	private static class DirectInputTableCase extends DriverBenchmark.Case {
+
+		private final RowMapper mapper;
+
+		private final List<Row> rowList;
+
+		private final BasicBuffer out = new BasicBuffer(64 * 1024);
+
+		private BatchRowBuffer rows;
+
+		DirectInputTableCase(
+				Schema schema, RowMapper mapper, List<Row> rowList) {
+			super("batch.directEncoding." + schema.name().toLowerCase(),
+					rowList.size());
+			this.mapper = mapper;
+			this.rowList = rowList;
+		}
+
+		@Override
+		void setUp() {
+			rows = new BatchRowBuffer(mapper);
+		}
+
+		@Override
+		long run() throws GSException {
+			rows.clear();
+			for (Row row : rowList) {
+				rows.add(row);
+			}
+			out.clear();
+			rows.putTable(
+					out, getColumnCount(mapper), 0, rows.getRowCount());
+			return out.base().position();
+		}
+
+	}
+
+	private static class PutStringCase extends DriverBenchmark.Case {
+
+		private final String[] values = new String[STRING_COUNT];
+
+		private final BasicBuffer buf = new BasicBuffer(64 * 1024);
+
+		PutStringCase(boolean multibyte) {
+			super("buffer.putString." + (multibyte ? "multibyte" : "ascii"),
+					STRING_COUNT);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = createString(multibyte, i);
+			}
+		}
+
+		@Override
+		long run() {
+			buf.clear();
+			for (String value : values) {
+				buf.putString(value);
+			}
+			return buf.base().position();
+		}
+
+	}
+
+	private static class GetStringCase extends DriverBenchmark.Case {
+
+		private final BasicBuffer buf = new BasicBuffer(64 * 1024);
+
+		GetStringCase(boolean multibyte) {
+			super("buffer.getString." + (multibyte ? "multibyte" : "ascii"),
+					STRING_COUNT);
+			for (int i = 0; i < STRING_COUNT; i++) {
+				buf.putString(createString(multibyte, i));
+			}
+		}
+
+		@Override
+		long run() {
+			buf.base().position(0);
+			long length = 0;
+			for (int i = 0; i < STRING_COUNT; i++) {
+				length += buf.getString().length();
+			}
+			return length;
+		}
+
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class DriverBenchmark {
+
+	private static final int DEFAULT_WARMUP_ITERATIONS = 3;
+
+	private static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+
+	private static final long DEFAULT_ITERATION_MILLIS = 1000;
+
+	private static volatile long sink;
+
+	private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+
+	private int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+
+	private long iterationMillis = DEFAULT_ITERATION_MILLIS;
+
+	private final List<String> filterList = new ArrayList<String>();
+
+	private final List<Case> caseList = new ArrayList<Case>();
+
+	public static void main(String[] args) throws Exception {
+		final DriverBenchmark benchmark = new DriverBenchmark();
+		if (!benchmark.parseArguments(args)) {
+			printUsage(System.err);
+			System.exit(1);
+			return;
+		}
+
+		CodecBenchmarks.addCases(benchmark.caseList);
+		TimestampBenchmarks.addCases(benchmark.caseList);
+		JdbcBenchmarks.addCases(benchmark.caseList);
+		PoolBenchmarks.addCases(benchmark.caseList);
+
+		benchmark.runAll(System.out);
+	}
+
+	private static void printUsage(PrintStream out) {
+		out.println(
+				"Usage: DriverBenchmark [-w warmupIterations] " +
+				"[-i measurementIterations] [-t iterationMillis] " +
+				"[caseNamePrefix...]");
+	}
+
+	private boolean parseArguments(String[] args) {
+		try {
+			for (int i = 0; i < args.length; i++) {
+				final String arg = args[i];
+				if (arg.equals("-w") && i + 1 < args.length) {
+					warmupIterations = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("-i") && i + 1 < args.length) {
+					measurementIterations = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("-t") && i + 1 < args.length) {
+					iterationMillis = Long.parseLong(args[++i]);
+				}
+				else if (arg.startsWith("-")) {
+					return false;
+				}
+				else {
+					filterList.add(arg);
+				}
+			}
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+		return (warmupIterations >= 0 && measurementIterations > 0 &&
+				iterationMillis > 0);
+	}
+
+	private void runAll(PrintStream out) throws Exception {
+		out.println(String.format(Locale.ROOT,
+				"%-40s %14s %14s %14s",
+				"case", "avg(ns/op)", "min(ns/op)", "ops/s"));
+		for (Case benchCase : caseList) {
+			if (!isTarget(benchCase.getName())) {
+				continue;
+			}
+
+			benchCase.setUp();
+			try {
+				for (int i = 0; i < warmupIterations; i++) {
+					measure(benchCase);
+				}
+
+				double total = 0;
+				double min = Double.MAX_VALUE;
+				for (int i = 0; i < measurementIterations; i++) {
+					final double nanosPerOp = measure(benchCase);
+					total += nanosPerOp;
+					min = Math.min(min, nanosPerOp);
+				}
+
+				final double avg = total / measurementIterations;
+				out.println(String.format(Locale.ROOT,
+						"%-40s %14.1f %14.1f %14.0f",
+						benchCase.getName(), avg, min, 1e9 / avg));
+			}
+			finally {
+				benchCase.tearDown();
+			}
+		}
+	}
+
+	private boolean isTarget(String name) {
+		if (filterList.isEmpty()) {
+			return true;
+		}
+		for (String filter : filterList) {
+			if (name.startsWith(filter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private double measure(Case benchCase) throws Exception {
+		final long limitNanos = iterationMillis * 1000 * 1000;
+		long ops = 0;
+		long result = 0;
+		final long start = System.nanoTime();
+		long elapsed;
+		do {
+			result += benchCase.run();
+			ops += benchCase.getOperationsPerRun();
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < limitNanos);
+		sink += result;
+		return (double) elapsed / ops;
+	}
+
+	static abstract class Case {
+
+		private final String name;
+
+		private final int operationsPerRun;
+
+		Case(String name, int operationsPerRun) {
+			this.name = name;
+			this.operationsPerRun = operationsPerRun;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		int getOperationsPerRun() {
+			return operationsPerRun;
+		}
+
+		void setUp() throws Exception {
+		}
+
+		void tearDown() throws Exception {
+		}
+
+		abstract long run() throws Exception;
+
+	}
+
+}
@@ -0,0 +1,508 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import com.toshiba.mwcloud.gs.sql.Driver;
+import com.toshiba.mwcloud.gs.sql.GridStoreAsyncStatement;
+import com.toshiba.mwcloud.gs.sql.GridStoreStatement;
+
+class JdbcBenchmarks {
+
+	private static final int SCAN_ROW_COUNT = 10000;
+
+	private static final int SCAN_COLUMN_COUNT = 8;
+
+	private static final int SCAN_BLOCK_ROWS = 1000;
+
+	private static final int BATCH_ROW_COUNT = 1000;
+
+	private static final int PREPARE_COUNT = 100;
+
+	private static final long LATENCY_MILLIS = 2;
+
+	private static final int PIPELINE_QUERY_COUNT = 8;
+
+	private static final int PIPELINE_QUERY_ROWS = 100;
+
+	private static final int BLOB_LENGTH = 16 * 1024;
+
+	private static final int BLOB_PREFIX_LENGTH = 16;
+
+	private static final int TAG_COUNT = 20;
+
+	private static final int SCROLL_STRIDE = 7919;
+
+	static void addCases(List<DriverBenchmark.Case> caseList) {
+		caseList.add(new ScanCase("jdbc.scan", 0, new Properties()));
+		caseList.add(new ScanCase(
+				"jdbc.scan.compressed", 0,
+				props("transferCompression", "true")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.pooled", 0, props("bufferPooling", "true")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.channel", 0, props("socketChannel", "true")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.metrics", 0, props("metrics", "true")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.trace", 0, props("traceSampling", "100")));
+		caseList.add(new GetterCase(
+				"jdbc.resultSet.getters", new Properties()));
+		caseList.add(new GetterCase(
+				"jdbc.resultSet.getters.lazy",
+				props("lazyRowDecoding", "true")));
+		caseList.add(new BlobScanCase("jdbc.scan.blob", new Properties()));
+		caseList.add(new BlobScanCase(
+				"jdbc.scan.blob.lazy", props("lazyLargeValues", "true")));
+		caseList.add(new TagScanCase("jdbc.scan.tags", new Properties()));
+		caseList.add(new TagScanCase(
+				"jdbc.scan.tags.dictionary",
+				props("stringDictionarySize", "256")));
+		caseList.add(new ScrollCase("jdbc.scroll.absolute", new Properties()));
+		caseList.add(new ScrollCase(
+				"jdbc.scroll.absolute.spill",
+				props("scrollCacheSize", "65536")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.latency", LATENCY_MILLIS,
+				props("prefetchBlocks", "0")));
+		caseList.add(new ScanCase(
+				"jdbc.scan.latency.prefetch", LATENCY_MILLIS,
+				props("prefetchBlocks", "2")));
+		caseList.add(new FanOutCase("jdbc.fanOut.latency", false));
+		caseList.add(new FanOutCase("jdbc.fanOut.latency.pipelined", true));
+		caseList.add(new AsyncFanOutCase(
+				"jdbc.fanOut.latency.async", new Properties()));
+		caseList.add(new AsyncFanOutCase(
+				"jdbc.fanOut.latency.async.channel",
+				props("socketChannel", "true")));
+		caseList.add(new ConnectCase(
+				"jdbc.connect", props("socketPooling", "false")));
+		caseList.add(new ConnectCase(
+				"jdbc.connect.pooled", props("socketPooling", "true")));
+		caseList.add(new BatchCase(
+				"jdbc.batch", props("batchDirectEncoding", "false")));
+		caseList.add(new BatchCase(
+				"jdbc.batch.chunked", props(
+						"batchChunkRows", "100", "batchPipelining", "true")));
+		caseList.add(new PrepareCase(
+				"jdbc.prepare", props("preparedStatementCacheSize", "0")));
+		caseList.add(new PrepareCase(
+				"jdbc.prepare.cached",
+				props("preparedStatementCacheSize", "16")));
+	}
+
+	private static Properties props(String... nameAndValues) {
+		final Properties props = new Properties();
+		for (int i = 0; i + 1 < nameAndValues.length; i += 2) {
+			props.setProperty(nameAndValues[i], nameAndValues[i + 1]);
+		}
+		return props;
+	}
+
+	private static abstract class ServerCase extends DriverBenchmark.Case {
+
+		private final long latencyMillis;
+
+		private final Properties props;
+
+		MockServer server;
+
+		Connection connection;
+
+		ServerCase(
+				String name, int operationsPerRun, long latencyMillis,
+				Properties props) {
+			super(name, operationsPerRun);
+			this.latencyMillis = latencyMillis;
+			this.props = props;
+		}
+
+		@Override
+		void setUp() throws Exception {
+			server = new MockServer(createTable());
+			server.setLatencyMillis(latencyMillis);
+			server.setDefaultBlockRows(SCAN_BLOCK_ROWS);
+			server.start(0);
+			connection = connect();
+		}
+
+		@Override
+		void tearDown() throws Exception {
+			try {
+				if (connection != null) {
+					connection.close();
+				}
+			}
+			finally {
+				connection = null;
+				server.close();
+			}
+		}
+
+		MockServer.Table createTable() {
+			return MockServer.Table.synthetic(
+					MockServer.DEFAULT_TABLE_NAME, SCAN_ROW_COUNT,
+					SCAN_COLUMN_COUNT, 16);
+		}
+
+		Connection connect() throws SQLException {
+			final Properties props = new Properties();
+			props.putAll(this.props);
+			props.setProperty("user", "admin");
+			props.setProperty("password", "admin");
+			return new Driver().connect(server.getURL(), props);
+		}
+
+	}
+
+	private static class ScanCase extends ServerCase {
+
+		ScanCase(String name, long latencyMillis, Properties props) {
+			super(name, SCAN_ROW_COUNT, latencyMillis, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Statement statement = connection.createStatement();
+			try {
+				statement.setFetchSize(SCAN_BLOCK_ROWS);
+				final ResultSet rs = statement.executeQuery(
+						"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+				long sum = 0;
+				while (rs.next()) {
+					sum += rs.getLong(1);
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class BlobScanCase extends ServerCase {
+
+		BlobScanCase(String name, Properties props) {
+			super(name, SCAN_ROW_COUNT, 0, props);
+		}
+
+		@Override
+		MockServer.Table createTable() {
+			return MockServer.Table.withBlob(
+					MockServer.DEFAULT_TABLE_NAME, SCAN_ROW_COUNT,
+					BLOB_LENGTH);
+		}
+
+		@Override
+		long run() throws SQLException, IOException {
+			final Statement statement = connection.createStatement();
+			try {
+				statement.setFetchSize(SCAN_BLOCK_ROWS);
+				final ResultSet rs = statement.executeQuery(
+						"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+				final byte[] prefix = new byte[BLOB_PREFIX_LENGTH];
+				long sum = 0;
+				while (rs.next()) {
+					sum += rs.getLong(1);
+					if (sum % 16 == 0) {
+						final InputStream in = rs.getBinaryStream(2);
+						sum += in.read(prefix);
+					}
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class ScrollCase extends ServerCase {
+
+		ScrollCase(String name, Properties props) {
+			super(name, SCAN_ROW_COUNT, 0, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Statement statement = connection.createStatement(
+					ResultSet.TYPE_SCROLL_INSENSITIVE,
+					ResultSet.CONCUR_READ_ONLY);
+			try {
+				statement.setFetchSize(SCAN_BLOCK_ROWS);
+				final ResultSet rs = statement.executeQuery(
+						"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+				long sum = 0;
+				for (int i = 0; i < SCAN_ROW_COUNT; i++) {
+					final int row =
+							(int) ((long) i * SCROLL_STRIDE % SCAN_ROW_COUNT);
+					if (rs.absolute(row + 1)) {
+						sum += rs.getLong(1);
+					}
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class TagScanCase extends ServerCase {
+
+		TagScanCase(String name, Properties props) {
+			super(name, SCAN_ROW_COUNT, 0, props);
+		}
+
+		@Override
+		MockServer.Table createTable() {
+			return MockServer.Table.withTags(
+					MockServer.DEFAULT_TABLE_NAME, SCAN_ROW_COUNT,
+					TAG_COUNT);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Statement statement = connection.createStatement();
+			try {
+				statement.setFetchSize(SCAN_BLOCK_ROWS);
+				final ResultSet rs = statement.executeQuery(
+						"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+				long sum = 0;
+				while (rs.next()) {
+					sum += rs.getString(2).length();
+					sum += rs.getString(3).length();
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class GetterCase extends ServerCase {
+
+		GetterCase(String name, Properties props) {
+			super(name, SCAN_ROW_COUNT, 0, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Statement statement = connection.createStatement();
+			try {
+				final ResultSet rs = statement.executeQuery(
+						"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+				final int columnCount = rs.getMetaData().getColumnCount();
+				long sum = 0;
+				while (rs.next()) {
+					for (int i = 1; i <= columnCount; i++) {
+						final Object value = rs.getObject(i);
+						sum += (value == null ? 0 : 1);
+					}
+					sum += rs.getLong(1);
+					sum += rs.getString(2).length();
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class FanOutCase extends ServerCase {
+
+		private final boolean pipelined;
+
+		private final List<String> sqlList = new ArrayList<String>();
+
+		FanOutCase(String name, boolean pipelined) {
+			super(name, PIPELINE_QUERY_COUNT, LATENCY_MILLIS,
+					new Properties());
+			this.pipelined = pipelined;
+			for (int i = 0; i < PIPELINE_QUERY_COUNT; i++) {
+				sqlList.add("SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME +
+						" LIMIT " + PIPELINE_QUERY_ROWS);
+			}
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Statement statement = connection.createStatement();
+			try {
+				statement.setMaxRows(PIPELINE_QUERY_ROWS);
+				final List<ResultSet> rsList;
+				if (pipelined) {
+					rsList = statement.unwrap(
+							GridStoreStatement.class).executeQueries(sqlList);
+				}
+				else {
+					rsList = new ArrayList<ResultSet>();
+				}
+
+				long sum = 0;
+				for (int i = 0; i < sqlList.size(); i++) {
+					final ResultSet rs;
+					if (pipelined) {
+						rs = rsList.get(i);
+					}
+					else {
+						rs = statement.executeQuery(sqlList.get(i));
+					}
+					while (rs.next()) {
+						sum += rs.getLong(1);
+					}
+					rs.close();
+				}
+				return sum;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class AsyncFanOutCase extends ServerCase {
+
+		AsyncFanOutCase(String name, Properties props) {
+			super(name, PIPELINE_QUERY_COUNT, LATENCY_MILLIS, props);
+		}
+
+		@Override
+		long run() throws Exception {
+			final List<Statement> statementList = new ArrayList<Statement>();
+			try {
+				final List<CompletableFuture<ResultSet>> futureList =
+						new ArrayList<CompletableFuture<ResultSet>>();
+				for (int i = 0; i < PIPELINE_QUERY_COUNT; i++) {
+					final Statement statement = connection.createStatement();
+					statementList.add(statement);
+					statement.setMaxRows(PIPELINE_QUERY_ROWS);
+					futureList.add(statement.unwrap(
+							GridStoreAsyncStatement.class).executeQueryAsync(
+									"SELECT * FROM " +
+									MockServer.DEFAULT_TABLE_NAME +
+									" LIMIT " + PIPELINE_QUERY_ROWS));
+				}
+
+				long sum = 0;
+				for (CompletableFuture<ResultSet> future : futureList) {
+					final ResultSet rs = future.get();
+					while (rs.next()) {
+						sum += rs.getLong(1);
+					}
+					rs.close();
+				}
+				return sum;
+			}
+			finally {
+				for (Statement statement : statementList) {
+					statement.close();
+				}
+			}
+		}
+
+	}
+
+	private static class ConnectCase extends ServerCase {
+
+		ConnectCase(String name, Properties props) {
+			super(name, 1, 0, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final Connection connection = connect();
+			connection.close();
+			return 1;
+		}
+
+	}
+
+	private static class BatchCase extends ServerCase {
+
+		BatchCase(String name, Properties props) {
+			super(name, BATCH_ROW_COUNT, 0, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			final PreparedStatement statement = connection.prepareStatement(
+					"INSERT INTO " + MockServer.DEFAULT_TABLE_NAME +
+					" VALUES (?, ?, ?)");
+			try {
+				for (int i = 0; i < BATCH_ROW_COUNT; i++) {
+					statement.setLong(1, i);
+					statement.setInt(2, i * 2);
+					statement.setString(3, "value-" + i);
+					statement.addBatch();
+				}
+				return statement.executeBatch().length;
+			}
+			finally {
+				statement.close();
+			}
+		}
+
+	}
+
+	private static class PrepareCase extends ServerCase {
+
+		PrepareCase(String name, Properties props) {
+			super(name, PREPARE_COUNT, 0, props);
+		}
+
+		@Override
+		long run() throws SQLException {
+			long sum = 0;
+			for (int i = 0; i < PREPARE_COUNT; i++) {
+				final PreparedStatement statement =
+						connection.prepareStatement(
+								"UPDATE " + MockServer.DEFAULT_TABLE_NAME +
+								" SET c1 = ? WHERE id = ?");
+				try {
+					statement.setInt(1, i);
+					statement.setLong(2, i);
+					sum += statement.executeUpdate();
+				}
+				finally {
+					statement.close();
+				}
+			}
+			return sum;
+		}
+
+	}
+
+}
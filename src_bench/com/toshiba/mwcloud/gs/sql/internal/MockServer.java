@@ -0,0 +1,1155 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.CompressionType;
+import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.FeatureVersion;
+import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.OptionalRequestType;
+import com.toshiba.mwcloud.gs.sql.internal.RowMapper.MappingMode;
+import com.toshiba.mwcloud.gs.sql.internal.SQLStatement.SessionMode;
+import com.toshiba.mwcloud.gs.sql.internal.SQLStatement.StatementOperation;
+
+public class MockServer {
+
+	public static final String DEFAULT_CLUSTER_NAME = "mockCluster";
+
+	public static final String DEFAULT_TABLE_NAME = "synthetic";
+
+	private static final int DEFAULT_BLOCK_ROWS = 10000;
+
+	private static final int DEFAULT_ROW_COUNT = 10000;
+
+	private static final int DEFAULT_COLUMN_COUNT = 5;
+
+	private static final int DEFAULT_STRING_LENGTH = 16;
+
+	private static final int EE_HEAD_LENGTH = 4 * 5;
+
+	private static final int MAX_MESSAGE_LENGTH = 256 * 1024 * 1024;
+
+	private static final int PARTITION_COUNT = 1;
+
+	private static final int MIN_COMPRESSION_LENGTH = 1024;
+
+	private static final int CONNECT_STATEMENT =
+			NodeConnection.statementToNumber(Statement.CONNECT);
+
+	private static final int DISCONNECT_STATEMENT =
+			NodeConnection.statementToNumber(Statement.DISCONNECT);
+
+	private static final int LOGIN_STATEMENT =
+			NodeConnection.statementToNumber(Statement.LOGIN);
+
+	private static final int LOGOUT_STATEMENT =
+			NodeConnection.statementToNumber(Statement.LOGOUT);
+
+	private static final int PARTITION_ADDRESS_STATEMENT =
+			NodeConnection.statementToNumber(Statement.GET_PARTITION_ADDRESS);
+
+	private static final Pattern TABLE_PATTERN = Pattern.compile(
+			"\\bFROM\\s+\"?([A-Za-z_][A-Za-z0-9_]*)\"?",
+			Pattern.CASE_INSENSITIVE);
+
+	private final Map<String, Table> tableMap =
+			new ConcurrentHashMap<String, Table>();
+
+	private final Set<Session> sessionSet =
+			Collections.synchronizedSet(new HashSet<Session>());
+
+	private final AtomicLong connectionCount = new AtomicLong();
+
+	private final AtomicLong requestCount = new AtomicLong();
+
+	private volatile long latencyMillis;
+
+	private volatile int defaultBlockRows = DEFAULT_BLOCK_ROWS;
+
+	private volatile Table defaultTable;
+
+	private volatile boolean compressionSupported = true;
+
+	private volatile boolean strictControlInfo;
+
+	private ServerSocket serverSocket;
+
+	private ExecutorService sessionExecutor;
+
+	private ScheduledExecutorService responseExecutor;
+
+	public MockServer() {
+		this(Table.synthetic(
+				DEFAULT_TABLE_NAME, DEFAULT_ROW_COUNT, DEFAULT_COLUMN_COUNT,
+				DEFAULT_STRING_LENGTH));
+	}
+
+	public MockServer(Table defaultTable) {
+		putTable(defaultTable);
+		this.defaultTable = defaultTable;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int port = 0;
+		int rowCount = DEFAULT_ROW_COUNT;
+		int columnCount = DEFAULT_COLUMN_COUNT;
+		int stringLength = DEFAULT_STRING_LENGTH;
+		long latencyMillis = 0;
+		int blockRows = DEFAULT_BLOCK_ROWS;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			final String value = args[i + 1];
+			if (args[i].equals("-p")) {
+				port = Integer.parseInt(value);
+			}
+			else if (args[i].equals("-r")) {
+				rowCount = Integer.parseInt(value);
+			}
+			else if (args[i].equals("-c")) {
+				columnCount = Integer.parseInt(value);
+			}
+			else if (args[i].equals("-s")) {
+				stringLength = Integer.parseInt(value);
+			}
+			else if (args[i].equals("-l")) {
+				latencyMillis = Long.parseLong(value);
+			}
+			else if (args[i].equals("-b")) {
+				blockRows = Integer.parseInt(value);
+			}
+			else {
+				System.err.println(
+						"Usage: MockServer [-p port] [-r rowCount] " +
+						"[-c columnCount] [-s stringLength] " +
+						"[-l latencyMillis] [-b blockRows]");
+				System.exit(1);
+				return;
+			}
+		}
+
+		final MockServer server = new MockServer(Table.synthetic(
+				DEFAULT_TABLE_NAME, rowCount, columnCount, stringLength));
+		server.setLatencyMillis(latencyMillis);
+		server.setDefaultBlockRows(blockRows);
+		server.start(port);
+		System.out.println("Mock server started (url=" + server.getURL() +
+				", table=" + DEFAULT_TABLE_NAME + ")");
+		Thread.sleep(Long.MAX_VALUE);
+	}
+
+	public synchronized void start(int port) throws IOException {
+		if (serverSocket != null) {
+			throw new IllegalStateException("Already started");
+		}
+
+		final ServerSocket serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(
+				InetAddress.getByName("127.0.0.1"), port));
+
+		this.serverSocket = serverSocket;
+		sessionExecutor = Executors.newCachedThreadPool(
+				new WorkerThreadFactory("gridstore-mock-session-"));
+		responseExecutor = Executors.newSingleThreadScheduledExecutor(
+				new WorkerThreadFactory("gridstore-mock-response-"));
+
+		final Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptAll(serverSocket);
+			}
+		}, "gridstore-mock-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public void close() {
+		final ServerSocket serverSocket;
+		synchronized (this) {
+			serverSocket = this.serverSocket;
+			this.serverSocket = null;
+		}
+		if (serverSocket == null) {
+			return;
+		}
+
+		try {
+			serverSocket.close();
+		}
+		catch (IOException e) {
+		}
+
+		final List<Session> sessionList;
+		synchronized (sessionSet) {
+			sessionList = new ArrayList<Session>(sessionSet);
+		}
+		for (Session session : sessionList) {
+			session.close();
+		}
+
+		sessionExecutor.shutdownNow();
+		responseExecutor.shutdownNow();
+	}
+
+	public synchronized int getPort() {
+		if (serverSocket == null) {
+			throw new IllegalStateException("Not started");
+		}
+		return serverSocket.getLocalPort();
+	}
+
+	public String getURL() {
+		return "jdbc:gs://127.0.0.1:" + getPort() + "/" +
+				DEFAULT_CLUSTER_NAME + "/public";
+	}
+
+	public void putTable(Table table) {
+		tableMap.put(normalizeName(table.name), table);
+	}
+
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = Math.max(latencyMillis, 0);
+	}
+
+	public void setDefaultBlockRows(int defaultBlockRows) {
+		this.defaultBlockRows = Math.max(defaultBlockRows, 1);
+	}
+
+	public void setCompressionSupported(boolean compressionSupported) {
+		this.compressionSupported = compressionSupported;
+	}
+
+	public void setStrictControlInfo(boolean strictControlInfo) {
+		this.strictControlInfo = strictControlInfo;
+	}
+
+	public long getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	private void acceptAll(ServerSocket serverSocket) {
+		for (;;) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+			}
+			catch (IOException e) {
+				return;
+			}
+
+			connectionCount.incrementAndGet();
+			final Session session;
+			try {
+				session = new Session(socket);
+				sessionSet.add(session);
+				sessionExecutor.execute(session);
+			}
+			catch (Exception e) {
+				closeSocket(socket);
+			}
+		}
+	}
+
+	private Table findTable(String sql) {
+		final Matcher matcher = TABLE_PATTERN.matcher(sql);
+		if (matcher.find()) {
+			final Table table = tableMap.get(normalizeName(matcher.group(1)));
+			if (table != null) {
+				return table;
+			}
+		}
+		return defaultTable;
+	}
+
+	private static String normalizeName(String name) {
+		return name.toUpperCase(Locale.ROOT);
+	}
+
+	private static boolean isSelect(String sql) {
+		final String trimmed = sql.trim();
+		return trimmed.regionMatches(true, 0, "SELECT", 0, 6);
+	}
+
+	private static boolean isModification(String sql) {
+		final String trimmed = sql.trim();
+		return trimmed.regionMatches(true, 0, "INSERT", 0, 6) ||
+				trimmed.regionMatches(true, 0, "UPDATE", 0, 6) ||
+				trimmed.regionMatches(true, 0, "DELETE", 0, 6);
+	}
+
+	private static int countParameters(String sql) {
+		int count = 0;
+		boolean quoted = false;
+		for (int i = 0; i < sql.length(); i++) {
+			final char ch = sql.charAt(i);
+			if (ch == '\'') {
+				quoted = !quoted;
+			}
+			else if (ch == '?' && !quoted) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void closeSocket(Socket socket) {
+		try {
+			socket.close();
+		}
+		catch (IOException e) {
+		}
+	}
+
+	public static class Table {
+
+		private static final int MAX_CACHED_BLOCKS = 64;
+
+		private static final long BASE_TIME = 1500000000000L;
+
+		private final String name;
+
+		private final RowMapper mapper;
+
+		private final int rowCount;
+
+		private final int stringLength;
+
+		private int stringCardinality;
+
+		private final Map<List<Integer>, byte[]> blockCache =
+				new LinkedHashMap<List<Integer>, byte[]>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(
+							Map.Entry<List<Integer>, byte[]> eldest) {
+						return size() > MAX_CACHED_BLOCKS;
+					}
+				};
+
+		public Table(
+				String name, List<ColumnInfo> columnList, int rowCount,
+				int stringLength) throws GSException {
+			this.name = name;
+			this.mapper = RowMapper.getInstance(
+					null, new ContainerInfo(null, null, columnList, false),
+					SQLStatement.getRowMapperConfig());
+			this.rowCount = rowCount;
+			this.stringLength = stringLength;
+		}
+
+		public static Table synthetic(
+				String name, int rowCount, int columnCount,
+				int stringLength) {
+			final GSType[] types = {
+					GSType.INTEGER, GSType.DOUBLE, GSType.STRING,
+					GSType.TIMESTAMP, GSType.LONG
+			};
+			final List<ColumnInfo> columnList = new ArrayList<ColumnInfo>();
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			for (int i = 1; i < columnCount; i++) {
+				columnList.add(new ColumnInfo(
+						"c" + i, types[(i - 1) % types.length]));
+			}
+
+			try {
+				return new Table(name, columnList, rowCount, stringLength);
+			}
+			catch (GSException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+
+		public static Table withBlob(
+				String name, int rowCount, int blobLength) {
+			final List<ColumnInfo> columnList = new ArrayList<ColumnInfo>();
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			columnList.add(new ColumnInfo("c1", GSType.BLOB));
+			columnList.add(new ColumnInfo("c2", GSType.STRING));
+
+			try {
+				return new Table(name, columnList, rowCount, blobLength);
+			}
+			catch (GSException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+
+		public static Table withTags(
+				String name, int rowCount, int tagCount) {
+			final List<ColumnInfo> columnList = new ArrayList<ColumnInfo>();
+			columnList.add(new ColumnInfo("id", GSType.LONG));
+			columnList.add(new ColumnInfo("c1", GSType.STRING));
+			columnList.add(new ColumnInfo("c2", GSType.STRING));
+			columnList.add(new ColumnInfo("c3", GSType.DOUBLE));
+
+			final Table table;
+			try {
+				table = new Table(name, columnList, rowCount, 32);
+			}
+			catch (GSException e) {
+				throw new IllegalArgumentException(e);
+			}
+			table.stringCardinality = tagCount;
+			return table;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		void putSchema(BasicBuffer out) throws GSException {
+			mapper.exportSchema(out, SQLStatement.getRowMapperConfig());
+			final ContainerInfo info = mapper.getContainerInfo();
+			for (int i = 0; i < info.getColumnCount(); i++) {
+				out.putString(info.getColumnInfo(i).getName());
+			}
+		}
+
+		void putRowSet(BasicBuffer out, int start, int count)
+				throws GSException {
+			final List<Integer> key = Arrays.asList(start, count);
+			byte[] block;
+			synchronized (blockCache) {
+				block = blockCache.get(key);
+			}
+
+			if (block == null) {
+				final BasicBuffer buf = new BasicBuffer(64 * 1024);
+				encodeRows(buf, start, count);
+				block = Arrays.copyOf(
+						buf.base().array(), buf.base().position());
+				synchronized (blockCache) {
+					blockCache.put(key, block);
+				}
+			}
+
+			out.prepare(block.length);
+			out.base().put(block);
+		}
+
+		private void encodeRows(BasicBuffer out, int start, int count)
+				throws GSException {
+			final long varDataBaseOffset = 0;
+			out.putLong(varDataBaseOffset);
+
+			final RowMapper.Cursor cursor = mapper.createCursor(
+					out, MappingMode.ROWWISE_SEPARATED_V2, count, false, null);
+			final ContainerInfo info = mapper.getContainerInfo();
+			final Row row = mapper.createGeneralRow();
+			for (int r = start; r < start + count; r++) {
+				for (int i = 0; i < info.getColumnCount(); i++) {
+					row.setValue(i, generateValue(
+							info.getColumnInfo(i).getType(), r, i));
+				}
+				mapper.encode(cursor, null, row);
+			}
+		}
+
+		private Object generateValue(GSType type, int row, int column)
+				throws GSException {
+			switch (type) {
+			case BOOL:
+				return (row % 2 == 0);
+			case BYTE:
+				return (byte) row;
+			case SHORT:
+				return (short) row;
+			case INTEGER:
+				return row * 31 + column;
+			case LONG:
+				return (long) row;
+			case FLOAT:
+				return row / 4.0f;
+			case DOUBLE:
+				return row / 8.0 + column;
+			case TIMESTAMP:
+				return new Date(BASE_TIME + row * 1000L);
+			case STRING:
+				return makeString(row, column);
+			case BLOB: {
+				final byte[] bytes = new byte[stringLength];
+				Arrays.fill(bytes, (byte) row);
+				return RowMapper.Tool.createBlob(bytes);
+			}
+			default:
+				return null;
+			}
+		}
+
+		private String makeString(int row, int column) {
+			final StringBuilder builder = new StringBuilder(stringLength);
+			final int key = (stringCardinality > 0 ?
+					row % (stringCardinality * column) : row);
+			builder.append('r').append(key).append('c').append(column);
+			while (builder.length() < stringLength) {
+				builder.append('x');
+			}
+			builder.setLength(stringLength);
+			return builder.toString();
+		}
+
+	}
+
+	private static class Query {
+
+		final String sql;
+
+		final Table table;
+
+		int position;
+
+		Query(String sql, Table table) {
+			this.sql = sql;
+			this.table = table;
+		}
+
+	}
+
+	private static class Request {
+
+		int statementType;
+
+		long statementId;
+
+		BasicBuffer body;
+
+	}
+
+	private class Session implements Runnable {
+
+		private final Socket socket;
+
+		private final InputStream input;
+
+		private final OutputStream output;
+
+		private final Map<List<Object>, Query> queryMap =
+				new HashMap<List<Object>, Query>();
+
+		private final List<PendingResponse> pendingList =
+				new ArrayList<PendingResponse>();
+
+		private Deflater deflater;
+
+		Session(Socket socket) throws IOException {
+			this.socket = socket;
+			input = socket.getInputStream();
+			output = socket.getOutputStream();
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (;;) {
+					final Request request = readRequest();
+					if (request == null) {
+						break;
+					}
+					requestCount.incrementAndGet();
+					if (!dispatch(request)) {
+						break;
+					}
+				}
+			}
+			catch (IOException e) {
+			}
+			finally {
+				close();
+			}
+		}
+
+		void close() {
+			sessionSet.remove(this);
+			synchronized (this) {
+				for (PendingResponse pending : pendingList) {
+					pending.future.cancel(false);
+				}
+				pendingList.clear();
+			}
+			closeSocket(socket);
+			synchronized (output) {
+				if (deflater != null) {
+					deflater.end();
+					deflater = null;
+				}
+			}
+		}
+
+		private Request readRequest() throws IOException {
+			final byte[] head = new byte[EE_HEAD_LENGTH];
+			if (!readFully(head, true)) {
+				return null;
+			}
+
+			final BasicBuffer headBuf = BasicBuffer.wrap(head);
+			if (headBuf.base().getInt() != NodeConnection.EE_MAGIC_NUMBER) {
+				throw new IOException("Illegal magic number");
+			}
+			headBuf.base().position(EE_HEAD_LENGTH - Integer.SIZE / Byte.SIZE);
+			final int bodyLength = headBuf.base().getInt();
+			if (bodyLength < 0 || bodyLength > MAX_MESSAGE_LENGTH) {
+				throw new IOException("Illegal body length");
+			}
+
+			final byte[] body = new byte[bodyLength];
+			readFully(body, false);
+
+			final Request request = new Request();
+			request.body = BasicBuffer.wrap(body);
+			request.statementType = request.body.base().getInt();
+			request.body.base().getInt();
+			request.statementId = (isStatementIdLarge(request.statementType) ?
+					request.body.base().getLong() :
+					request.body.base().getInt());
+			return request;
+		}
+
+		private boolean readFully(byte[] buf, boolean eofAllowed)
+				throws IOException {
+			int pos = 0;
+			while (pos < buf.length) {
+				final int last = input.read(buf, pos, buf.length - pos);
+				if (last < 0) {
+					if (eofAllowed && pos == 0) {
+						return false;
+					}
+					throw new IOException("Unexpected end of stream");
+				}
+				pos += last;
+			}
+			return true;
+		}
+
+		private boolean dispatch(Request request)
+				throws IOException, GSException {
+			final int type = request.statementType;
+			if (type == CONNECT_STATEMENT) {
+				if (strictControlInfo && getControlInfoSize(request) > 2) {
+					sendResponse(errorResponse(
+							request, GSErrorCode.MESSAGE_CORRUPTED,
+							"Unknown control info field"));
+					return true;
+				}
+				final boolean compressionAccepted =
+						(compressionSupported && isCompressionRequested(request));
+				final BasicBuffer resp = startResponse(request);
+				resp.put((byte) NodeConnection.AuthMode.NONE.ordinal());
+				resp.putInt(NodeConnection.getProtocolVersion());
+				resp.put((byte) NodeConnection.AuthType.INTERNAL.ordinal());
+				resp.putInt(compressionAccepted ? 3 : 2);
+				resp.putBoolean(true);
+				resp.putBoolean(false);
+				if (compressionAccepted) {
+					resp.put((byte) CompressionType.DEFLATE.ordinal());
+				}
+				sendResponse(resp);
+				if (compressionAccepted) {
+					synchronized (output) {
+						if (deflater == null) {
+							deflater = new Deflater(Deflater.BEST_SPEED);
+						}
+					}
+				}
+			}
+			else if (type == LOGIN_STATEMENT) {
+				final long databaseId = 0;
+				final BasicBuffer resp = startResponse(request);
+				resp.put((byte) NodeConnection.AuthMode.NONE.ordinal());
+				resp.putLong(databaseId);
+				resp.putInt(FeatureVersion.latest().ordinal());
+				sendResponse(resp);
+			}
+			else if (type == LOGOUT_STATEMENT) {
+				sendResponse(startResponse(request));
+			}
+			else if (type == DISCONNECT_STATEMENT) {
+				return false;
+			}
+			else if (type == PARTITION_ADDRESS_STATEMENT) {
+				acceptPartitionAddress(request);
+			}
+			else if (type == SQLConnection.SQL_STATEMENT_TYPE) {
+				acceptSQL(request);
+			}
+			else if (type == SQLConnection.CANCEL_STATEMENT_TYPE) {
+				acceptCancel(request);
+			}
+			else {
+				sendResponse(errorResponse(
+						request, GSErrorCode.UNSUPPORTED_OPERATION,
+						"Unsupported statement (type=" + type + ")"));
+			}
+			return true;
+		}
+
+		private void acceptPartitionAddress(Request request)
+				throws IOException {
+			final BasicBuffer in = request.body;
+			skipSized(in);
+			final boolean masterResolving =
+					(in.base().remaining() > 0 && in.getBoolean());
+
+			final BasicBuffer resp = startResponse(request);
+			resp.putInt(PARTITION_COUNT);
+			if (masterResolving) {
+				resp.put((byte) 0);
+				resp.put((byte) 0);
+				resp.putBoolean(true);
+				resp.put((byte) NodeResolver.ContainerHashMode.MD5.ordinal());
+				putLocalAddress(resp);
+			}
+			else {
+				resp.put((byte) 1);
+				putLocalAddress(resp);
+				resp.put((byte) 0);
+			}
+			sendResponse(resp);
+		}
+
+		private void putLocalAddress(BasicBuffer resp) {
+			final byte[] address = socket.getLocalAddress().getAddress();
+			resp.prepare(address.length);
+			resp.base().put(address);
+			resp.putInt(socket.getLocalPort());
+		}
+
+		private void acceptSQL(Request request) throws GSException {
+			final BasicBuffer in = request.body;
+			final UUID uuid = in.getUUID();
+			final SessionMode sessionMode = in.getByteEnum(SessionMode.class);
+			final StatementOperation op =
+					in.getEnum(StatementOperation.class);
+			final long queryId = in.base().getLong();
+			final long oldQueryId = in.base().getLong();
+			in.getBoolean();
+			in.getBoolean();
+
+			long inputRowCount = 0;
+			if (in.getBoolean()) {
+				inputRowCount = in.base().getLong();
+				skipSized(in);
+				skipSized(in);
+			}
+
+			final Map<Integer, Object> options = readOptionalRequest(in);
+			final Long fetchLimit = (Long) options.get(
+					OptionalRequestType.FETCH_LIMIT.id());
+			final Long fetchSize = (Long) options.get(
+					OptionalRequestType.FETCH_SIZE.id());
+
+			final List<String> queryList = new ArrayList<String>();
+			final int queryCount = in.base().getInt();
+			for (int i = 0; i < queryCount; i++) {
+				queryList.add(in.getString());
+			}
+
+			if (oldQueryId != 0) {
+				queryMap.remove(Arrays.<Object>asList(uuid, oldQueryId));
+			}
+
+			final List<Object> queryKey = Arrays.<Object>asList(uuid, queryId);
+			if (op == StatementOperation.CLOSE) {
+				queryMap.remove(queryKey);
+				respondSQL(request, queryId, startSQLResponse(request, 0));
+				return;
+			}
+
+			Query query;
+			if (sessionMode == SessionMode.CREATE || op == null) {
+				if (queryList.isEmpty()) {
+					respondSQL(request, queryId, errorResponse(
+							request, GSErrorCode.BAD_STATEMENT,
+							"No SQL specified"));
+					return;
+				}
+				final String sql = queryList.get(0);
+				query = new Query(sql, (isSelect(sql) ? findTable(sql) : null));
+				queryMap.put(queryKey, query);
+			}
+			else {
+				query = queryMap.get(queryKey);
+				if (query == null) {
+					respondSQL(request, queryId, errorResponse(
+							request, GSErrorCode.BAD_STATEMENT,
+							"Query not found (queryId=" + queryId + ")"));
+					return;
+				}
+			}
+
+			final BasicBuffer resp;
+			if (op == StatementOperation.PREPARE) {
+				resp = startSQLResponse(request, 1);
+				resp.putInt(0);
+				resp.putInt(countParameters(query.sql));
+				resp.putBoolean(false);
+			}
+			else if (query.table != null) {
+				if (op != StatementOperation.FETCH) {
+					query.position = 0;
+				}
+				int total = query.table.getRowCount();
+				if (fetchLimit != null && fetchLimit > 0) {
+					total = (int) Math.min(total, fetchLimit);
+				}
+				final int blockRows = (fetchSize != null && fetchSize > 0 ?
+						(int) Math.min(fetchSize, Integer.MAX_VALUE) :
+						defaultBlockRows);
+				final int start = Math.min(query.position, total);
+				final int count = Math.min(blockRows, total - start);
+				query.position = start + count;
+
+				resp = startSQLResponse(request, 1);
+				resp.putInt(0);
+				resp.putInt(0);
+				resp.putBoolean(true);
+				resp.putBoolean(query.position < total);
+				resp.putInt(count);
+				putSized(resp, query.table, -1, 0);
+				putSized(resp, query.table, start, count);
+			}
+			else {
+				final int resultCount =
+						(int) Math.max(Math.min(inputRowCount, 1 << 20), 1);
+				resp = startSQLResponse(request, resultCount);
+				for (int i = 0; i < resultCount; i++) {
+					resp.putInt(isModification(query.sql) ? 1 : 0);
+					resp.putInt(0);
+					resp.putBoolean(false);
+				}
+			}
+			respondSQL(request, queryId, resp);
+		}
+
+		private void putSized(BasicBuffer resp, Table table, int start, int count)
+				throws GSException {
+			resp.putInt(0);
+			final int bodyPos = resp.base().position();
+			if (start < 0) {
+				table.putSchema(resp);
+			}
+			else {
+				table.putRowSet(resp, start, count);
+			}
+			final int endPos = resp.base().position();
+			resp.base().position(bodyPos - Integer.SIZE / Byte.SIZE);
+			resp.putInt(endPos - bodyPos);
+			resp.base().position(endPos);
+		}
+
+		private BasicBuffer startSQLResponse(Request request, int resultCount) {
+			final BasicBuffer resp = startResponse(request);
+			resp.putBoolean(false);
+			resp.putBoolean(true);
+			resp.putInt(resultCount);
+			return resp;
+		}
+
+		private void respondSQL(
+				final Request request, long queryId, final BasicBuffer resp) {
+			final long latencyMillis = MockServer.this.latencyMillis;
+			if (latencyMillis <= 0) {
+				sendResponseSilently(resp);
+				return;
+			}
+
+			synchronized (this) {
+				final PendingResponse pending = new PendingResponse();
+				pending.request = request;
+				pending.queryId = queryId;
+				pending.future = responseExecutor.schedule(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (Session.this) {
+							if (!pendingList.remove(pending)) {
+								return;
+							}
+						}
+						sendResponseSilently(resp);
+					}
+				}, latencyMillis, TimeUnit.MILLISECONDS);
+				pendingList.add(pending);
+			}
+		}
+
+		private void acceptCancel(Request request) {
+			final BasicBuffer in = request.body;
+			in.getUUID();
+			final long queryId = in.base().getLong();
+
+			PendingResponse pending = null;
+			synchronized (this) {
+				for (PendingResponse entry : pendingList) {
+					if (entry.queryId == queryId) {
+						pending = entry;
+						break;
+					}
+				}
+				if (pending == null || !pending.future.cancel(false)) {
+					return;
+				}
+				pendingList.remove(pending);
+			}
+
+			sendResponseSilently(errorResponse(
+					pending.request, GSErrorCode.BAD_STATEMENT,
+					"Query canceled (queryId=" + queryId + ")"));
+		}
+
+		private BasicBuffer startResponse(Request request) {
+			final BasicBuffer resp = new BasicBuffer(1024);
+			resp.putInt(NodeConnection.EE_MAGIC_NUMBER);
+			resp.putInt(0);
+			resp.putInt(0);
+			resp.putInt(-1);
+			resp.putInt(0);
+
+			resp.putInt(request.statementType);
+			if (isStatementIdLarge(request.statementType)) {
+				resp.putLong(request.statementId);
+			}
+			else {
+				resp.putInt((int) request.statementId);
+			}
+			resp.putByteEnum(StatementResult.SUCCESS);
+			return resp;
+		}
+
+		private BasicBuffer errorResponse(
+				Request request, int errorCode, String message) {
+			final BasicBuffer resp = startResponse(request);
+			resp.base().position(resp.base().position() - 1);
+			resp.putByteEnum(StatementResult.STATEMENT_ERROR);
+			resp.putInt(1);
+			resp.putInt(errorCode);
+			resp.putString(message);
+			resp.putString("MockServerException");
+			resp.putString("");
+			resp.putString("");
+			resp.putInt(0);
+			resp.putString("");
+			resp.putInt(0);
+			return resp;
+		}
+
+		private int getControlInfoSize(Request request) {
+			final ByteBuffer in = request.body.base();
+			return in.getInt(in.position() + Integer.SIZE / Byte.SIZE);
+		}
+
+		private boolean isCompressionRequested(Request request) {
+			final BasicBuffer in = request.body;
+			in.base().getInt();
+			final int size = in.base().getInt();
+			if (size < 3) {
+				return false;
+			}
+			in.getBoolean();
+			in.getBoolean();
+			return (in.base().get() == CompressionType.DEFLATE.ordinal());
+		}
+
+		private void sendResponse(BasicBuffer resp) throws IOException {
+			synchronized (output) {
+				if (deflater != null) {
+					resp = compress(resp);
+				}
+
+				final int length = resp.base().position();
+				resp.base().putInt(
+						EE_HEAD_LENGTH - Integer.SIZE / Byte.SIZE,
+						length - EE_HEAD_LENGTH);
+				output.write(resp.base().array(), 0, length);
+				output.flush();
+			}
+		}
+
+		private BasicBuffer compress(BasicBuffer resp) {
+			final int bodyLength = resp.base().position() - EE_HEAD_LENGTH;
+			final BasicBuffer dest = new BasicBuffer(
+					EE_HEAD_LENGTH + 1 + Integer.SIZE / Byte.SIZE +
+					bodyLength + 64);
+			dest.base().put(resp.base().array(), 0, EE_HEAD_LENGTH);
+
+			if (bodyLength < MIN_COMPRESSION_LENGTH) {
+				dest.put((byte) CompressionType.NONE.ordinal());
+				dest.base().put(
+						resp.base().array(), EE_HEAD_LENGTH, bodyLength);
+				return dest;
+			}
+
+			dest.put((byte) CompressionType.DEFLATE.ordinal());
+			dest.putInt(bodyLength);
+
+			deflater.setInput(resp.base().array(), EE_HEAD_LENGTH, bodyLength);
+			deflater.finish();
+			while (!deflater.finished()) {
+				dest.prepare(64 * 1024);
+				final ByteBuffer base = dest.base();
+				final int n = deflater.deflate(
+						base.array(), base.position(), base.remaining());
+				base.position(base.position() + n);
+			}
+			deflater.reset();
+			return dest;
+		}
+
+		private void sendResponseSilently(BasicBuffer resp) {
+			try {
+				sendResponse(resp);
+			}
+			catch (IOException e) {
+				close();
+			}
+		}
+
+	}
+
+	private static class PendingResponse {
+
+		Request request;
+
+		long queryId;
+
+		ScheduledFuture<?> future;
+
+	}
+
+	private static boolean isStatementIdLarge(int statementType) {
+		return NodeConnection.isStatementIdLarge(
+				statementType == CONNECT_STATEMENT);
+	}
+
+	private static void skipSized(BasicBuffer in) {
+		final int size = in.base().getInt();
+		in.base().position(in.base().position() + size);
+	}
+
+	private static Map<Integer, Object> readOptionalRequest(BasicBuffer in) {
+		final Map<Integer, Class<?>> typeMap = new HashMap<Integer, Class<?>>();
+		for (OptionalRequestType type : OptionalRequestType.values()) {
+			typeMap.put(type.id(), type.valueType());
+		}
+
+		final Map<Integer, Object> options = new HashMap<Integer, Object>();
+		final int size = in.base().getInt();
+		final int endPos = in.base().position() + size;
+		while (in.base().position() < endPos) {
+			final int id = in.base().getShort();
+			final Class<?> valueType = typeMap.get(id);
+			if (valueType == null || id >= OptionalRequestRange.START_ID) {
+				if (id % OptionalRequestRange.SIZE != 0) {
+					break;
+				}
+				final int rangeSize = in.base().getInt();
+				in.base().position(in.base().position() + rangeSize);
+				continue;
+			}
+
+			if (valueType == Integer.class) {
+				options.put(id, in.base().getInt());
+			}
+			else if (valueType == Long.class) {
+				options.put(id, in.base().getLong());
+			}
+			else if (valueType == Boolean.class) {
+				options.put(id, in.getBoolean());
+			}
+			else if (valueType == String.class) {
+				options.put(id, in.getString());
+			}
+			else if (valueType == Byte.class) {
+				options.put(id, in.base().get());
+			}
+			else if (valueType == Double.class) {
+				options.put(id, in.base().getDouble());
+			}
+			else {
+				break;
+			}
+		}
+		in.base().position(endPos);
+		return options;
+	}
+
+	private static class OptionalRequestRange {
+
+		static final int SIZE = 1000;
+
+		static final int START_ID = SIZE * 11;
+
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		WorkerThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(
+					r, prefix + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.SocketFactory;
+
+import com.toshiba.mwcloud.gs.sql.internal.NodeConnection.SocketType;
+
+class PoolBenchmarks {
+
+	private static final int THREAD_COUNT = 8;
+
+	private static final int OPERATIONS_PER_THREAD = 20000;
+
+	private static final int CONNECTIONS_PER_KEY = 2;
+
+	static void addCases(List<DriverBenchmark.Case> caseList) {
+		caseList.add(new HandoffCase("pool.handoff.sharedKey", 1));
+		caseList.add(new HandoffCase(
+				"pool.handoff.distinctKeys", THREAD_COUNT));
+	}
+
+	private static class HandoffCase extends DriverBenchmark.Case {
+
+		private final int keyCount;
+
+		private final List<NodeConnection> connectionList =
+				new ArrayList<NodeConnection>();
+
+		private MockServer server;
+
+		private NodeConnectionPool pool;
+
+		HandoffCase(String name, int keyCount) {
+			super(name, THREAD_COUNT * OPERATIONS_PER_THREAD);
+			this.keyCount = keyCount;
+		}
+
+		@Override
+		void setUp() throws Exception {
+			server = new MockServer();
+			server.start(0);
+
+			pool = new NodeConnectionPool();
+			pool.setMaxSize(keyCount * CONNECTIONS_PER_KEY);
+
+			final InetSocketAddress address =
+					new InetSocketAddress("127.0.0.1", server.getPort());
+			final NodeConnection.Config config = new NodeConnection.Config();
+			config.setSocketConfig(
+					EnumSet.of(SocketType.PLAIN),
+					Collections.<SocketType, SocketFactory>singletonMap(
+							SocketType.PLAIN, SocketFactory.getDefault()));
+			for (int i = 0; i < keyCount; i++) {
+				for (int j = 0; j < CONNECTIONS_PER_KEY; j++) {
+					final NodeConnection connection =
+							new NodeConnection(address, config);
+					connectionList.add(connection);
+					pool.add(connection, i);
+				}
+			}
+		}
+
+		@Override
+		void tearDown() throws Exception {
+			try {
+				pool.close();
+				for (NodeConnection connection : connectionList) {
+					connection.close();
+				}
+			}
+			finally {
+				connectionList.clear();
+				server.close();
+			}
+		}
+
+		@Override
+		long run() throws Exception {
+			final AtomicLong hitCount = new AtomicLong();
+			final List<Thread> threadList = new ArrayList<Thread>();
+			for (int i = 0; i < THREAD_COUNT; i++) {
+				final Integer key = i % keyCount;
+				threadList.add(new Thread(new Runnable() {
+					@Override
+					public void run() {
+						long hits = 0;
+						for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+							final NodeConnection connection = pool.pull(key);
+							if (connection != null) {
+								pool.add(connection, key);
+								hits++;
+							}
+						}
+						hitCount.addAndGet(hits);
+					}
+				}));
+			}
+
+			for (Thread thread : threadList) {
+				thread.start();
+			}
+			for (Thread thread : threadList) {
+				thread.join();
+			}
+			return hitCount.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+class TimestampBenchmarks {
+
+	private static final int VALUE_COUNT = 100;
+
+	private static final long BASE_MILLIS = 1500000000000L;
+
+	private static final TimeZone ZONE = TimeZone.getTimeZone("UTC");
+
+	static void addCases(List<DriverBenchmark.Case> caseList) {
+		final Date[] dates = new Date[VALUE_COUNT];
+		final Timestamp[] timestamps = new Timestamp[VALUE_COUNT];
+		final String[] texts = new String[VALUE_COUNT];
+		final String[] preciseTexts = new String[VALUE_COUNT];
+		for (int i = 0; i < VALUE_COUNT; i++) {
+			final long millis = BASE_MILLIS + i * 86399123L;
+			dates[i] = new Date(millis);
+			timestamps[i] = new Timestamp(millis);
+			timestamps[i].setNanos(timestamps[i].getNanos() + i * 1001);
+			texts[i] = TimestampUtils.format(dates[i], ZONE);
+			preciseTexts[i] = TimestampUtils.formatPrecise(timestamps[i], ZONE);
+		}
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.format", VALUE_COUNT) {
+			@Override
+			long run() {
+				long length = 0;
+				for (Date date : dates) {
+					length += TimestampUtils.format(date, ZONE).length();
+				}
+				return length;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.formatPrecise", VALUE_COUNT) {
+			@Override
+			long run() {
+				long length = 0;
+				for (Timestamp timestamp : timestamps) {
+					length += TimestampUtils.formatPrecise(
+							timestamp, ZONE).length();
+				}
+				return length;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.parse", VALUE_COUNT) {
+			@Override
+			long run() throws ParseException {
+				long sum = 0;
+				for (String text : texts) {
+					sum += TimestampUtils.parse(text).getTime();
+				}
+				return sum;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.parsePrecise", VALUE_COUNT) {
+			@Override
+			long run() throws ParseException {
+				long sum = 0;
+				for (String text : preciseTexts) {
+					sum += TimestampUtils.parsePrecise(text).getNanos();
+				}
+				return sum;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.parseFlexible", VALUE_COUNT) {
+			@Override
+			long run() {
+				long sum = 0;
+				for (String text : preciseTexts) {
+					sum += TimestampCodec.parseFlexible(text, ZONE).getNanos();
+				}
+				return sum;
+			}
+		});
+
+		final DateFormat legacyFormat = TimestampUtils.getFormat(ZONE);
+		final DateFormat legacyPreciseFormat = TimestampUtils.getFormat(
+				ZONE, TimeUnit.NANOSECOND);
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.legacy.format", VALUE_COUNT) {
+			@Override
+			long run() {
+				long length = 0;
+				for (Date date : dates) {
+					length += legacyFormat.format(date).length();
+				}
+				return length;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.legacy.formatPrecise", VALUE_COUNT) {
+			@Override
+			long run() {
+				long length = 0;
+				for (Timestamp timestamp : timestamps) {
+					length += legacyPreciseFormat.format(timestamp).length();
+				}
+				return length;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.legacy.parse", VALUE_COUNT) {
+			@Override
+			long run() throws ParseException {
+				long sum = 0;
+				for (String text : texts) {
+					sum += legacyFormat.parse(text).getTime();
+				}
+				return sum;
+			}
+		});
+
+		caseList.add(new DriverBenchmark.Case(
+				"timestamp.legacy.parsePrecise", VALUE_COUNT) {
+			@Override
+			long run() throws ParseException {
+				long sum = 0;
+				for (String text : preciseTexts) {
+					sum += ((Timestamp) legacyPreciseFormat.parse(
+							text)).getNanos();
+				}
+				return sum;
+			}
+		});
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+   Copyright (c) 2017 TOSHIBA Digital Solutions Corporation
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.toshiba.mwcloud.gs.sql.internal;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+public class VirtualThreadStress {
+
+	private static final String PINNED_EVENT_NAME = "jdk.VirtualThreadPinned";
+
+	private static final int DEFAULT_CLIENT_COUNT = 10000;
+
+	private static final int DEFAULT_QUERIES_PER_CLIENT = 3;
+
+	private static final int TABLE_ROW_COUNT = 1000;
+
+	private static final int BLOCK_ROWS = 100;
+
+	private static final long LATENCY_MILLIS = 2;
+
+	private static final int MAX_REPORTED_EVENTS = 10;
+
+	private int clientCount = DEFAULT_CLIENT_COUNT;
+
+	private int queriesPerClient = DEFAULT_QUERIES_PER_CLIENT;
+
+	public static void main(String[] args) throws Exception {
+		final VirtualThreadStress stress = new VirtualThreadStress();
+		if (!stress.parseArguments(args)) {
+			printUsage(System.err);
+			System.exit(1);
+			return;
+		}
+
+		final ThreadFactory factory = findVirtualThreadFactory();
+		if (factory == null) {
+			System.out.println(
+					"Skipped: virtual threads are not available " +
+					"(JDK 21 or later is required)");
+			return;
+		}
+
+		if (!stress.run(factory, System.out)) {
+			System.exit(1);
+		}
+	}
+
+	private static void printUsage(PrintStream out) {
+		out.println(
+				"Usage: VirtualThreadStress [-c clientCount] " +
+				"[-q queriesPerClient]");
+	}
+
+	private boolean parseArguments(String[] args) {
+		try {
+			for (int i = 0; i < args.length; i++) {
+				final String arg = args[i];
+				if (arg.equals("-c") && i + 1 < args.length) {
+					clientCount = Integer.parseInt(args[++i]);
+				}
+				else if (arg.equals("-q") && i + 1 < args.length) {
+					queriesPerClient = Integer.parseInt(args[++i]);
+				}
+				else {
+					return false;
+				}
+			}
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+		return (clientCount > 0 && queriesPerClient > 0);
+	}
+
+	private static ThreadFactory findVirtualThreadFactory() {
+		try {
+			final Object builder =
+					Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory").invoke(builder);
+		}
+		catch (NoSuchMethodException e) {
+			return null;
+		}
+		catch (ClassNotFoundException e) {
+			return null;
+		}
+		catch (IllegalAccessException e) {
+			return null;
+		}
+		catch (InvocationTargetException e) {
+			if (e.getCause() instanceof UnsupportedOperationException) {
+				return null;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private boolean run(ThreadFactory factory, PrintStream out)
+			throws Exception {
+		final MockServer server = new MockServer(MockServer.Table.synthetic(
+				MockServer.DEFAULT_TABLE_NAME, TABLE_ROW_COUNT, 4, 16));
+		server.setDefaultBlockRows(BLOCK_ROWS);
+		server.setLatencyMillis(LATENCY_MILLIS);
+		server.start(0);
+
+		final File recordingFile =
+				File.createTempFile("gsvthread", ".jfr");
+		final Recording recording = new Recording();
+		final AtomicLong rowCount = new AtomicLong();
+		final AtomicReference<Throwable> firstError =
+				new AtomicReference<Throwable>();
+		final long startNanos;
+		final long elapsedNanos;
+		try {
+			recording.enable(PINNED_EVENT_NAME)
+					.withThreshold(Duration.ZERO).withStackTrace();
+			recording.start();
+
+			final Properties props = new Properties();
+			props.setProperty("user", "admin");
+			props.setProperty("password", "admin");
+			props.setProperty("socketPooling", "true");
+
+			final String url = server.getURL();
+			final com.toshiba.mwcloud.gs.sql.Driver driver =
+					new com.toshiba.mwcloud.gs.sql.Driver();
+
+			final List<Thread> threadList =
+					new ArrayList<Thread>(clientCount);
+			startNanos = System.nanoTime();
+			for (int i = 0; i < clientCount; i++) {
+				final Thread thread = factory.newThread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							rowCount.addAndGet(runClient(driver, url, props));
+						}
+						catch (Throwable t) {
+							firstError.compareAndSet(null, t);
+						}
+					}
+				});
+				threadList.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threadList) {
+				thread.join();
+			}
+			elapsedNanos = System.nanoTime() - startNanos;
+
+			recording.stop();
+			recording.dump(recordingFile.toPath());
+		}
+		finally {
+			recording.close();
+			server.close();
+		}
+
+		final List<RecordedEvent> pinnedList;
+		try {
+			pinnedList = readPinnedEvents(recordingFile);
+		}
+		finally {
+			recordingFile.delete();
+		}
+
+		out.println(
+				"clients=" + clientCount +
+				", queriesPerClient=" + queriesPerClient +
+				", rows=" + rowCount.get() +
+				", elapsedMillis=" + elapsedNanos / 1000 / 1000 +
+				", pinnedEvents=" + pinnedList.size());
+
+		boolean succeeded = true;
+		final Throwable error = firstError.get();
+		if (error != null) {
+			out.println("Client failed: " + error);
+			succeeded = false;
+		}
+
+		final long expectedRows =
+				(long) clientCount * queriesPerClient * TABLE_ROW_COUNT;
+		if (error == null && rowCount.get() != expectedRows) {
+			out.println(
+					"Unexpected row count (expected=" + expectedRows +
+					", actual=" + rowCount.get() + ")");
+			succeeded = false;
+		}
+
+		if (!pinnedList.isEmpty()) {
+			for (int i = 0;
+					i < Math.min(pinnedList.size(), MAX_REPORTED_EVENTS); i++) {
+				printPinnedEvent(pinnedList.get(i), out);
+			}
+			succeeded = false;
+		}
+
+		return succeeded;
+	}
+
+	private long runClient(
+			com.toshiba.mwcloud.gs.sql.Driver driver, String url,
+			Properties props) throws SQLException {
+		long rowCount = 0;
+		final Connection connection = driver.connect(url, props);
+		try {
+			for (int i = 0; i < queriesPerClient; i++) {
+				final Statement statement = connection.createStatement();
+				try {
+					statement.setFetchSize(BLOCK_ROWS);
+					final ResultSet rs = statement.executeQuery(
+							"SELECT * FROM " + MockServer.DEFAULT_TABLE_NAME);
+					while (rs.next()) {
+						rowCount++;
+					}
+				}
+				finally {
+					statement.close();
+				}
+			}
+		}
+		finally {
+			connection.close();
+		}
+		return rowCount;
+	}
+
+	private static List<RecordedEvent> readPinnedEvents(File file)
+			throws Exception {
+		final List<RecordedEvent> pinnedList = new ArrayList<RecordedEvent>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+			if (event.getEventType().getName().equals(PINNED_EVENT_NAME)) {
+				pinnedList.add(event);
+			}
+		}
+		return pinnedList;
+	}
+
+	private static void printPinnedEvent(RecordedEvent event, PrintStream out) {
+		out.println("Pinned: duration=" + event.getDuration());
+		if (event.getStackTrace() == null) {
+			return;
+		}
+		for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+			out.println("\tat " + frame.getMethod().getType().getName() +
+					"." + frame.getMethod().getName() +
+					"(line " + frame.getLineNumber() + ")");
+		}
+	}
+
+}
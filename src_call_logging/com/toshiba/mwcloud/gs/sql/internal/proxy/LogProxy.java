@@ -37,7 +37,7 @@ public class LogProxy implements InvocationHandler {
 
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-		boolean isOutputTrace = isOutputTraceMethod(method);
+		boolean isOutputTrace = logger.isTraceEnabled() && isOutputTraceMethod(method);
 		if (isOutputTrace) {
 			outputStartTrace(method, args);
 		}